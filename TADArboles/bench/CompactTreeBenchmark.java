@@ -0,0 +1,95 @@
+import material.Position;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Compares the traversal time of LinkedTree, LCRSTree and their CompactTree copies.
+ * <p>
+ * The trees are built by random inserts, so their nodes end up scattered across the
+ * heap. Each traversal visits every node and sums the elements, once through children()
+ * and once with a TreeCursor, and reports the bytes allocated by the traversal.
+ * <p>
+ * Usage: java CompactTreeBenchmark [nodes] [rounds]
+ */
+public class CompactTreeBenchmark {
+
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        LinkedTree<Integer> linked = new LinkedTree<>();
+        LCRSTree<Integer> lcrs = new LCRSTree<>();
+        buildRandom(linked, nodes, 1);
+        buildRandom(lcrs, nodes, 1);
+
+        measure("LinkedTree", linked, rounds);
+        measure("CompactTree(LinkedTree)", linked.compact(), rounds);
+        measure("LCRSTree", lcrs, rounds);
+        measure("CompactTree(LCRSTree)", lcrs.compact(), rounds);
+    }
+
+    /**
+     * Builds a tree inserting every node under a random existing node.
+     */
+    static void buildRandom(NAryTree<Integer> tree, int nodes, long seed) {
+        Random random = new Random(seed);
+        List<Position<Integer>> positions = new ArrayList<>(nodes);
+        positions.add(tree.addRoot(0));
+        for (int i = 1; i < nodes; i++) {
+            positions.add(tree.add(i, positions.get(random.nextInt(positions.size()))));
+        }
+    }
+
+    private static void measure(String name, Tree<Integer> tree, int rounds) {
+        measure(name + " children", tree, rounds, false);
+        measure(name + " cursor", tree, rounds, true);
+    }
+
+    private static void measure(String name, Tree<Integer> tree, int rounds, boolean cursor) {
+        long checksum = 0;
+        for (int i = 0; i < rounds; i++) {
+            checksum += cursor ? traverseCursor(tree) : traverse(tree, tree.root());
+        }
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            checksum += cursor ? traverseCursor(tree) : traverse(tree, tree.root());
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / rounds;
+        double bytes = (double) (allocatedBytes() - allocated) / rounds;
+        System.out.printf("%-34s %8.1f ms/traversal %12.0f bytes/traversal (checksum %d)%n",
+                name, millis, bytes, checksum);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static long traverseCursor(Tree<Integer> tree) {
+        TreeCursor<Integer> cursor = tree.cursor(tree.root());
+        long sum = 0;
+        while (true) {
+            sum += cursor.element();
+            if (cursor.toFirstChild()) {
+                continue;
+            }
+            while (!cursor.toNextSibling()) {
+                if (!cursor.toParent()) {
+                    return sum;
+                }
+            }
+        }
+    }
+
+    private static long traverse(Tree<Integer> tree, Position<Integer> node) {
+        long sum = node.getElement();
+        for (Position<Integer> child : tree.children(node)) {
+            sum += traverse(tree, child);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Compares the sequential copy of a tree (copyOf) with the parallel deep copy.
+ * <p>
+ * Usage: java DeepCopyBenchmark [nodes] [rounds]
+ */
+public class DeepCopyBenchmark {
+
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors());
+
+        LinkedTree<Integer> linked = new LinkedTree<>();
+        CompactTreeBenchmark.buildRandom(linked, nodes, 1);
+        measure("LinkedTree.copyOf", rounds, () -> LinkedTree.copyOf(linked));
+        measure("LinkedTree.deepCopy", rounds, linked::deepCopy);
+
+        LCRSTree<Integer> lcrs = LCRSTree.copyOf(linked);
+        measure("LCRSTree.copyOf", rounds, () -> LCRSTree.copyOf(lcrs));
+        measure("LCRSTree.deepCopy", rounds, lcrs::deepCopy);
+    }
+
+    private static void measure(String name, int rounds, Runnable copy) {
+        copy.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            copy.run();
+        }
+        System.out.printf("%-20s %8.1f ms/copy%n", name, (System.nanoTime() - start) / 1e6 / rounds);
+    }
+}
@@ -0,0 +1,61 @@
+import material.Position;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Exports one DOT file per child of the root of a random tree, first sequentially with
+ * subTree and saveDotToFile, then with a single call to writeDotFiles. The files are
+ * written in a temporary directory that is deleted at the end.
+ * <p>
+ * Usage: java DotExportBenchmark [subtrees] [nodesPerSubtree]
+ */
+public class DotExportBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int subtrees = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        int nodesPerSubtree = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        LinkedTree<Integer> tree = new LinkedTree<>();
+        Position<Integer> root = tree.addRoot(0);
+        Random random = new Random(1);
+        List<Position<Integer>> tops = new ArrayList<>(subtrees);
+        for (int i = 0; i < subtrees; i++) {
+            List<Position<Integer>> positions = new ArrayList<>(nodesPerSubtree);
+            positions.add(tree.add(i * nodesPerSubtree, root));
+            for (int j = 1; j < nodesPerSubtree; j++) {
+                positions.add(tree.add(i * nodesPerSubtree + j, positions.get(random.nextInt(positions.size()))));
+            }
+            tops.add(positions.get(0));
+        }
+
+        Path directory = Files.createTempDirectory("dot");
+        String workingDirectory = System.getProperty("user.dir");
+        System.setProperty("user.dir", directory.toString());
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < subtrees; i++) {
+                ((DrawableTree<Integer>) tree.subTree(tops.get(i))).saveDotToFile("sequential" + i + ".dot");
+            }
+            long middle = System.nanoTime();
+            tree.writeDotFiles(tops, "batch");
+            long end = System.nanoTime();
+            System.out.printf("subTree + saveDotToFile %8.1f ms%n", (middle - start) / 1e6);
+            System.out.printf("writeDotFiles           %8.1f ms (%d threads)%n", (end - middle) / 1e6,
+                    Runtime.getRuntime().availableProcessors());
+        } finally {
+            System.setProperty("user.dir", workingDirectory);
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures the mutation throughput of a DurableTree with group commit and the time it
+ * takes to open it again, from the log alone and from a snapshot plus a short log.
+ * <p>
+ * Usage: java DurableTreeBenchmark [nodes] [directory]
+ */
+public class DurableTreeBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path directory = args.length > 1 ? Path.of(args[1]) : Files.createTempDirectory("durable");
+
+        DurableTree<Integer> tree = open(directory);
+        tree.setSnapshotInterval(0);
+        long start = System.nanoTime();
+        CompactTreeBenchmark.buildRandom(tree, nodes, 1);
+        tree.commit();
+        report("Logged mutations", nodes, start);
+        tree.close();
+
+        start = System.nanoTime();
+        tree = open(directory);
+        report("Replayed log", nodes, start);
+
+        tree.snapshot();
+        for (int i = 0; i < nodes / 100; i++) {
+            tree.add(i, tree.root());
+        }
+        tree.close();
+        start = System.nanoTime();
+        tree = open(directory);
+        report("Snapshot + tail", tree.size(), start);
+        tree.close();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    private static DurableTree<Integer> open(Path directory) throws IOException {
+        return DurableTree.open(directory, new LinkedTree<>(), String::valueOf, Integer::valueOf);
+    }
+
+    private static void report(String name, int nodes, long start) {
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-18s %10.1f ms %12.0f nodes/s%n", name, millis, nodes / millis * 1000);
+    }
+}
@@ -0,0 +1,112 @@
+import material.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Compares many small LinkedTrees with the same trees hosted in one Forest: heap bytes
+ * per node, the time of a walk over every node of every tree, and the time to drop half
+ * of the trees and build them again.
+ * <p>
+ * Usage: java ForestBenchmark [trees] [nodesPerTree] [rounds]
+ */
+public class ForestBenchmark {
+
+    public static void main(String[] args) {
+        int trees = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int nodesPerTree = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int nodes = trees * nodesPerTree;
+
+        long before = usedHeap();
+        List<LinkedTree<Integer>> linked = new ArrayList<>(trees);
+        for (int i = 0; i < trees; i++) {
+            linked.add(buildRandom(new LinkedTree<>(), nodesPerTree, i));
+        }
+        long middle = usedHeap();
+        Forest<Integer> forest = new Forest<>(nodes);
+        for (int i = 0; i < trees; i++) {
+            buildRandom(forest.newTree(), nodesPerTree, i);
+        }
+        long after = usedHeap();
+
+        System.out.printf("LinkedTree %6.1f bytes/node%n", (double) (middle - before) / nodes);
+        System.out.printf("Forest     %6.1f bytes/node%n", (double) (after - middle) / nodes);
+
+        long checksum = 0;
+        for (int i = 0; i < rounds; i++) {
+            checksum += sumLinked(linked) + sumForest(forest);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            checksum += sumLinked(linked);
+        }
+        long middleTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            checksum += sumForest(forest);
+        }
+        long end = System.nanoTime();
+        System.out.printf("LinkedTree %6.1f ms/sum%n", (middleTime - start) / 1e6 / rounds);
+        System.out.printf("Forest     %6.1f ms/sum (checksum %d)%n", (end - middleTime) / 1e6 / rounds, checksum);
+
+        start = System.nanoTime();
+        for (int i = 0; i < trees; i += 2) {
+            linked.set(i, buildRandom(new LinkedTree<>(), nodesPerTree, i));
+        }
+        middleTime = System.nanoTime();
+        List<Forest<Integer>.ForestTree> hosted = new ArrayList<>(forest.trees());
+        for (int i = 0; i < trees; i += 2) {
+            forest.release(hosted.get(i));
+            buildRandom(forest.newTree(), nodesPerTree, i);
+        }
+        end = System.nanoTime();
+        System.out.printf("LinkedTree %6.1f ms to rebuild half%n", (middleTime - start) / 1e6);
+        System.out.printf("Forest     %6.1f ms to rebuild half (capacity %d)%n", (end - middleTime) / 1e6, forest.capacity());
+    }
+
+    /**
+     * Builds a tree inserting every node under a random existing one.
+     */
+    private static <T extends NAryTree<Integer>> T buildRandom(T tree, int nodes, int seed) {
+        Random random = new Random(seed);
+        List<Position<Integer>> positions = new ArrayList<>(nodes);
+        positions.add(tree.addRoot(0));
+        for (int i = 1; i < nodes; i++) {
+            positions.add(tree.add(i, positions.get(random.nextInt(positions.size()))));
+        }
+        return tree;
+    }
+
+    private static long sumLinked(List<LinkedTree<Integer>> trees) {
+        long sum = 0;
+        for (LinkedTree<Integer> tree : trees) {
+            for (Position<Integer> p : tree) {
+                sum += p.getElement();
+            }
+        }
+        return sum;
+    }
+
+    private static long sumForest(Forest<Integer> forest) {
+        long sum = 0;
+        for (Position<Integer> p : forest) {
+            sum += p.getElement();
+        }
+        return sum;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,108 @@
+import material.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Compares an LCRSTree of Integer ids with an IntNAryTree of the same ids: heap bytes
+ * per node and the time of a cursor walk that sums every element.
+ * <p>
+ * The ids are distinct and larger than the Integer cache, so every element of the
+ * LCRSTree is a separate object, as it is for real ids.
+ * <p>
+ * Usage: java PrimitiveTreeBenchmark [nodes] [rounds]
+ */
+public class PrimitiveTreeBenchmark {
+
+    private static final int FIRST_ID = 1_000_000;
+
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        long before = usedHeap();
+        LCRSTree<Integer> boxed = new LCRSTree<>();
+        buildRandom(boxed, nodes);
+        long middle = usedHeap();
+        IntNAryTree primitive = new IntNAryTree();
+        buildRandom(primitive.boxed(), nodes);
+        long after = usedHeap();
+
+        System.out.printf("LCRSTree<Integer> %6.1f bytes/node%n", (double) (middle - before) / nodes);
+        System.out.printf("IntNAryTree       %6.1f bytes/node%n", (double) (after - middle) / nodes);
+
+        long checksum = 0;
+        for (int i = 0; i < rounds; i++) {
+            checksum += sum(boxed.cursor(boxed.root())) + sum(primitive.cursor(primitive.root()));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            checksum += sum(boxed.cursor(boxed.root()));
+        }
+        long middleTime = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            checksum += sum(primitive.cursor(primitive.root()));
+        }
+        long end = System.nanoTime();
+        System.out.printf("LCRSTree<Integer> %6.1f ms/sum%n", (middleTime - start) / 1e6 / rounds);
+        System.out.printf("IntNAryTree       %6.1f ms/sum (checksum %d)%n", (end - middleTime) / 1e6 / rounds, checksum);
+    }
+
+    /**
+     * Builds a tree inserting every id under a random existing node. The positions are
+     * dropped before the heap is measured.
+     */
+    private static void buildRandom(NAryTree<Integer> tree, int nodes) {
+        Random random = new Random(1);
+        List<Position<Integer>> positions = new ArrayList<>(nodes);
+        positions.add(tree.addRoot(FIRST_ID));
+        for (int i = 1; i < nodes; i++) {
+            positions.add(tree.add(FIRST_ID + i, positions.get(random.nextInt(positions.size()))));
+        }
+    }
+
+    private static long sum(TreeCursor<Integer> cursor) {
+        long sum = 0;
+        while (true) {
+            sum += cursor.element();
+            if (cursor.toFirstChild()) {
+                continue;
+            }
+            while (!cursor.toNextSibling()) {
+                if (!cursor.toParent()) {
+                    return sum;
+                }
+            }
+        }
+    }
+
+    private static long sum(IntNAryTree.Cursor cursor) {
+        long sum = 0;
+        while (true) {
+            sum += cursor.intElement();
+            if (cursor.toFirstChild()) {
+                continue;
+            }
+            while (!cursor.toNextSibling()) {
+                if (!cursor.toParent()) {
+                    return sum;
+                }
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
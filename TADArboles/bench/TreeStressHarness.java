@@ -0,0 +1,342 @@
+import material.Position;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+
+/**
+ * Reproducible stress harness for the NAryTree implementations.
+ * <p>
+ * For every implementation it generates a synthetic tree with a given size and shape,
+ * measures the heap per node, runs whole-tree operations (traversal, Newick export,
+ * structural hash, deep copy) and a mixed workload of inserts, removals, subtree
+ * traversals and subtree exports on random nodes. It reports the throughput of every
+ * operation, the GC time, and the errors, such as a StackOverflowError in a recursive
+ * method on a deep tree, without stopping the run.
+ * <p>
+ * Usage: java -Xmx16g TreeStressHarness [key=value ...]
+ * <pre>
+ *   impl=linked,lcrs   implementations, any key of IMPLEMENTATIONS
+ *   nodes=1000000      size of the generated tree, up to 10^8 with enough heap
+ *   shape=random       random: every node hangs from a uniformly chosen node (depth ~ ln n)
+ *                      fixed:F: every node has F children (complete tree)
+ *                      geometric:M: random number of children with mean M
+ *                      powerlaw:A: number of children with P(k) ~ k^-A, a few very wide nodes
+ *                      deep: a single path, as deep as the tree is large
+ *   maxDepth=0         nodes at this depth get no children, 0 for no limit (not for random)
+ *   ops=100000         operations of the mixed workload
+ *   mix=insert:40,remove:20,traverse:30,export:10
+ *   seed=1
+ * </pre>
+ * The same seed generates the same tree and the same workload for every implementation.
+ */
+public class TreeStressHarness {
+
+    /** Implementations under test. New implementations only need to be registered here. */
+    static final Map<String, Supplier<NAryTree<Integer>>> IMPLEMENTATIONS = new LinkedHashMap<>();
+
+    static {
+        IMPLEMENTATIONS.put("linked", LinkedTree::new);
+        IMPLEMENTATIONS.put("lcrs", LCRSTree::new);
+    }
+
+    private static final String[] OPERATIONS = {"insert", "remove", "traverse", "export"};
+
+    public static void main(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("impl", String.join(",", IMPLEMENTATIONS.keySet()));
+        options.put("nodes", "1000000");
+        options.put("shape", "random");
+        options.put("maxDepth", "0");
+        options.put("ops", "100000");
+        options.put("mix", "insert:40,remove:20,traverse:30,export:10");
+        options.put("seed", "1");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0 || !options.containsKey(arg.substring(0, equals))) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        System.out.println("Options: " + options);
+        System.out.printf("Heap: %,d MB, cores: %d%n", Runtime.getRuntime().maxMemory() >> 20,
+                Runtime.getRuntime().availableProcessors());
+
+        for (String name : options.get("impl").split(",")) {
+            Supplier<NAryTree<Integer>> factory = IMPLEMENTATIONS.get(name);
+            if (factory == null) {
+                throw new IllegalArgumentException("Unknown implementation: " + name);
+            }
+            System.out.println();
+            System.out.println("== " + name);
+            run(factory, options);
+        }
+    }
+
+    private static void run(Supplier<NAryTree<Integer>> factory, Map<String, String> options) {
+        int nodes = Integer.parseInt(options.get("nodes"));
+        int maxDepth = Integer.parseInt(options.get("maxDepth"));
+        long seed = Long.parseLong(options.get("seed"));
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+
+        long before = usedHeap();
+        @SuppressWarnings("unchecked")
+        NAryTree<Integer>[] holder = (NAryTree<Integer>[]) new NAryTree<?>[1];
+        measure("build", nodes, () -> holder[0] = generate(factory.get(), nodes, options.get("shape"),
+                maxDepth, new Random(seed)));
+        NAryTree<Integer> tree = holder[0];
+        if (tree == null) {
+            return;
+        }
+        long after = usedHeap();
+        int size = tree.subtreeSize(tree.root());
+        System.out.printf("  %-16s %,d nodes, depth %,d, %.1f bytes/node%n", "tree", size, depth(tree),
+                (double) (after - before) / size);
+
+        measure("traverse (full)", size, () -> {
+            long[] count = {0};
+            tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> count[0]++);
+        });
+        measure("export (full)", size, () -> export(tree));
+        measure("structuralHash", size, () -> tree.structuralHash(tree.root()));
+        measure("deepCopy", size, tree::deepCopy);
+
+        mixed(tree, Integer.parseInt(options.get("ops")), options.get("mix"), new Random(seed + 1));
+
+        System.out.printf("  %-16s %,d collections, %,d ms%n", "GC", gcCount() - gcCount, gcTime() - gcTime);
+    }
+
+    /**
+     * Fills an empty tree with a given shape.
+     */
+    static NAryTree<Integer> generate(NAryTree<Integer> tree, int nodes, String shape, int maxDepth, Random random) {
+        String[] parts = shape.split(":");
+        double parameter = parts.length > 1 ? Double.parseDouble(parts[1]) : 0;
+        int count = 0;
+        Position<Integer> root = tree.addRoot(count++);
+        if (parts[0].equals("random")) {
+            List<Position<Integer>> positions = new ArrayList<>(nodes);
+            positions.add(root);
+            while (count < nodes) {
+                positions.add(tree.add(count++, positions.get(random.nextInt(positions.size()))));
+            }
+            return tree;
+        }
+        // Level by level, drawing the number of children of every node.
+        List<Position<Integer>> level = new ArrayList<>();
+        level.add(root);
+        int depth = 0;
+        while (count < nodes) {
+            if (level.isEmpty() || (maxDepth > 0 && depth == maxDepth)) {
+                // Every branch died out or reached the maximum depth: the root gets more children.
+                level = new ArrayList<>();
+                level.add(root);
+                depth = 0;
+            }
+            List<Position<Integer>> next = new ArrayList<>();
+            for (Position<Integer> p : level) {
+                int children = children(parts[0], parameter, random);
+                for (int i = 0; i < children && count < nodes; i++) {
+                    next.add(tree.add(count++, p));
+                }
+            }
+            level = next;
+            depth++;
+        }
+        return tree;
+    }
+
+    private static int children(String shape, double parameter, Random random) {
+        switch (shape) {
+            case "fixed":
+                return (int) parameter;
+            case "geometric":
+                // Geometric distribution on 0, 1, 2... with the given mean.
+                double p = 1 / (parameter + 1);
+                return (int) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+            case "powerlaw":
+                // Discrete Pareto on 1, 2, 3..., with an occasional leaf so the tree is not a
+                // single chain of wide nodes.
+                if (random.nextInt(4) == 0) {
+                    return 0;
+                }
+                return (int) Math.min(Integer.MAX_VALUE, Math.floor(Math.pow(1 - random.nextDouble(), -1 / (parameter - 1))));
+            case "deep":
+                return 1;
+            default:
+                throw new IllegalArgumentException("Unknown shape: " + shape);
+        }
+    }
+
+    /**
+     * Runs a random mix of operations on random nodes and reports each kind of operation
+     * separately.
+     */
+    private static void mixed(NAryTree<Integer> tree, int ops, String mix, Random random) {
+        int[] weights = new int[OPERATIONS.length];
+        int total = 0;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split(":");
+            int i = List.of(OPERATIONS).indexOf(parts[0]);
+            if (i < 0) {
+                throw new IllegalArgumentException("Unknown operation: " + parts[0]);
+            }
+            weights[i] = Integer.parseInt(parts[1]);
+            total += weights[i];
+        }
+        long[] count = new long[OPERATIONS.length];
+        long[] nanos = new long[OPERATIONS.length];
+        long[] visited = new long[OPERATIONS.length];
+        Map<String, Integer> errors = new LinkedHashMap<>();
+        int next = tree.subtreeSize(tree.root());
+        for (int n = 0; n < ops; n++) {
+            int draw = random.nextInt(total);
+            int op = 0;
+            while (draw >= weights[op]) {
+                draw -= weights[op++];
+            }
+            long start = System.nanoTime();
+            try {
+                Position<Integer> node = tree.select(random.nextInt(tree.subtreeSize(tree.root())));
+                switch (op) {
+                    case 0:
+                        tree.add(next++, node);
+                        break;
+                    case 1:
+                        while (!tree.isLeaf(node)) {
+                            node = tree.children(node).iterator().next();
+                        }
+                        if (!tree.isRoot(node)) {
+                            tree.remove(node);
+                        }
+                        break;
+                    case 2:
+                        long[] c = {0};
+                        tree.traverse(node, Integer.MAX_VALUE, p -> true, (p, depth) -> c[0]++);
+                        visited[op] += c[0];
+                        break;
+                    default:
+                        visited[op] += export(tree.subTree(node));
+                }
+            } catch (RuntimeException | Error e) {
+                errors.merge(OPERATIONS[op] + ": " + e.getClass().getSimpleName(), 1, Integer::sum);
+            }
+            nanos[op] += System.nanoTime() - start;
+            count[op]++;
+        }
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            if (count[op] > 0) {
+                System.out.printf("  %-16s %,10d ops %,14.0f ops/s%s%n", "mixed " + OPERATIONS[op], count[op],
+                        count[op] / (nanos[op] / 1e9),
+                        visited[op] > 0 ? String.format(" (%,d nodes or bytes per op)", visited[op] / count[op]) : "");
+            }
+        }
+        for (Map.Entry<String, Integer> error : errors.entrySet()) {
+            System.out.printf("  %-16s %s x%,d%n", "FAILED", error.getKey(), error.getValue());
+        }
+    }
+
+    /**
+     * Runs an operation once and prints its time and throughput, or the error it throws.
+     */
+    private static void measure(String name, int nodes, Runnable operation) {
+        long start = System.nanoTime();
+        try {
+            operation.run();
+            double millis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("  %-16s %10.1f ms %,14.0f nodes/s%n", name, millis, nodes / millis * 1000);
+        } catch (RuntimeException | Error e) {
+            // A StackOverflowError in a fork/join worker may surface as another Error.
+            System.out.printf("  %-16s FAILED %s after %.1f ms%n", name, e.getClass().getSimpleName(),
+                    (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    /**
+     * Writes a tree in Newick format to a channel that discards the bytes.
+     *
+     * @return the number of bytes written
+     */
+    private static long export(Tree<Integer> tree) {
+        long[] bytes = {0};
+        WritableByteChannel sink = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                int n = src.remaining();
+                src.position(src.limit());
+                bytes[0] += n;
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            TreeTextExporter.writeNewick(tree, sink);
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        return bytes[0];
+    }
+
+    /**
+     * Returns the height of a tree, walking it with an explicit stack.
+     */
+    private static int depth(Tree<Integer> tree) {
+        int max = 0;
+        Deque<Iterator<? extends Position<Integer>>> stack = new ArrayDeque<>();
+        stack.push(tree.children(tree.root()).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<? extends Position<Integer>> children = stack.peek();
+            if (children.hasNext()) {
+                stack.push(tree.children(children.next()).iterator());
+                max = Math.max(max, stack.size() - 1);
+            } else {
+                stack.pop();
+            }
+        }
+        return max;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
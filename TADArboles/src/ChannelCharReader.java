@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Reads the characters of a UTF-8 channel one by one through bounded buffers, so
+ * arbitrarily large inputs are read with constant memory.
+ */
+public class ChannelCharReader {
+
+    /** Size of the byte and char buffers. */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private boolean endOfInput;
+    private boolean flushed;
+
+    public ChannelCharReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        chars.flip();
+    }
+
+    /**
+     * Returns the next character.
+     *
+     * @return the next character, or -1 at the end of the input
+     * @throws IOException if the channel cannot be read or its content is not valid UTF-8
+     */
+    public int read() throws IOException {
+        while (!chars.hasRemaining()) {
+            if (!fill()) {
+                return -1;
+            }
+        }
+        return chars.get();
+    }
+
+    /**
+     * Decodes more characters into the char buffer.
+     *
+     * @return false if the input is exhausted
+     */
+    private boolean fill() throws IOException {
+        if (flushed) {
+            return false;
+        }
+        chars.clear();
+        if (!endOfInput && channel.read(bytes) < 0) {
+            endOfInput = true;
+        }
+        bytes.flip();
+        CoderResult result = decoder.decode(bytes, chars, endOfInput);
+        if (result.isError()) {
+            result.throwException();
+        }
+        bytes.compact();
+        if (endOfInput && !result.isOverflow()) {
+            decoder.flush(chars);
+            flushed = true;
+        }
+        chars.flip();
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Writes text to a channel in UTF-8 through bounded buffers, so arbitrarily large
+ * outputs are written without building them in memory.
+ */
+public class ChannelCharWriter {
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharBuffer chars = CharBuffer.allocate(ChannelCharReader.BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(ChannelCharReader.BUFFER_SIZE);
+
+    public ChannelCharWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Appends text to the output.
+     *
+     * @param text the text
+     * @return this writer
+     * @throws IOException if the channel cannot be written
+     */
+    public ChannelCharWriter append(CharSequence text) throws IOException {
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            int n = Math.min(chars.remaining(), length - i);
+            chars.append(text, i, i + n);
+            i += n;
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes the pending characters to the channel and keeps the writer open, so more
+     * text can be appended later. The first half of a surrogate pair waits for its
+     * second half.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void flush() throws IOException {
+        encode(false);
+        drain();
+    }
+
+    /**
+     * Writes every pending character to the channel. It must be called once, after the
+     * last append. The channel is not closed.
+     *
+     * @throws IOException if the channel cannot be written
+     */
+    public void finish() throws IOException {
+        encode(true);
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        drain();
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (!result.isOverflow()) {
+                break;
+            }
+            drain();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
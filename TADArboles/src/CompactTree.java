@@ -0,0 +1,369 @@
+import material.Position;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+
+/**
+ * A read-only tree whose nodes are laid out in pre-order in contiguous arrays.
+ * <p>
+ * Node i stores its element in elements[i], the index of its parent in parents[i]
+ * and the number of nodes of its subtree in sizes[i]. The first child of node i is
+ * i + 1 and the next sibling of node i is i + sizes[i], so navigating the tree reads
+ * consecutive array entries instead of following pointers scattered across the heap.
+ * <p>
+ * Positions are lightweight handles over an index, created on demand. Two positions
+ * for the same node are equal.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public class CompactTree<E> implements Tree<E> {
+
+    private class Node implements Position<E> {
+        private final int index;
+
+        public Node(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public E getElement() {
+            return CompactTree.this.element(index);
+        }
+
+        private CompactTree<E> getTree() {
+            return CompactTree.this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CompactTree.Node)) {
+                return false;
+            }
+            CompactTree<?>.Node node = (CompactTree<?>.Node) o;
+            return node.index == index && node.getTree() == getTree();
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(getElement());
+        }
+    }
+
+    private final Object[] elements;
+    private final int[] parents;
+    private final int[] sizes;
+
+    /**
+     * Creates a compact copy of a tree.
+     *
+     * @param tree the tree to copy
+     */
+    public CompactTree(Tree<E> tree) {
+        int capacity = tree.isEmpty() ? 0 : countNodes(tree, tree.root());
+        this.elements = new Object[capacity];
+        this.parents = new int[capacity];
+        this.sizes = new int[capacity];
+        if (!tree.isEmpty()) {
+            copy(tree, tree.root());
+        }
+    }
+
+    private static <E> int countNodes(Tree<E> tree, Position<E> node) {
+        int count = 0;
+        Deque<Position<E>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            count++;
+            for (Position<E> child : tree.children(stack.pop())) {
+                stack.push(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies a tree in pre-order, with an explicit stack of the iterators of the children
+     * on the path, and then computes the subtree sizes from the last node backwards.
+     */
+    private void copy(Tree<E> tree, Position<E> root) {
+        Deque<Iterator<? extends Position<E>>> iterators = new ArrayDeque<>();
+        // path[d] is the index of the node at depth d of the current path.
+        int[] path = new int[16];
+        elements[0] = root.getElement();
+        parents[0] = -1;
+        int next = 1;
+        iterators.push(tree.children(root).iterator());
+        while (!iterators.isEmpty()) {
+            Iterator<? extends Position<E>> children = iterators.peek();
+            if (!children.hasNext()) {
+                iterators.pop();
+                continue;
+            }
+            Position<E> child = children.next();
+            int depth = iterators.size();
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, 2 * path.length);
+            }
+            elements[next] = child.getElement();
+            parents[next] = path[depth - 1];
+            path[depth] = next++;
+            iterators.push(tree.children(child).iterator());
+        }
+        Arrays.fill(sizes, 1);
+        for (int i = sizes.length - 1; i > 0; i--) {
+            sizes[parents[i]] += sizes[i];
+        }
+    }
+
+    private Node checkPosition(Position<E> p) {
+        if (!(p instanceof CompactTree.Node) || ((Node) p).getTree() != this) {
+            throw new RuntimeException("The position is invalid");
+        }
+        return (Node) p;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element(int index) {
+        return (E) elements[index];
+    }
+
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    @Override
+    public Position<E> root() {
+        return isEmpty() ? null : new Node(0);
+    }
+
+    @Override
+    public Position<E> parent(Position<E> v) {
+        Node node = checkPosition(v);
+        int parent = parents[node.index];
+        return parent < 0 ? null : new Node(parent);
+    }
+
+    @Override
+    public Iterable<? extends Position<E>> children(Position<E> v) {
+        Node node = checkPosition(v);
+        int first = node.index + 1;
+        int end = node.index + sizes[node.index];
+        return () -> new Iterator<Position<E>>() {
+            private int next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public Position<E> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Node child = new Node(next);
+                next += sizes[next];
+                return child;
+            }
+        };
+    }
+
+    @Override
+    public boolean isInternal(Position<E> v) {
+        Node node = checkPosition(v);
+        return sizes[node.index] > 1;
+    }
+
+    @Override
+    public boolean isLeaf(Position<E> v) {
+        Node node = checkPosition(v);
+        return sizes[node.index] == 1;
+    }
+
+    @Override
+    public boolean isRoot(Position<E> v) {
+        Node node = checkPosition(v);
+        return node.index == 0;
+    }
+
+    /**
+     * Returns a cursor placed on a node. The cursor is an index into the arrays: the
+     * first child is the next index and the next sibling is found with the size of the
+     * subtree, so no move allocates.
+     *
+     * @param v the node where the cursor starts
+     * @return the cursor
+     */
+    @Override
+    public TreeCursor<E> cursor(Position<E> v) {
+        Node node = checkPosition(v);
+        return new IndexCursor(node.index);
+    }
+
+    private class IndexCursor implements TreeCursor<E> {
+        private int index;
+        private int depth;
+
+        public IndexCursor(int start) {
+            index = start;
+            for (int p = parents[start]; p >= 0; p = parents[p]) {
+                depth++;
+            }
+        }
+
+        @Override
+        public boolean toParent() {
+            int parent = parents[index];
+            if (parent < 0) {
+                return false;
+            }
+            index = parent;
+            depth--;
+            return true;
+        }
+
+        @Override
+        public boolean toFirstChild() {
+            if (sizes[index] == 1) {
+                return false;
+            }
+            index++;
+            depth++;
+            return true;
+        }
+
+        @Override
+        public boolean toNextSibling() {
+            int parent = parents[index];
+            int next = index + sizes[index];
+            if (parent < 0 || next >= parent + sizes[parent]) {
+                return false;
+            }
+            index = next;
+            return true;
+        }
+
+        @Override
+        public E element() {
+            return CompactTree.this.element(index);
+        }
+
+        @Override
+        public int depth() {
+            return depth;
+        }
+
+        @Override
+        public Position<E> position() {
+            return new Node(index);
+        }
+    }
+
+    /**
+     * Returns the number of nodes in the subtree rooted at a node, in constant time.
+     *
+     * @param v the root of the subtree
+     * @return the size of the subtree
+     */
+    public int subtreeSize(Position<E> v) {
+        Node node = checkPosition(v);
+        return sizes[node.index];
+    }
+
+    /**
+     * Pruned, depth-bounded pre-order traversal over the arrays. A skipped subtree is
+     * jumped over in constant time using its size.
+     */
+    @Override
+    public void traverse(Position<E> v, int maxDepth, Predicate<Position<E>> descend, TreeVisitor<E> visitor) {
+        Node node = checkPosition(v);
+        traverse(node.index, 0, maxDepth, descend, visitor);
+    }
+
+    private void traverse(int index, int depth, int maxDepth, Predicate<Position<E>> descend, TreeVisitor<E> visitor) {
+        // ends[d] is the end of the subtree of the ancestor at depth d of the current node.
+        int[] ends = new int[16];
+        int end = index + sizes[index];
+        int i = index;
+        while (i < end) {
+            while (depth > 0 && i >= ends[depth - 1]) {
+                depth--;
+            }
+            Node node = new Node(i);
+            visitor.visit(node, depth);
+            if (depth < maxDepth && descend.test(node) && sizes[i] > 1) {
+                if (depth == ends.length) {
+                    ends = Arrays.copyOf(ends, 2 * ends.length);
+                }
+                ends[depth++] = i + sizes[i];
+                i++;
+            } else {
+                i += sizes[i];
+            }
+        }
+    }
+
+    /**
+     * Iterates the tree in breadth-first order, as LinkedTree does.
+     */
+    @Override
+    public Iterator<Position<E>> iterator() {
+        List<Position<E>> positions = new ArrayList<>(size());
+        int[] queue = new int[size()];
+        int head = 0;
+        int tail = 0;
+        if (!isEmpty()) {
+            queue[tail++] = 0;
+        }
+        while (head < tail) {
+            int index = queue[head++];
+            positions.add(new Node(index));
+            int end = index + sizes[index];
+            for (int child = index + 1; child < end; child += sizes[child]) {
+                queue[tail++] = child;
+            }
+        }
+        return positions.iterator();
+    }
+
+    /**
+     * Iterates the tree in pre-order, which is a sequential scan of the arrays.
+     *
+     * @return an iterator over the positions in pre-order
+     */
+    public Iterator<Position<E>> iteratorPreOrder() {
+        return new Iterator<Position<E>>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < elements.length;
+            }
+
+            @Override
+            public Position<E> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new Node(next++);
+            }
+        };
+    }
+}
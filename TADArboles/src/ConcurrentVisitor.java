@@ -0,0 +1,152 @@
+import material.Position;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+
+/**
+ * Runs a task for every node of a tree concurrently. It is meant for slow, I/O-bound
+ * tasks (a file read or a database lookup per node), where visiting the nodes one by
+ * one leaves the CPU idle.
+ * <p>
+ * Tasks run on virtual threads when the JVM supports them (Java 21 or later) and on a
+ * fixed pool of maxConcurrency platform threads otherwise. A semaphore limits how many tasks run at the same time.
+ * The results are returned as a LinkedTree with the same shape as the visited tree.
+ */
+public class ConcurrentVisitor {
+
+    /** Default maximum number of tasks running at the same time. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 256;
+
+    /**
+     * Runs a task for every node of a tree, in any order, with the default concurrency limit.
+     *
+     * @param tree the tree to visit
+     * @param task the task to run for every node
+     * @param <E>  the type of elements stored in the tree
+     * @param <R>  the type of the results
+     * @return a tree with the same shape that stores the result of every node
+     */
+    public static <E, R> LinkedTree<R> visitConcurrently(Tree<E> tree, Function<Position<E>, R> task) {
+        return visitConcurrently(tree, task, DEFAULT_MAX_CONCURRENCY, false);
+    }
+
+    /**
+     * Runs a task for every node of a tree.
+     *
+     * @param tree           the tree to visit
+     * @param task           the task to run for every node
+     * @param maxConcurrency the maximum number of tasks running at the same time
+     * @param parentFirst    if true, the task of a node starts after the task of its parent has finished
+     * @param <E>            the type of elements stored in the tree
+     * @param <R>            the type of the results
+     * @return a tree with the same shape that stores the result of every node
+     */
+    public static <E, R> LinkedTree<R> visitConcurrently(Tree<E> tree, Function<Position<E>, R> task,
+                                                         int maxConcurrency, boolean parentFirst) {
+        if (maxConcurrency < 1) {
+            throw new RuntimeException("The concurrency limit must be positive");
+        }
+        ExecutorService executor = newDefaultExecutor(maxConcurrency);
+        try {
+            return visitConcurrently(tree, task, maxConcurrency, parentFirst, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Runs a task for every node of a tree on a given executor. The executor is not shut down.
+     *
+     * @param tree           the tree to visit
+     * @param task           the task to run for every node
+     * @param maxConcurrency the maximum number of tasks running at the same time
+     * @param parentFirst    if true, the task of a node starts after the task of its parent has finished
+     * @param executor       the executor that runs the tasks
+     * @param <E>            the type of elements stored in the tree
+     * @param <R>            the type of the results
+     * @return a tree with the same shape that stores the result of every node
+     * @throws RuntimeException if any task fails, with the failure as its cause
+     */
+    public static <E, R> LinkedTree<R> visitConcurrently(Tree<E> tree, Function<Position<E>, R> task,
+                                                         int maxConcurrency, boolean parentFirst,
+                                                         ExecutorService executor) {
+        if (maxConcurrency < 1) {
+            throw new RuntimeException("The concurrency limit must be positive");
+        }
+        LinkedTree<R> results = new LinkedTree<>();
+        if (tree.isEmpty()) {
+            return results;
+        }
+        List<Position<E>> nodes = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        collectPreOrder(tree, tree.root(), -1, nodes, parents);
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<R>> futures = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Position<E> node = nodes.get(i);
+            int parent = parents.get(i);
+            if (parentFirst && parent >= 0) {
+                futures.add(futures.get(parent).thenApplyAsync(r -> run(task, node, permits), executor));
+            } else {
+                futures.add(CompletableFuture.supplyAsync(() -> run(task, node, permits), executor));
+            }
+        }
+
+        List<Position<R>> positions = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            R result = join(futures.get(i));
+            int parent = parents.get(i);
+            positions.add(parent < 0 ? results.addRoot(result) : results.add(result, positions.get(parent)));
+        }
+        return results;
+    }
+
+    private static <E, R> R run(Function<Position<E>, R> task, Position<E> node, Semaphore permits) {
+        permits.acquireUninterruptibly();
+        try {
+            return task.apply(node);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static <R> R join(CompletableFuture<R> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("A task of the visitor failed", e.getCause());
+        }
+    }
+
+    private static <E> void collectPreOrder(Tree<E> tree, Position<E> node, int parent,
+                                            List<Position<E>> nodes, List<Integer> parents) {
+        int index = nodes.size();
+        nodes.add(node);
+        parents.add(parent);
+        for (Position<E> child : tree.children(node)) {
+            collectPreOrder(tree, child, index, nodes, parents);
+        }
+    }
+
+    /**
+     * Creates an executor that starts a virtual thread per task if the JVM supports
+     * them, or a fixed thread pool otherwise.
+     */
+    private static ExecutorService newDefaultExecutor(int maxConcurrency) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxConcurrency);
+        }
+    }
+}
@@ -1,11 +1,57 @@
 
 import material.Position;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
     public abstract class DrawableTree<E> implements NAryTree<E> {
 
+        /**
+         * Rendered DOT fragment of a subtree: the edges to its children followed by
+         * the fragments of the children. Its offsets point into {@link #lastDot}.
+         */
+        private static class DotFragment {
+            private int start;
+            private int length;
+            private boolean dirty;
+        }
+
+        private static final String DOT_HEADER = "digraph Tree {\n";
+
+        /** Distinguishes the files named in the same millisecond. */
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
+        /**
+         * Shared by a tree and the views of its nodes: the number of changes made through
+         * the views, that the fragments of the tree do not know about.
+         */
+        private static class DotViews {
+            private int changes;
+        }
+
+        private final Map<Position<E>, DotFragment> fragments = new WeakHashMap<>();
+        private String lastDot;
+        private boolean cacheDot = true;
+        private DotViews views = new DotViews();
+        private int seenViewChanges;
+
         /**
          * Generate a DOT representation of the tree.
          * <p>
@@ -13,29 +59,325 @@ import java.nio.file.Paths;
          * represent various types of graphs.
          * <p>
          * To visualize dot files you can sumply use: <a href="https://dreampuf.github.io/GraphvizOnline/">Graphviz Online</a>
+         * <p>
+         * The fragment of every subtree is remembered between calls. Subtrees that
+         * were not marked as dirty since the previous call are copied from the previous
+         * output, so only the changed regions are rendered again. Views of the nodes of
+         * another tree, see {@link #shareDot(DrawableTree)}, render the whole tree on
+         * every call, like the trees that disabled the cache, see
+         * {@link #disableDotCache()}.
          *
          * @return a string representing the tree in the DOT format
          */
         public String toDot() {
-            StringBuilder sb = new StringBuilder("digraph Tree {\n");
+            if (!cacheDot) {
+                return renderDot();
+            }
+            if (seenViewChanges != views.changes) {
+                fragments.clear();
+                lastDot = null;
+                seenViewChanges = views.changes;
+            }
+            StringBuilder sb = new StringBuilder(lastDot == null ? 64 : lastDot.length());
+            sb.append(DOT_HEADER);
             if (!isEmpty()) {
-                toDot(root(), sb);
+                Position<E> root = root();
+                DotFragment fragment = fragments.get(root);
+                int oldStart = (lastDot != null && fragment != null) ? fragment.start : -1;
+                toDot(root, sb, oldStart).start = DOT_HEADER.length();
             }
             sb.append("}");
-            return sb.toString();
+            lastDot = sb.toString();
+            return lastDot;
+        }
+
+
+        /**
+         * Generate the DOT representation of the tree without the cache, in the same
+         * format as {@link #toDot()}.
+         *
+         * @return a string representing the tree in the DOT format
+         */
+        protected String renderDot() {
+            StringBuilder sb = new StringBuilder(DOT_HEADER);
+            traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> {
+                if (depth > 0) {
+                    sb.append("\"").append(parent(p).getElement()).append("\" -> \"").append(p.getElement()).append("\";\n");
+                }
+            });
+            return sb.append("}").toString();
+        }
+
+        /**
+         * Makes this tree a view of the nodes of another tree, as far as the DOT cache is
+         * concerned. The changes made through the other tree do not reach the view, so
+         * the view does not remember any fragment; the changes made through the view make
+         * the other tree, and its other views, forget theirs.
+         *
+         * @param base the tree whose nodes are shared
+         */
+        protected void shareDot(DrawableTree<E> base) {
+            disableDotCache();
+            views = base.views;
+        }
+
+        /**
+         * Stops remembering the DOT fragments, so {@link #toDot()} renders the whole tree
+         * on every call. Trees whose positions are created on demand must call it, because
+         * the cache holds its keys weakly and would lose the fragments of live nodes.
+         */
+        protected void disableDotCache() {
+            cacheDot = false;
+            fragments.clear();
+            lastDot = null;
+        }
+
+        /**
+         * A node whose fragment is being rendered by {@link #toDot(Position, StringBuilder, int)}.
+         */
+        private class DotFrame {
+            private final Position<E> node;
+            private final DotFragment fragment;
+            private final int start;
+            private final int oldStart;
+            private final Iterator<? extends Position<E>> children;
+
+            private DotFrame(Position<E> node, DotFragment fragment, int start, int oldStart) {
+                this.node = node;
+                this.fragment = fragment;
+                this.start = start;
+                this.oldStart = oldStart;
+                this.children = children(node).iterator();
+            }
+        }
+
+        /**
+         * Generate the DOT representation of the tree starting from the given node, with an
+         * explicit stack of the nodes being rendered so the depth of the tree does not
+         * matter. A clean subtree whose previous fragment is known is copied instead of
+         * rendered.
+         *
+         * @param node     the starting node
+         * @param sb       the StringBuilder to append the DOT representation to
+         * @param oldStart the offset of the previous fragment of the node, or -1 if unknown
+         * @return the fragment of the node, whose start must be set by the caller
+         */
+        private DotFragment toDot(Position<E> node, StringBuilder sb, int oldStart) {
+            Deque<DotFrame> stack = new ArrayDeque<>();
+            DotFragment top = enterDot(node, sb, oldStart, stack);
+            while (!stack.isEmpty()) {
+                DotFrame frame = stack.peek();
+                if (frame.children.hasNext()) {
+                    Position<E> child = frame.children.next();
+                    sb.append("\"").append(frame.node.getElement()).append("\" -> \"").append(child.getElement()).append("\";\n");
+                    DotFragment childFragment = fragments.get(child);
+                    int childOldStart = (frame.oldStart >= 0 && childFragment != null) ? frame.oldStart + childFragment.start : -1;
+                    int childStart = sb.length();
+                    enterDot(child, sb, childOldStart, stack).start = childStart - frame.start;
+                } else {
+                    stack.pop();
+                    frame.fragment.length = sb.length() - frame.start;
+                    frame.fragment.dirty = false;
+                }
+            }
+            return top;
+        }
+
+        /**
+         * Copies the previous fragment of a node if it is clean and known, and otherwise
+         * pushes the node so its children are rendered.
+         */
+        private DotFragment enterDot(Position<E> node, StringBuilder sb, int oldStart, Deque<DotFrame> stack) {
+            DotFragment fragment = fragments.get(node);
+            if (fragment != null && !fragment.dirty && oldStart >= 0) {
+                sb.append(lastDot, oldStart, oldStart + fragment.length);
+                return fragment;
+            }
+            if (fragment == null) {
+                fragment = new DotFragment();
+                fragments.put(node, fragment);
+            }
+            stack.push(new DotFrame(node, fragment, sb.length(), oldStart));
+            return fragment;
+        }
+
+        /**
+         * Generate a level-of-detail DOT representation of the tree, that Graphviz can lay
+         * out quickly whatever the size of the tree.
+         *
+         * @param maxDepth the maximum depth of the rendered nodes
+         * @param maxNodes the maximum number of rendered nodes of the tree
+         * @return a string representing the tree in the DOT format
+         * @see #toDot(Position, int, int)
+         */
+        public String toDot(int maxDepth, int maxNodes) {
+            return isEmpty() ? DOT_HEADER + "}" : toDot(root(), maxDepth, maxNodes);
+        }
+
+        /**
+         * Generate a level-of-detail DOT representation of the tree around a node.
+         * <p>
+         * The subtree of the focused node is rendered breadth-first, down to maxDepth
+         * levels below it and until maxNodes nodes have been rendered. Every elided part
+         * collapses into a dashed summary node labelled with its number of nodes, such as
+         * "+12,345 nodes": the subtree of a node that is not expanded, or the remaining
+         * children of a node when the budget runs out. Up to maxDepth ancestors of the
+         * focused node are rendered as context, each with a summary of its other
+         * children, and a last summary stands for the rest of the tree.
+         * <p>
+         * The work is proportional to the rendered nodes, as long as
+         * {@link #subtreeSize(Position)} is answered in constant time. Unlike
+         * {@link #toDot()}, nodes are identified by number and labelled with their
+         * element, so equal elements are drawn as different nodes.
+         *
+         * @param focus    the node at the center of the rendering
+         * @param maxDepth the maximum number of levels rendered below and above the focus
+         * @param maxNodes the maximum number of rendered nodes below the focus
+         * @return a string representing the tree in the DOT format
+         */
+        public String toDot(Position<E> focus, int maxDepth, int maxNodes) {
+            if (maxDepth < 0 || maxNodes < 1) {
+                throw new RuntimeException("The limits are invalid");
+            }
+            LevelOfDetailDot dot = new LevelOfDetailDot();
+
+            // Context: the ancestors of the focus, with their other children collapsed.
+            String focusId = dot.node(focus.getElement(), true);
+            String below = focusId;
+            Position<E> child = focus;
+            for (int level = 0; level < maxDepth && !isRoot(child); level++) {
+                Position<E> ancestor = parent(child);
+                String id = dot.node(ancestor.getElement(), false);
+                dot.edge(id, below);
+                long others = subtreeSize(ancestor) - 1 - subtreeSize(child);
+                if (others > 0) {
+                    dot.edge(id, dot.summary(others));
+                }
+                below = id;
+                child = ancestor;
+            }
+            if (!isRoot(child)) {
+                dot.edge(dot.summary(subtreeSize(root()) - subtreeSize(child)), below);
+            }
+
+            // The subtree of the focus, breadth-first within the limits.
+            Deque<Position<E>> queue = new ArrayDeque<>();
+            Deque<String> ids = new ArrayDeque<>();
+            Deque<Integer> depths = new ArrayDeque<>();
+            queue.add(focus);
+            ids.add(focusId);
+            depths.add(0);
+            int budget = maxNodes - 1;
+            while (!queue.isEmpty()) {
+                Position<E> node = queue.poll();
+                String id = ids.poll();
+                int depth = depths.poll();
+                long elided = subtreeSize(node) - 1;
+                if (depth < maxDepth) {
+                    for (Position<E> c : children(node)) {
+                        if (budget == 0) {
+                            break;
+                        }
+                        budget--;
+                        String childId = dot.node(c.getElement(), false);
+                        dot.edge(id, childId);
+                        elided -= subtreeSize(c);
+                        queue.add(c);
+                        ids.add(childId);
+                        depths.add(depth + 1);
+                    }
+                }
+                if (elided > 0) {
+                    dot.edge(id, dot.summary(elided));
+                }
+            }
+            return dot.toString();
+        }
+
+        /**
+         * Builds the DOT output of {@link #toDot(Position, int, int)}, numbering the nodes.
+         */
+        private static class LevelOfDetailDot {
+            private final StringBuilder sb = new StringBuilder(DOT_HEADER);
+            private int count;
+
+            private String node(Object element, boolean focus) {
+                String id = "n" + count++;
+                sb.append(id).append(" [label=\"");
+                String label = String.valueOf(element);
+                for (int i = 0; i < label.length(); i++) {
+                    char c = label.charAt(i);
+                    if (c == '"' || c == '\\') {
+                        sb.append('\\');
+                    }
+                    sb.append(c);
+                }
+                sb.append(focus ? "\", style=bold];\n" : "\"];\n");
+                return id;
+            }
+
+            private String summary(long nodes) {
+                String id = "n" + count++;
+                sb.append(id).append(String.format(Locale.ROOT, " [label=\"+%,d nodes\", shape=box, style=dashed];\n", nodes));
+                return id;
+            }
+
+            private void edge(String from, String to) {
+                sb.append(from).append(" -> ").append(to).append(";\n");
+            }
+
+            @Override
+            public String toString() {
+                return sb + "}";
+            }
         }
 
+        /**
+         * Marks the DOT fragments of a node and its ancestors as dirty, so they are
+         * rendered again by the next call to {@link #toDot()}. Implementations must call
+         * it whenever the element or the children of a node change.
+         *
+         * @param p the node that has changed
+         */
+        protected void invalidateDot(Position<E> p) {
+            if (!cacheDot) {
+                views.changes++;
+                return;
+            }
+            // A missing fragment does not stop the walk: the cache holds its keys weakly,
+            // so the fragment of a node may be gone while the ones of its ancestors are not.
+            while (p != null && !fragments.isEmpty()) {
+                DotFragment fragment = fragments.get(p);
+                if (fragment != null) {
+                    if (fragment.dirty) {
+                        return;
+                    }
+                    fragment.dirty = true;
+                }
+                p = parent(p);
+            }
+        }
 
         /**
-         * Recursively generate the DOT representation of the tree starting from the given node.
+         * Forgets the DOT fragments of a whole subtree. Implementations must call it for
+         * nodes that are moved under a new parent, because the offsets of their previous
+         * fragments are no longer meaningful.
          *
-         * @param node the starting node
-         * @param sb   the StringBuilder to append the DOT representation to
+         * @param p the root of the subtree
          */
-        private void toDot(Position<E> node, StringBuilder sb) {
-            for (Position<E> child : children(node)) {
-                sb.append("\"").append(node.getElement()).append("\" -> \"").append(child.getElement()).append("\";\n");
-                toDot(child, sb);
+        protected void discardDot(Position<E> p) {
+            if (fragments.isEmpty()) {
+                return;
+            }
+            Deque<Position<E>> stack = new ArrayDeque<>();
+            stack.push(p);
+            while (!stack.isEmpty()) {
+                Position<E> node = stack.pop();
+                if (fragments.remove(node) != null) {
+                    for (Position<E> child : children(node)) {
+                        stack.push(child);
+                    }
+                }
             }
         }
 
@@ -52,13 +394,150 @@ import java.nio.file.Paths;
             return filePath;
         }
 
+        /**
+         * Stream the DOT representation of the tree to a file, without building it as a
+         * String first. The output is the same as {@link #toDot()}.
+         *
+         * @param fileName the name of the file to save the DOT representation to
+         * @throws IOException if there is an error writing to the file
+         * @return a string with the absolute path of the file
+         */
+        public String writeDotToFile(String fileName) throws IOException {
+            return export(fileName, TreeTextExporter::writeDot);
+        }
+
+        /**
+         * Stream the tree to a file in Newick format.
+         *
+         * @param fileName the name of the file
+         * @throws IOException if there is an error writing to the file
+         * @return a string with the absolute path of the file
+         */
+        public String saveNewickToFile(String fileName) throws IOException {
+            return export(fileName, TreeTextExporter::writeNewick);
+        }
+
+        /**
+         * Stream the tree to a file as an indented outline.
+         *
+         * @param fileName the name of the file
+         * @throws IOException if there is an error writing to the file
+         * @return a string with the absolute path of the file
+         */
+        public String saveOutlineToFile(String fileName) throws IOException {
+            return export(fileName, TreeTextExporter::writeOutline);
+        }
+
+        /**
+         * Writes the tree to a file in the working directory through a FileChannel.
+         */
+        private String export(String fileName, Exporter<E> exporter) throws IOException {
+            String filePath = System.getProperty("user.dir") + "/" + fileName;
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                exporter.write(this, channel);
+            }
+            return filePath;
+        }
+
+        private interface Exporter<T> {
+            void write(Tree<T> tree, WritableByteChannel channel) throws IOException;
+        }
+
+        /**
+         * Writes the DOT representation of the subtree of every given node to a new file
+         * in the working directory. The files are written concurrently on the common
+         * fork/join pool, and every subtree is streamed from this tree through a buffered
+         * FileChannel, without building its subTree or its text. The output of a node is
+         * the same as {@code subTree(p).toDot()}.
+         * <p>
+         * Every file is named after the prefix, the current time and a sequence number,
+         * and is only created if it does not exist yet, so exports never overwrite each
+         * other, even in the same millisecond. If a file cannot be written, the files of
+         * the other nodes are still written.
+         *
+         * @param roots  the roots of the subtrees
+         * @param prefix the prefix of the file names
+         * @throws IOException if a file cannot be written
+         * @return the absolute paths of the files, in the order of the roots
+         */
+        public List<String> writeDotFiles(Collection<? extends Position<E>> roots, String prefix) throws IOException {
+            List<ExportTask> tasks = new ArrayList<>(roots.size());
+            for (Position<E> p : roots) {
+                tasks.add(new ExportTask(p, prefix));
+            }
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            List<String> paths = new ArrayList<>(tasks.size());
+            for (ExportTask task : tasks) {
+                if (task.error != null) {
+                    throw task.error;
+                }
+                paths.add(task.path);
+            }
+            return paths;
+        }
+
+        /**
+         * Writes the DOT file of one subtree.
+         */
+        @SuppressWarnings("serial")
+        private class ExportTask extends RecursiveAction {
+            private final Position<E> root;
+            private final String prefix;
+            private String path;
+            private IOException error;
+
+            public ExportTask(Position<E> root, String prefix) {
+                this.root = root;
+                this.prefix = prefix;
+            }
+
+            @Override
+            protected void compute() {
+                try {
+                    path = writeNewDotFile(prefix, (tree, channel) -> TreeTextExporter.writeDot(tree, root, channel));
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+        }
+
+        /**
+         * Writes a new file in the working directory, named after a prefix, the current
+         * time and a sequence number, with the extension .dot. The file is only created if
+         * it does not exist yet, so two exports never get the same file, even from
+         * different threads in the same millisecond or from different processes.
+         *
+         * @return the absolute path of the file
+         */
+        private String writeNewDotFile(String prefix, Exporter<E> exporter) throws IOException {
+            while (true) {
+                String filePath = System.getProperty("user.dir") + "/" + prefix
+                        + System.currentTimeMillis() + "-" + SEQUENCE.getAndIncrement() + ".dot";
+                FileChannel channel;
+                try {
+                    channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE);
+                } catch (FileAlreadyExistsException e) {
+                    continue;
+                }
+                try (channel) {
+                    exporter.write(this, channel);
+                }
+                return filePath;
+            }
+        }
+
         /**
          * Generate an image using the dot generate by the saveDotToFile method.
          */
 
         public void generateImage() {
-            var timestamp = System.currentTimeMillis();
-            generateImage("tree" + timestamp);
+            try {
+                runDot(writeNewDotFile("tree", TreeTextExporter::writeDot));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
 
 
@@ -68,11 +547,35 @@ import java.nio.file.Paths;
 
         public void generateImage(String name) {
             try {
-                String filePath = "\"" + saveDotToFile(name + ".dot");
-                String[] cmd = {"dot", "-Tpng", filePath + "\"", "-o", filePath + ".png\""};
-                Runtime.getRuntime().exec(cmd);
+                runDot(saveDotToFile(name + ".dot"));
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
+
+        /**
+         * Generate an image of a level-of-detail rendering of the tree around a node,
+         * that stays small and fast to lay out whatever the size of the tree.
+         *
+         * @param name     the name of the files, without extension
+         * @param focus    the node at the center of the rendering
+         * @param maxDepth the maximum number of levels rendered below and above the focus
+         * @param maxNodes the maximum number of rendered nodes below the focus
+         * @see #toDot(Position, int, int)
+         */
+        public void generateImage(String name, Position<E> focus, int maxDepth, int maxNodes) {
+            try {
+                String filePath = System.getProperty("user.dir") + "/" + name + ".dot";
+                Files.write(Paths.get(filePath), toDot(focus, maxDepth, maxNodes).getBytes());
+                runDot(filePath);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void runDot(String dotFile) throws IOException {
+            String filePath = "\"" + dotFile;
+            String[] cmd = {"dot", "-Tpng", filePath + "\"", "-o", filePath + ".png\""};
+            Runtime.getRuntime().exec(cmd);
+        }
     }
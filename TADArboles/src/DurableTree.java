@@ -0,0 +1,894 @@
+import material.Position;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+
+/**
+ * A tree whose mutations are written to an append-only log, so it can be recovered
+ * after a restart.
+ * <p>
+ * Every addRoot, add, remove, replace, swapElements and attach is applied to the
+ * wrapped tree and appended to the log of a directory. Nodes are identified in the log
+ * by their index in pre-order (see {@link NAryTree#rank(Position)}), and elements are
+ * stored as text through an encoder and a decoder.
+ * <p>
+ * The log is written by a background thread with group commit: the records of all the
+ * mutations made while the previous write was in progress, or during the commit delay,
+ * are written and forced to disk together. Mutations return before their record is on
+ * disk; {@link #commit()} waits until every previous mutation is durable.
+ * <p>
+ * Every {@link #setSnapshotInterval(long) snapshot interval} records a copy of the tree
+ * is written to a snapshot in the background and the older log files are deleted, so
+ * {@link #open} only loads the last snapshot and replays the log written after it. A
+ * record cut by a crash at the end of the log is ignored.
+ * <p>
+ * Like the wrapped trees, it supports a single writer. Positions are the ones of the
+ * wrapped tree, which must not be changed directly.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public class DurableTree<E> extends DrawableTree<E> implements Closeable {
+
+    /** Default number of logged mutations between two automatic snapshots. */
+    public static final long DEFAULT_SNAPSHOT_INTERVAL = 1_000_000;
+
+    /** Default time, in milliseconds, the log waits to gather mutations in one write. */
+    public static final long DEFAULT_COMMIT_DELAY = 2;
+
+    private static final String SNAPSHOT = "snapshot";
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final NAryTree<E> tree;
+    private final Path directory;
+    private final Function<E, String> encoder;
+    private final Thread committer;
+
+    // Shared with the committer thread, guarded by lock.
+    private final Object lock = new Object();
+    private StringBuilder pending = new StringBuilder();
+    private long appended;
+    private long durable;
+    private int waiting;
+    private boolean rotateRequested;
+    private boolean closed;
+    private IOException failure;
+    private long generation;
+
+    // Only used by the committer thread once it is started.
+    private FileChannel channel;
+    private ChannelCharWriter writer;
+
+    private volatile long commitDelay = DEFAULT_COMMIT_DELAY;
+    private long snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+    private long sinceSnapshot;
+    private CompletableFuture<Void> snapshotting = CompletableFuture.completedFuture(null);
+
+    private DurableTree(Path directory, NAryTree<E> tree, Function<E, String> encoder, long generation) throws IOException {
+        this.directory = directory;
+        this.tree = tree;
+        this.encoder = encoder;
+        openLog(generation);
+        committer = new Thread(this::commitLoop, "DurableTree committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Opens a durable tree of strings.
+     *
+     * @param directory the directory of the snapshot and the log, created if it does not exist
+     * @param tree      the empty tree that is recovered and wrapped
+     * @return the durable tree
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static DurableTree<String> open(Path directory, NAryTree<String> tree) throws IOException {
+        return open(directory, tree, Function.identity(), Function.identity());
+    }
+
+    /**
+     * Opens a durable tree. The last snapshot of the directory is loaded into the tree
+     * and the log written after it is replayed, so the tree is left as it was after the
+     * last durable mutation.
+     *
+     * @param directory the directory of the snapshot and the log, created if it does not exist
+     * @param tree      the empty tree that is recovered and wrapped
+     * @param encoder   converts an element to text
+     * @param decoder   converts the text back to the element
+     * @param <E>       the type of elements stored in the tree
+     * @return the durable tree
+     * @throws IOException      if the directory cannot be read or written
+     * @throws RuntimeException if the tree is not empty or the files are corrupt
+     */
+    public static <E> DurableTree<E> open(Path directory, NAryTree<E> tree, Function<E, String> encoder,
+                                          Function<String, E> decoder) throws IOException {
+        if (tree == null || !tree.isEmpty()) {
+            throw new RuntimeException("The tree must be empty");
+        }
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_TMP));
+        long next = 0;
+        Path snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            next = readSnapshot(snapshot, tree, decoder);
+        }
+        for (long segment : logs(directory)) {
+            if (segment < next) {
+                Files.delete(logPath(directory, segment));
+            } else {
+                replay(logPath(directory, segment), tree, decoder);
+                next = segment + 1;
+            }
+        }
+        return new DurableTree<>(directory, tree, encoder, next);
+    }
+
+    /**
+     * Sets the number of logged mutations between two automatic snapshots.
+     *
+     * @param records the number of records, or 0 to take snapshots only on demand
+     */
+    public void setSnapshotInterval(long records) {
+        if (records < 0) {
+            throw new RuntimeException("The interval is invalid");
+        }
+        this.snapshotInterval = records;
+    }
+
+    /**
+     * Sets the time the log waits to gather the following mutations in the same write.
+     * Longer delays write more records per disk flush.
+     *
+     * @param millis the delay in milliseconds
+     */
+    public void setCommitDelay(long millis) {
+        if (millis < 0) {
+            throw new RuntimeException("The delay is invalid");
+        }
+        this.commitDelay = millis;
+    }
+
+    /**
+     * Waits until every mutation made so far is on disk.
+     *
+     * @throws UncheckedIOException if the log cannot be written
+     */
+    public void commit() {
+        synchronized (lock) {
+            long target = appended;
+            waiting++;
+            lock.notifyAll();
+            try {
+                while (durable < target && failure == null) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while committing the log");
+            } finally {
+                waiting--;
+            }
+            checkFailure();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current tree and deletes the log written before it. The
+     * tree is copied with {@link NAryTree#deepCopy()} and can be changed while the copy
+     * is written.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        try {
+            startSnapshot().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Commits the log and closes it. The wrapped tree can still be read.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            snapshotting.join();
+        } catch (CompletionException e) {
+            // The log is kept when a snapshot fails, so nothing is lost.
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @Override
+    public Position<E> addRoot(E e) {
+        checkOpen();
+        Position<E> root = tree.addRoot(e);
+        log(element(record('R'), e));
+        return root;
+    }
+
+    @Override
+    public Position<E> add(E element, Position<E> p) {
+        checkOpen();
+        Position<E> node = tree.add(element, p);
+        log(element(record('A', tree.rank(p)), element));
+        return node;
+    }
+
+    @Override
+    public Position<E> add(E element, Position<E> p, int n) {
+        checkOpen();
+        Position<E> node = tree.add(element, p, n);
+        log(element(record('I', tree.rank(p), n), element));
+        return node;
+    }
+
+    @Override
+    public void swapElements(Position<E> p1, Position<E> p2) {
+        checkOpen();
+        tree.swapElements(p1, p2);
+        log(record('S', tree.rank(p1), tree.rank(p2)));
+    }
+
+    @Override
+    public E replace(Position<E> p, E e) {
+        checkOpen();
+        E old = tree.replace(p, e);
+        log(element(record('P', tree.rank(p)), e));
+        return old;
+    }
+
+    @Override
+    public void remove(Position<E> p) {
+        checkOpen();
+        int rank = tree.rank(p);
+        tree.remove(p);
+        log(record('D', rank));
+    }
+
+    /**
+     * Returns a read-only view of a subtree, since changing it would bypass the log.
+     */
+    @Override
+    public NAryTree<E> subTree(Position<E> v) {
+        return new ReadOnlyTreeView<>(tree.subTree(v));
+    }
+
+    /**
+     * Attaches a tree of the same type as the wrapped one. The nodes that the wrapped
+     * tree adds below p are logged, so the record does not depend on how it attaches.
+     */
+    @Override
+    public void attach(Position<E> p, NAryTree<E> t) {
+        checkOpen();
+        int rank = tree.rank(p);
+        int before = 0;
+        for (Position<E> ignored : tree.children(p)) {
+            before++;
+        }
+        tree.attach(p, t);
+        StringBuilder nodes = new StringBuilder();
+        int lines = 0;
+        int i = 0;
+        for (Position<E> child : tree.children(p)) {
+            if (i++ >= before) {
+                lines += tree.subtreeSize(child);
+                appendNodes(tree, child, nodes, null);
+            }
+        }
+        StringBuilder record = record('T', rank, lines);
+        if (lines > 0) {
+            record.append('\n').append(nodes, 0, nodes.length() - 1);
+        }
+        log(record);
+    }
+
+    /**
+     * Returns a copy of a subtree that is not logged.
+     */
+    @Override
+    public NAryTree<E> copySubtree(Position<E> v) {
+        return tree.copySubtree(v);
+    }
+
+    /**
+     * Returns a copy of the tree that is not logged.
+     */
+    @Override
+    public NAryTree<E> deepCopy() {
+        return tree.deepCopy();
+    }
+
+    @Override
+    public void addListener(TreeListener<E> listener) {
+        tree.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(TreeListener<E> listener) {
+        tree.removeListener(listener);
+    }
+
+    @Override
+    public void setListenerExecutor(Executor executor) {
+        tree.setListenerExecutor(executor);
+    }
+
+    /**
+     * Returns the DOT representation of the wrapped tree. The mutations are applied to
+     * the wrapped tree, so this tree keeps no DOT cache of its own.
+     */
+    @Override
+    public String toDot() {
+        return tree instanceof DrawableTree ? ((DrawableTree<E>) tree).toDot() : renderDot();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tree.isEmpty();
+    }
+
+    @Override
+    public Position<E> root() {
+        return tree.root();
+    }
+
+    @Override
+    public Position<E> parent(Position<E> v) {
+        return tree.parent(v);
+    }
+
+    @Override
+    public Iterable<? extends Position<E>> children(Position<E> v) {
+        return tree.children(v);
+    }
+
+    @Override
+    public TreeCursor<E> cursor(Position<E> v) {
+        return tree.cursor(v);
+    }
+
+    @Override
+    public boolean isInternal(Position<E> v) {
+        return tree.isInternal(v);
+    }
+
+    @Override
+    public boolean isLeaf(Position<E> v) {
+        return tree.isLeaf(v);
+    }
+
+    @Override
+    public boolean isRoot(Position<E> v) {
+        return tree.isRoot(v);
+    }
+
+    @Override
+    public int structuralHash(Position<E> p) {
+        return tree.structuralHash(p);
+    }
+
+    @Override
+    public int subtreeSize(Position<E> v) {
+        return tree.subtreeSize(v);
+    }
+
+    public int size() {
+        return isEmpty() ? 0 : tree.subtreeSize(tree.root());
+    }
+
+    @Override
+    public Iterator<Position<E>> iterator() {
+        return tree.iterator();
+    }
+
+    private void checkOpen() {
+        synchronized (lock) {
+            if (closed) {
+                throw new RuntimeException("The tree is closed");
+            }
+            checkFailure();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * Queues a record for the committer thread and starts a snapshot when it is due.
+     */
+    private void log(StringBuilder record) {
+        synchronized (lock) {
+            boolean wake = pending.length() == 0;
+            pending.append(record).append('\n');
+            appended++;
+            if (wake) {
+                lock.notifyAll();
+            }
+        }
+        if (snapshotInterval > 0 && ++sinceSnapshot >= snapshotInterval && snapshotting.isDone()) {
+            startSnapshot();
+        }
+    }
+
+    private static StringBuilder record(char kind, int... numbers) {
+        StringBuilder record = new StringBuilder().append(kind);
+        for (int number : numbers) {
+            record.append(' ').append(number);
+        }
+        return record;
+    }
+
+    private StringBuilder element(StringBuilder record, E element) {
+        record.append(' ');
+        appendElement(record, element);
+        return record;
+    }
+
+    /**
+     * Appends an element as '!' for null, or '=' followed by its text with backslashes
+     * and line breaks escaped, so every record fits in one line.
+     */
+    private void appendElement(StringBuilder out, E element) {
+        if (element == null) {
+            out.append('!');
+            return;
+        }
+        String text = encoder.apply(element);
+        out.append('=');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    private static <E> E parseElement(String field, Function<String, E> decoder) {
+        if (field.equals("!")) {
+            return null;
+        }
+        if (!field.startsWith("=")) {
+            throw new RuntimeException("The element is corrupt: " + field);
+        }
+        StringBuilder text = new StringBuilder(field.length());
+        for (int i = 1; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                text.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                text.append(c);
+            }
+        }
+        return decoder.apply(text.toString());
+    }
+
+    /**
+     * Appends a subtree in pre-order, one line per node with its number of children and
+     * its element. It walks the tree with an explicit stack, so deep trees are supported.
+     *
+     * @param full if not null, it receives the text every time it exceeds the buffer size
+     */
+    private void appendNodes(Tree<E> source, Position<E> root, StringBuilder out, Consumer<StringBuilder> full) {
+        Deque<Iterator<? extends Position<E>>> stack = new ArrayDeque<>();
+        appendNode(source, root, out);
+        stack.push(source.children(root).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<? extends Position<E>> children = stack.peek();
+            if (!children.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            Position<E> child = children.next();
+            appendNode(source, child, out);
+            stack.push(source.children(child).iterator());
+            if (full != null && out.length() >= ChannelCharReader.BUFFER_SIZE) {
+                full.accept(out);
+            }
+        }
+    }
+
+    private void appendNode(Tree<E> source, Position<E> node, StringBuilder out) {
+        int children = 0;
+        for (Position<E> ignored : source.children(node)) {
+            children++;
+        }
+        out.append(children).append(' ');
+        appendElement(out, node.getElement());
+        out.append('\n');
+    }
+
+    /**
+     * Adds the nodes read from a sequence of lines written by appendNodes. Top-level
+     * nodes become the root, if parent is null, or the last children of parent.
+     */
+    private static <E> void buildNodes(NAryTree<E> tree, Position<E> parent, int count, Iterator<String> lines,
+                                       Function<String, E> decoder) {
+        Deque<Position<E>> parents = new ArrayDeque<>();
+        Deque<int[]> left = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            if (!lines.hasNext()) {
+                throw new RuntimeException("The list of nodes is incomplete");
+            }
+            String line = lines.next();
+            int space = line.indexOf(' ');
+            if (space < 0) {
+                throw new RuntimeException("The node is corrupt: " + line);
+            }
+            int children = Integer.parseInt(line.substring(0, space));
+            E element = parseElement(line.substring(space + 1), decoder);
+            while (!left.isEmpty() && left.peek()[0] == 0) {
+                left.pop();
+                parents.pop();
+            }
+            Position<E> p = parents.isEmpty() ? parent : parents.peek();
+            Position<E> node = p == null ? tree.addRoot(element) : tree.add(element, p);
+            if (!left.isEmpty()) {
+                left.peek()[0]--;
+            }
+            if (children > 0) {
+                parents.push(node);
+                left.push(new int[]{children});
+            }
+        }
+    }
+
+    /**
+     * Loads a snapshot into an empty tree.
+     *
+     * @return the first log file written after the snapshot
+     */
+    private static <E> long readSnapshot(Path path, NAryTree<E> tree, Function<String, E> decoder) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ChannelCharReader reader = new ChannelCharReader(in);
+            String header = readLine(reader);
+            String[] fields = header == null ? new String[0] : header.split(" ");
+            if (fields.length != 3 || !fields[0].equals(SNAPSHOT)) {
+                throw new RuntimeException("The snapshot is corrupt");
+            }
+            Iterator<String> lines = new Iterator<String>() {
+                private String next = readNext();
+
+                private String readNext() {
+                    try {
+                        return readLine(reader);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public String next() {
+                    String line = next;
+                    next = readNext();
+                    return line;
+                }
+            };
+            buildNodes(tree, null, Integer.parseInt(fields[2]), lines, decoder);
+            return Long.parseLong(fields[1]);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeSnapshot(NAryTree<E> copy, long next) throws IOException {
+        Path tmp = directory.resolve(SNAPSHOT_TMP);
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelCharWriter snapshotWriter = new ChannelCharWriter(out);
+            int size = copy.isEmpty() ? 0 : copy.subtreeSize(copy.root());
+            snapshotWriter.append(SNAPSHOT + " " + next + " " + size + "\n");
+            if (!copy.isEmpty()) {
+                // Written in chunks so the text of the whole tree is never in memory.
+                StringBuilder chunk = new StringBuilder();
+                appendNodes(copy, copy.root(), chunk, full -> {
+                    try {
+                        snapshotWriter.append(full);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    full.setLength(0);
+                });
+                snapshotWriter.append(chunk);
+            }
+            snapshotWriter.finish();
+            out.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        for (long segment : logs(directory)) {
+            if (segment < next) {
+                Files.deleteIfExists(logPath(directory, segment));
+            }
+        }
+    }
+
+    /**
+     * Switches the log to a new file and writes the current tree to a snapshot in the
+     * background. The new file is the first one replayed after the snapshot.
+     */
+    private CompletableFuture<Void> startSnapshot() {
+        snapshotting.exceptionally(e -> null).join();
+        long next;
+        synchronized (lock) {
+            if (closed) {
+                throw new RuntimeException("The tree is closed");
+            }
+            long previous = generation;
+            rotateRequested = true;
+            lock.notifyAll();
+            try {
+                while (rotateRequested) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while taking a snapshot");
+            }
+            checkFailure();
+            if (generation == previous) {
+                throw new RuntimeException("The tree is closed");
+            }
+            next = generation;
+        }
+        sinceSnapshot = 0;
+        NAryTree<E> copy = tree.deepCopy();
+        snapshotting = CompletableFuture.runAsync(() -> {
+            try {
+                writeSnapshot(copy, next);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return snapshotting;
+    }
+
+    /**
+     * Body of the committer thread. It waits for records, gathers them during the commit
+     * delay unless someone is waiting in commit, and writes and forces them at once.
+     */
+    private void commitLoop() {
+        while (true) {
+            StringBuilder batch;
+            long end;
+            boolean rotate;
+            boolean stop;
+            synchronized (lock) {
+                try {
+                    while (pending.length() == 0 && !rotateRequested && !closed) {
+                        lock.wait();
+                    }
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commitDelay);
+                    long remaining;
+                    while (waiting == 0 && !rotateRequested && !closed
+                            && (remaining = deadline - System.nanoTime()) > 0) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    }
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                batch = pending;
+                pending = new StringBuilder();
+                end = appended;
+                rotate = rotateRequested;
+                stop = closed;
+            }
+            IOException error = null;
+            try {
+                if (batch.length() > 0) {
+                    writer.append(batch);
+                    writer.flush();
+                    channel.force(false);
+                }
+                if (rotate) {
+                    channel.close();
+                    openLog(generation + 1);
+                }
+                if (stop) {
+                    writer.finish();
+                    channel.close();
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            synchronized (lock) {
+                if (error != null) {
+                    if (failure == null) {
+                        failure = error;
+                    }
+                    stop = true;
+                } else {
+                    durable = end;
+                }
+                if (rotate || stop) {
+                    // A request made while this batch was written waits for the next one.
+                    rotateRequested = false;
+                }
+                lock.notifyAll();
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private void openLog(long segment) throws IOException {
+        channel = FileChannel.open(logPath(directory, segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writer = new ChannelCharWriter(channel);
+        synchronized (lock) {
+            generation = segment;
+        }
+    }
+
+    private static Path logPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%012d%s", LOG_PREFIX, segment, LOG_SUFFIX));
+    }
+
+    /**
+     * Returns the numbers of the log files of a directory, in ascending order.
+     */
+    private static List<Long> logs(Path directory) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a log file.
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Applies the records of a log file to a tree. It stops at a record cut by a crash.
+     */
+    private static <E> void replay(Path path, NAryTree<E> tree, Function<String, E> decoder) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ChannelCharReader reader = new ChannelCharReader(in);
+            String line;
+            while ((line = readLine(reader)) != null) {
+                try {
+                    if (!apply(tree, line, reader, decoder)) {
+                        return;
+                    }
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    throw new RuntimeException("The log is corrupt: " + line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a record to a tree.
+     *
+     * @return false if the record is incomplete
+     */
+    private static <E> boolean apply(NAryTree<E> tree, String line, ChannelCharReader reader,
+                                     Function<String, E> decoder) throws IOException {
+        String[] fields;
+        switch (line.charAt(0)) {
+            case 'R':
+                fields = line.split(" ", 2);
+                tree.addRoot(parseElement(fields[1], decoder));
+                break;
+            case 'A':
+                fields = line.split(" ", 3);
+                tree.add(parseElement(fields[2], decoder), tree.select(Integer.parseInt(fields[1])));
+                break;
+            case 'I':
+                fields = line.split(" ", 4);
+                tree.add(parseElement(fields[3], decoder), tree.select(Integer.parseInt(fields[1])),
+                        Integer.parseInt(fields[2]));
+                break;
+            case 'S':
+                fields = line.split(" ");
+                tree.swapElements(tree.select(Integer.parseInt(fields[1])), tree.select(Integer.parseInt(fields[2])));
+                break;
+            case 'P':
+                fields = line.split(" ", 3);
+                tree.replace(tree.select(Integer.parseInt(fields[1])), parseElement(fields[2], decoder));
+                break;
+            case 'D':
+                fields = line.split(" ");
+                tree.remove(tree.select(Integer.parseInt(fields[1])));
+                break;
+            case 'T':
+                fields = line.split(" ");
+                int count = Integer.parseInt(fields[2]);
+                List<String> nodes = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String node = readLine(reader);
+                    if (node == null) {
+                        return false;
+                    }
+                    nodes.add(node);
+                }
+                buildNodes(tree, tree.select(Integer.parseInt(fields[1])), count, nodes.iterator(), decoder);
+                break;
+            default:
+                throw new RuntimeException("The log is corrupt: " + line);
+        }
+        return true;
+    }
+
+    /**
+     * Reads a line without its line break.
+     *
+     * @return the line, or null at the end of the input or if the last line is incomplete
+     */
+    private static String readLine(ChannelCharReader reader) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c = reader.read();
+        while (c != '\n') {
+            if (c == -1) {
+                return null;
+            }
+            line.append((char) c);
+            c = reader.read();
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,833 @@
+import material.Position;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Many trees whose nodes live in one shared arena.
+ * <p>
+ * The nodes of all the trees of a forest are slots of the same arrays: slot i stores
+ * its element in elements[i], and the indices of its parent, first child, next sibling
+ * and last child and the number of nodes of its subtree in parallel int arrays. A
+ * thousand small trees are then a few arrays instead of a thousand sets of node
+ * objects scattered across the heap.
+ * <p>
+ * Because every tree uses the same arrays, moving a subtree between two trees of the
+ * forest relinks a few indices: {@link ForestTree#attach(Position, NAryTree)} and
+ * {@link #detach(Position)} do not copy any node. Removing a subtree, or releasing a
+ * whole tree with {@link #release(ForestTree)}, puts its slots on a free list that the
+ * next additions reuse, so dropping a tree costs no garbage collection work.
+ * <p>
+ * Positions are lightweight handles over a slot, created on demand, and two positions
+ * for the same node are equal. Every slot has a generation that is incremented when
+ * it is freed, so the position of a removed node is rejected by a field comparison
+ * even after its slot is reused. The debug checks, see {@link #setDebugChecks(boolean)},
+ * also check that a position belongs to the tree it is used with.
+ *
+ * @param <E> the type of elements stored in the trees
+ */
+public class Forest<E> implements Iterable<Position<E>> {
+
+    private static final int NONE = -1;
+
+    private Object[] elements;
+    private int[] parents;
+    private int[] firstChildren;
+    /** The next sibling of a node in use, or the next free slot of a free one. */
+    private int[] nextSiblings;
+    private int[] lastChildren;
+    /** The number of nodes of the subtree of a node in use, 0 for a free slot. */
+    private int[] counts;
+    private int[] generations;
+    /** The slots below this index have been used at least once. */
+    private int highWater;
+    private int free = NONE;
+    private int used;
+    private final Set<ForestTree> trees = new LinkedHashSet<>();
+    /** The trees of the forest by the slot of their root. */
+    private final Map<Integer, ForestTree> roots = new HashMap<>();
+    private boolean debugChecks = Forest.class.desiredAssertionStatus();
+
+    /**
+     * A node of the forest: the index of its slot and the generation of the slot when
+     * the node was created.
+     */
+    private class Slot implements Position<E> {
+        private final int index;
+        private final int generation;
+
+        public Slot(int index) {
+            this.index = index;
+            this.generation = generations[index];
+        }
+
+        @Override
+        public E getElement() {
+            if (generations[index] != generation) {
+                throw new RuntimeException("The position is invalid");
+            }
+            return element(index);
+        }
+
+        private Forest<E> getForest() {
+            return Forest.this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Forest.Slot)) {
+                return false;
+            }
+            Forest<?>.Slot other = (Forest<?>.Slot) o;
+            return other.getForest() == Forest.this && other.index == index && other.generation == generation;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * index + generation;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(element(index));
+        }
+    }
+
+    public Forest() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty forest.
+     *
+     * @param capacity the number of nodes the arena holds before it grows
+     */
+    public Forest(int capacity) {
+        capacity = Math.max(capacity, 1);
+        elements = new Object[capacity];
+        parents = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        lastChildren = new int[capacity];
+        counts = new int[capacity];
+        generations = new int[capacity];
+    }
+
+    /**
+     * Creates a new empty tree in the forest.
+     *
+     * @return the tree
+     */
+    public ForestTree newTree() {
+        ForestTree tree = new ForestTree(NONE, false);
+        trees.add(tree);
+        return tree;
+    }
+
+    /**
+     * Returns the trees of the forest, in the order they were created. The subtree views
+     * are not included.
+     *
+     * @return an unmodifiable collection of the trees
+     */
+    public Collection<ForestTree> trees() {
+        return Collections.unmodifiableCollection(trees);
+    }
+
+    /**
+     * Moves the subtree rooted at a node out of its tree, into a new tree of the forest.
+     * No node is copied.
+     *
+     * @param p the root of the subtree
+     * @return the new tree, rooted at p
+     */
+    public ForestTree detach(Position<E> p) {
+        int node = checkPosition(p);
+        cut(node);
+        ForestTree tree = newTree();
+        tree.setRoot(node);
+        return tree;
+    }
+
+    /**
+     * Removes a tree from the forest and frees all its nodes at once. The tree must not
+     * be used afterwards.
+     *
+     * @param tree the tree
+     */
+    public void release(ForestTree tree) {
+        if (tree.forest() != this || !trees.remove(tree)) {
+            throw new RuntimeException("The tree is invalid");
+        }
+        if (!tree.isEmpty()) {
+            freeSubtree(tree.root);
+        }
+        tree.setRoot(NONE);
+    }
+
+    /**
+     * Returns the number of nodes of all the trees of the forest.
+     *
+     * @return the number of nodes in use
+     */
+    public int size() {
+        return used;
+    }
+
+    /**
+     * Returns the number of slots of the arena, in use or free.
+     *
+     * @return the capacity of the arena
+     */
+    public int capacity() {
+        return elements.length;
+    }
+
+    /**
+     * Selects whether positions are also checked to belong to the tree they are used
+     * with, walking from the node to the root of the tree, in time proportional to its
+     * depth. They are on by default when assertions are enabled.
+     *
+     * @param debug whether the debug checks are done
+     */
+    public void setDebugChecks(boolean debug) {
+        this.debugChecks = debug;
+    }
+
+    /**
+     * Iterates every node of every tree of the forest, in the order of their slots. The
+     * iteration scans the arena, so it reads consecutive array entries.
+     */
+    @Override
+    public Iterator<Position<E>> iterator() {
+        return new Iterator<Position<E>>() {
+            private int next = skipFree(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < highWater;
+            }
+
+            @Override
+            public Position<E> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Slot slot = new Slot(next);
+                next = skipFree(next + 1);
+                return slot;
+            }
+        };
+    }
+
+    private int skipFree(int index) {
+        while (index < highWater && counts[index] == 0) {
+            index++;
+        }
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E element(int index) {
+        return (E) elements[index];
+    }
+
+    private int checkPosition(Position<E> p) {
+        if (!(p instanceof Forest.Slot)) {
+            throw new RuntimeException("The position is invalid");
+        }
+        Slot slot = (Slot) p;
+        if (slot.getForest() != this || generations[slot.index] != slot.generation) {
+            throw new RuntimeException("The position is invalid");
+        }
+        return slot.index;
+    }
+
+    /**
+     * Returns the registered tree whose root is the top of the tree of a node, or null
+     * if there is none.
+     */
+    private ForestTree treeOf(int node) {
+        while (parents[node] != NONE) {
+            node = parents[node];
+        }
+        return roots.get(node);
+    }
+
+    /**
+     * Takes a node out of the tree that contains it, which is notified as if it had been
+     * removed, and leaves it as a root that no tree uses. Its slots are not freed.
+     */
+    private void cut(int node) {
+        ForestTree from = treeOf(node);
+        Slot slot = new Slot(node);
+        if (parents[node] == NONE) {
+            if (from != null) {
+                from.fire(TreeEvent.Kind.REMOVED, slot, null);
+                from.setRoot(NONE);
+            }
+            return;
+        }
+        Slot parent = new Slot(parents[node]);
+        unlink(node);
+        if (from != null) {
+            from.fire(TreeEvent.Kind.REMOVED, slot, parent);
+        }
+        // After the event, so the synchronous listeners can still read the subtree.
+        parents[node] = NONE;
+    }
+
+    /**
+     * Takes a free slot, reusing a freed one if there is any, and fills it.
+     */
+    private int allocate(E element, int parent) {
+        int node;
+        if (free != NONE) {
+            node = free;
+            free = nextSiblings[node];
+        } else {
+            if (highWater == elements.length) {
+                grow();
+            }
+            node = highWater++;
+        }
+        elements[node] = element;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        lastChildren[node] = NONE;
+        counts[node] = 1;
+        used++;
+        return node;
+    }
+
+    private void grow() {
+        int capacity = 2 * elements.length;
+        elements = Arrays.copyOf(elements, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        lastChildren = Arrays.copyOf(lastChildren, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+    }
+
+    /**
+     * Frees every slot of a subtree, with an explicit stack, and clears its elements so
+     * they can be collected.
+     */
+    private void freeSubtree(int top) {
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+                stack.push(child);
+            }
+            elements[node] = null;
+            counts[node] = 0;
+            generations[node]++;
+            nextSiblings[node] = free;
+            free = node;
+            used--;
+        }
+    }
+
+    /**
+     * Appends a node, whose count is already computed, as the last child of another and
+     * adds its count to the ancestors.
+     */
+    private void link(int parent, int node) {
+        parents[node] = parent;
+        nextSiblings[node] = NONE;
+        if (lastChildren[parent] == NONE) {
+            firstChildren[parent] = node;
+        } else {
+            nextSiblings[lastChildren[parent]] = node;
+        }
+        lastChildren[parent] = node;
+        updateCounts(parent, counts[node]);
+    }
+
+    /**
+     * Unlinks a node that is not a root from its siblings and subtracts its count from
+     * the ancestors. Its parent is left as it is.
+     */
+    private void unlink(int node) {
+        int parent = parents[node];
+        int previous = NONE;
+        if (firstChildren[parent] == node) {
+            firstChildren[parent] = nextSiblings[node];
+        } else {
+            previous = firstChildren[parent];
+            while (nextSiblings[previous] != node) {
+                previous = nextSiblings[previous];
+            }
+            nextSiblings[previous] = nextSiblings[node];
+        }
+        if (lastChildren[parent] == node) {
+            lastChildren[parent] = previous;
+        }
+        nextSiblings[node] = NONE;
+        updateCounts(parent, -counts[node]);
+    }
+
+    private void updateCounts(int node, int delta) {
+        while (node != NONE) {
+            counts[node] += delta;
+            node = parents[node];
+        }
+    }
+
+    /**
+     * A tree of the forest, or a view of a subtree of one.
+     * <p>
+     * Its nodes are slots of the arena of the forest, so its subtrees are views that
+     * share them, and attaching another tree of the same forest moves its root instead
+     * of copying it.
+     * <p>
+     * Its positions are created on demand, so they can not be the keys of the DOT
+     * fragment cache, and {@link #toDot()} renders the whole tree on every call.
+     */
+    public class ForestTree extends DrawableTree<E> {
+
+        private int root = NONE;
+        private int rootGeneration;
+        private final boolean view;
+        private TreeEventSupport<E> events;
+
+        private ForestTree(int root, boolean view) {
+            this.view = view;
+            disableDotCache();
+            setRoot(root);
+        }
+
+        private void setRoot(int root) {
+            if (!view) {
+                roots.remove(this.root, this);
+                if (root != NONE) {
+                    roots.put(root, this);
+                }
+            }
+            this.root = root;
+            this.rootGeneration = root == NONE ? 0 : generations[root];
+        }
+
+        private Forest<E> forest() {
+            return Forest.this;
+        }
+
+        /**
+         * Returns the forest whose arena holds the nodes of this tree.
+         *
+         * @return the forest
+         */
+        public Forest<E> getForest() {
+            return Forest.this;
+        }
+
+        private int check(Position<E> p) {
+            int node = checkPosition(p);
+            if (debugChecks) {
+                int n = node;
+                while (n != root && n != NONE) {
+                    n = parents[n];
+                }
+                if (n == NONE || isEmpty()) {
+                    throw new RuntimeException("The position is invalid");
+                }
+            }
+            return node;
+        }
+
+        private void fire(TreeEvent.Kind kind, Position<E> p, Position<E> second) {
+            if (events != null && events.hasListeners()) {
+                events.fire(new TreeEvent<>(kind, p, second, null, null));
+            }
+        }
+
+        private void fire(TreeEvent.Kind kind, Position<E> p, E oldElement, E newElement) {
+            if (events != null && events.hasListeners()) {
+                events.fire(new TreeEvent<>(kind, p, null, oldElement, newElement));
+            }
+        }
+
+        @Override
+        public Position<E> addRoot(E e) {
+            if (!isEmpty()) {
+                throw new RuntimeException("The tree already has a root");
+            }
+            if (view) {
+                throw new RuntimeException("The tree is invalid");
+            }
+            setRoot(allocate(e, NONE));
+            Slot slot = new Slot(root);
+            fire(TreeEvent.Kind.ADDED, slot, null, e);
+            return slot;
+        }
+
+        @Override
+        public Position<E> add(E element, Position<E> p) {
+            int parent = check(p);
+            int node = allocate(element, parent);
+            link(parent, node);
+            return added(parent, node, element);
+        }
+
+        @Override
+        public Position<E> add(E element, Position<E> p, int n) {
+            int parent = check(p);
+            if (n < 0) {
+                throw new RuntimeException("The position is invalid");
+            }
+            int previous = NONE;
+            int next = firstChildren[parent];
+            for (int i = 0; i < n; i++) {
+                if (next == NONE) {
+                    throw new RuntimeException("The position is invalid");
+                }
+                previous = next;
+                next = nextSiblings[next];
+            }
+            int node = allocate(element, parent);
+            nextSiblings[node] = next;
+            if (previous == NONE) {
+                firstChildren[parent] = node;
+            } else {
+                nextSiblings[previous] = node;
+            }
+            if (next == NONE) {
+                lastChildren[parent] = node;
+            }
+            updateCounts(parent, 1);
+            return added(parent, node, element);
+        }
+
+        private Position<E> added(int parent, int node, E element) {
+            Slot slot = new Slot(node);
+            fire(TreeEvent.Kind.ADDED, slot, null, element);
+            return slot;
+        }
+
+        @Override
+        public void swapElements(Position<E> p1, Position<E> p2) {
+            int node1 = check(p1);
+            int node2 = check(p2);
+            Object element = elements[node1];
+            elements[node1] = elements[node2];
+            elements[node2] = element;
+            fire(TreeEvent.Kind.SWAPPED, p1, p2);
+        }
+
+        @Override
+        public E replace(Position<E> p, E e) {
+            int node = check(p);
+            E old = element(node);
+            elements[node] = e;
+            fire(TreeEvent.Kind.REPLACED, p, old, e);
+            return old;
+        }
+
+        /**
+         * Removes a node and its subtree, and frees their slots.
+         */
+        @Override
+        public void remove(Position<E> p) {
+            int node = check(p);
+            Slot parent = null;
+            if (parents[node] != NONE) {
+                parent = new Slot(parents[node]);
+                unlink(node);
+            }
+            fire(TreeEvent.Kind.REMOVED, p, parent);
+            // After the event, so the synchronous listeners can still read the subtree.
+            if (node == root) {
+                setRoot(NONE);
+            }
+            ForestTree owner = roots.get(node);
+            if (owner != null) {
+                owner.setRoot(NONE);
+            }
+            freeSubtree(node);
+        }
+
+        /**
+         * Returns a view of the subtree rooted at a node, which shares its slots.
+         */
+        @Override
+        public ForestTree subTree(Position<E> v) {
+            return new ForestTree(check(v), true);
+        }
+
+        /**
+         * Makes the root of another tree the last child of a node. The root of a tree of
+         * this forest is moved without copying, and that tree becomes empty; the nodes
+         * of any other tree are copied.
+         */
+        @Override
+        public void attach(Position<E> p, NAryTree<E> t) {
+            int parent = check(p);
+            if (t.isEmpty()) {
+                return;
+            }
+            int top;
+            if (t instanceof Forest.ForestTree && ((ForestTree) t).forest() == Forest.this) {
+                ForestTree tree = (ForestTree) t;
+                top = tree.root;
+                for (int n = parent; n != NONE; n = parents[n]) {
+                    if (n == top) {
+                        throw new RuntimeException("The tree is invalid");
+                    }
+                }
+                cut(top);
+                tree.setRoot(NONE);
+            } else {
+                top = copy(t, t.root(), NONE);
+            }
+            link(parent, top);
+            fire(TreeEvent.Kind.ATTACHED, p, null);
+        }
+
+        /**
+         * Copies the subtree of a node of any tree into new slots, with an explicit stack.
+         *
+         * @return the slot of the copy of the node
+         */
+        private int copy(Tree<E> source, Position<E> p, int parent) {
+            int top = allocate(p.getElement(), parent);
+            Deque<Position<E>> sources = new ArrayDeque<>();
+            Deque<Integer> copies = new ArrayDeque<>();
+            sources.push(p);
+            copies.push(top);
+            while (!sources.isEmpty()) {
+                Position<E> from = sources.pop();
+                int to = copies.pop();
+                for (Position<E> child : source.children(from)) {
+                    int copy = allocate(child.getElement(), NONE);
+                    link(to, copy);
+                    sources.push(child);
+                    copies.push(copy);
+                }
+            }
+            return top;
+        }
+
+        /**
+         * Copies the subtree rooted at a node into a new tree of the forest.
+         */
+        @Override
+        public ForestTree copySubtree(Position<E> v) {
+            check(v);
+            ForestTree tree = newTree();
+            tree.setRoot(copy(this, v, NONE));
+            return tree;
+        }
+
+        @Override
+        public ForestTree deepCopy() {
+            return isEmpty() ? newTree() : copySubtree(root());
+        }
+
+        @Override
+        public void addListener(TreeListener<E> listener) {
+            if (events == null) {
+                events = new TreeEventSupport<>();
+            }
+            events.addListener(listener);
+        }
+
+        @Override
+        public void removeListener(TreeListener<E> listener) {
+            if (events != null) {
+                events.removeListener(listener);
+            }
+        }
+
+        @Override
+        public void setListenerExecutor(Executor executor) {
+            if (events == null) {
+                events = new TreeEventSupport<>();
+            }
+            events.setExecutor(executor);
+        }
+
+        /**
+         * Returns whether the tree is empty. A subtree view becomes empty when its root
+         * is removed.
+         */
+        @Override
+        public boolean isEmpty() {
+            return root == NONE || generations[root] != rootGeneration;
+        }
+
+        public int size() {
+            return isEmpty() ? 0 : counts[root];
+        }
+
+        @Override
+        public int subtreeSize(Position<E> v) {
+            return counts[check(v)];
+        }
+
+        @Override
+        public Position<E> root() {
+            return isEmpty() ? null : new Slot(root);
+        }
+
+        @Override
+        public Position<E> parent(Position<E> v) {
+            int node = check(v);
+            return node == root || parents[node] == NONE ? null : new Slot(parents[node]);
+        }
+
+        @Override
+        public Iterable<? extends Position<E>> children(Position<E> v) {
+            int node = check(v);
+            return () -> new Iterator<Position<E>>() {
+                private int next = firstChildren[node];
+
+                @Override
+                public boolean hasNext() {
+                    return next != NONE;
+                }
+
+                @Override
+                public Position<E> next() {
+                    if (next == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    Slot child = new Slot(next);
+                    next = nextSiblings[next];
+                    return child;
+                }
+            };
+        }
+
+        @Override
+        public boolean isInternal(Position<E> v) {
+            return firstChildren[check(v)] != NONE;
+        }
+
+        @Override
+        public boolean isLeaf(Position<E> v) {
+            return firstChildren[check(v)] == NONE;
+        }
+
+        @Override
+        public boolean isRoot(Position<E> v) {
+            return check(v) == root;
+        }
+
+        /**
+         * Returns a cursor placed on a node, which moves over the indices of the arena
+         * without allocating.
+         */
+        @Override
+        public TreeCursor<E> cursor(Position<E> v) {
+            int start = check(v);
+            return new TreeCursor<E>() {
+                private int index = start;
+                private int depth = depthOf(start);
+
+                @Override
+                public boolean toParent() {
+                    if (index == root) {
+                        return false;
+                    }
+                    index = parents[index];
+                    depth--;
+                    return true;
+                }
+
+                @Override
+                public boolean toFirstChild() {
+                    if (firstChildren[index] == NONE) {
+                        return false;
+                    }
+                    index = firstChildren[index];
+                    depth++;
+                    return true;
+                }
+
+                @Override
+                public boolean toNextSibling() {
+                    if (index == root || nextSiblings[index] == NONE) {
+                        return false;
+                    }
+                    index = nextSiblings[index];
+                    return true;
+                }
+
+                @Override
+                public E element() {
+                    return Forest.this.element(index);
+                }
+
+                @Override
+                public int depth() {
+                    return depth;
+                }
+
+                @Override
+                public Position<E> position() {
+                    return new Slot(index);
+                }
+            };
+        }
+
+        private int depthOf(int node) {
+            int depth = 0;
+            while (node != root) {
+                node = parents[node];
+                depth++;
+            }
+            return depth;
+        }
+
+        /**
+         * Iterates the nodes in breadth-first order, lazily.
+         */
+        @Override
+        public Iterator<Position<E>> iterator() {
+            Deque<Integer> queue = new ArrayDeque<>();
+            if (!isEmpty()) {
+                queue.add(root);
+            }
+            return new Iterator<Position<E>>() {
+                @Override
+                public boolean hasNext() {
+                    return !queue.isEmpty();
+                }
+
+                @Override
+                public Position<E> next() {
+                    Integer node = queue.poll();
+                    if (node == null) {
+                        throw new NoSuchElementException();
+                    }
+                    for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+                        queue.add(child);
+                    }
+                    return new Slot(node);
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "ForestTree" + (isEmpty() ? "[]" : "[" + Objects.toString(element(root)) + ", " + size() + " nodes]");
+        }
+    }
+}
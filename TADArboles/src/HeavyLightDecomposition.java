@@ -0,0 +1,258 @@
+import material.Position;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * Heavy-light decomposition of a tree, to aggregate a numeric value of the elements
+ * along the path between two nodes.
+ * <p>
+ * The tree is split into chains, following from every node the child with the largest
+ * subtree. Every path crosses O(log n) chains, and the nodes of each chain are stored
+ * consecutively in a segment tree, so a path query costs O(log^2 n) and changing the
+ * value of a node costs O(log n).
+ * <p>
+ * The operation must be associative and commutative, as sum, max and min are. The
+ * decomposition is a snapshot of the shape of the tree: after adding or removing
+ * nodes it must be built again. Elements can be changed through
+ * {@link #replace(Position, Object)}, which also updates the tree.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public class HeavyLightDecomposition<E> {
+
+    private final NAryTree<E> tree;
+    private final ToDoubleFunction<E> value;
+    private final DoubleBinaryOperator operation;
+    private final double identity;
+
+    private final Map<Position<E>, Integer> indices = new HashMap<>();
+    private final int[] parent;
+    private final int[] depth;
+    private final int[] head;
+    private final Position<E>[] nodes;
+
+    /** Segment tree over the chain order: leaves in segment[n..2n-1]. */
+    private final double[] segment;
+
+    /**
+     * Builds the decomposition of a tree.
+     *
+     * @param tree      the tree
+     * @param value     extracts the numeric value of an element
+     * @param operation the associative and commutative operation that aggregates values
+     * @param identity  the identity of the operation
+     */
+    @SuppressWarnings("unchecked")
+    public HeavyLightDecomposition(NAryTree<E> tree, ToDoubleFunction<E> value,
+                                   DoubleBinaryOperator operation, double identity) {
+        this.tree = tree;
+        this.value = value;
+        this.operation = operation;
+        this.identity = identity;
+
+        int n = tree.isEmpty() ? 0 : tree.subtreeSize(tree.root());
+        this.parent = new int[n];
+        this.depth = new int[n];
+        this.head = new int[n];
+        this.nodes = (Position<E>[]) new Position<?>[n];
+        this.segment = new double[2 * n];
+        Arrays.fill(segment, identity);
+        if (n > 0) {
+            decompose();
+        }
+    }
+
+    /**
+     * Returns a decomposition that sums the values along paths.
+     */
+    public static <E> HeavyLightDecomposition<E> sum(NAryTree<E> tree, ToDoubleFunction<E> value) {
+        return new HeavyLightDecomposition<>(tree, value, Double::sum, 0);
+    }
+
+    /**
+     * Returns a decomposition that computes the maximum value along paths.
+     */
+    public static <E> HeavyLightDecomposition<E> max(NAryTree<E> tree, ToDoubleFunction<E> value) {
+        return new HeavyLightDecomposition<>(tree, value, Math::max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Returns a decomposition that computes the minimum value along paths.
+     */
+    public static <E> HeavyLightDecomposition<E> min(NAryTree<E> tree, ToDoubleFunction<E> value) {
+        return new HeavyLightDecomposition<>(tree, value, Math::min, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Splits the tree into heavy chains without recursion, so deep trees are supported.
+     * Every chain is walked from its head down its heavy children, and the light
+     * children found on the way are pushed as the heads of new chains. Nodes are
+     * numbered in that order, so every chain is a contiguous range of indices.
+     */
+    private void decompose() {
+        Deque<Position<E>> heads = new ArrayDeque<>();
+        Deque<Integer> headParents = new ArrayDeque<>();
+        heads.push(tree.root());
+        headParents.push(-1);
+        int next = 0;
+        while (!heads.isEmpty()) {
+            Position<E> node = heads.pop();
+            int parentIndex = headParents.pop();
+            int chainHead = next;
+            while (node != null) {
+                int index = next++;
+                indices.put(node, index);
+                nodes[index] = node;
+                head[index] = chainHead;
+                parent[index] = parentIndex;
+                depth[index] = parentIndex < 0 ? 0 : depth[parentIndex] + 1;
+                segment[nodes.length + index] = value.applyAsDouble(node.getElement());
+
+                // The heavy child is found again by its rank, since some trees return a
+                // new position object for the same node on every call.
+                Position<E> heavy = null;
+                int heavyRank = -1;
+                int heavySize = 0;
+                int rank = 0;
+                for (Position<E> child : tree.children(node)) {
+                    int size = tree.subtreeSize(child);
+                    if (size > heavySize) {
+                        heavy = child;
+                        heavyRank = rank;
+                        heavySize = size;
+                    }
+                    rank++;
+                }
+                rank = 0;
+                for (Position<E> child : tree.children(node)) {
+                    if (rank++ != heavyRank) {
+                        heads.push(child);
+                        headParents.push(index);
+                    }
+                }
+                parentIndex = index;
+                node = heavy;
+            }
+        }
+        for (int i = nodes.length - 1; i > 0; i--) {
+            segment[i] = operation.applyAsDouble(segment[2 * i], segment[2 * i + 1]);
+        }
+    }
+
+    private int checkPosition(Position<E> p) {
+        Integer index = indices.get(p);
+        if (index == null) {
+            throw new RuntimeException("The position is invalid");
+        }
+        return index;
+    }
+
+    /**
+     * Aggregates the values of the nodes in the path between two nodes, both included.
+     *
+     * @param u one end of the path
+     * @param v the other end of the path
+     * @return the aggregated value
+     */
+    public double query(Position<E> u, Position<E> v) {
+        int a = checkPosition(u);
+        int b = checkPosition(v);
+        double result = identity;
+        while (head[a] != head[b]) {
+            if (depth[head[a]] < depth[head[b]]) {
+                int aux = a;
+                a = b;
+                b = aux;
+            }
+            result = operation.applyAsDouble(result, querySegment(head[a], a));
+            a = parent[head[a]];
+        }
+        result = operation.applyAsDouble(result, querySegment(Math.min(a, b), Math.max(a, b)));
+        return result;
+    }
+
+    /**
+     * Aggregates the values of the nodes in the path from a node to the root, both included.
+     *
+     * @param u the node
+     * @return the aggregated value
+     */
+    public double queryToRoot(Position<E> u) {
+        return query(u, tree.root());
+    }
+
+    /**
+     * Returns the lowest common ancestor of two nodes in O(log n).
+     *
+     * @param u a node
+     * @param v another node
+     * @return the deepest node that is an ancestor of both
+     */
+    public Position<E> lowestCommonAncestor(Position<E> u, Position<E> v) {
+        int a = checkPosition(u);
+        int b = checkPosition(v);
+        while (head[a] != head[b]) {
+            if (depth[head[a]] < depth[head[b]]) {
+                b = parent[head[b]];
+            } else {
+                a = parent[head[a]];
+            }
+        }
+        return depth[a] < depth[b] ? nodes[a] : nodes[b];
+    }
+
+    /**
+     * Replaces the element of a node in the tree and updates its value.
+     *
+     * @param p the node
+     * @param e the new element
+     * @return the old element
+     */
+    public E replace(Position<E> p, E e) {
+        int index = checkPosition(p);
+        E old = tree.replace(p, e);
+        updateSegment(index, value.applyAsDouble(e));
+        return old;
+    }
+
+    /**
+     * Reads again the value of a node whose element was changed outside this class.
+     *
+     * @param p the node
+     */
+    public void update(Position<E> p) {
+        int index = checkPosition(p);
+        updateSegment(index, value.applyAsDouble(p.getElement()));
+    }
+
+    private void updateSegment(int i, double newValue) {
+        i += nodes.length;
+        segment[i] = newValue;
+        for (i /= 2; i > 0; i /= 2) {
+            segment[i] = operation.applyAsDouble(segment[2 * i], segment[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Aggregates the leaves between two indices of the segment tree, both included.
+     */
+    private double querySegment(int from, int to) {
+        double result = identity;
+        for (int l = from + nodes.length, r = to + nodes.length + 1; l < r; l /= 2, r /= 2) {
+            if ((l & 1) == 1) {
+                result = operation.applyAsDouble(result, segment[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = operation.applyAsDouble(result, segment[--r]);
+            }
+        }
+        return result;
+    }
+}
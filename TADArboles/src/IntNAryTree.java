@@ -0,0 +1,150 @@
+import material.Position;
+
+
+/**
+ * An n-ary tree whose elements are int values, stored unboxed in the nodes.
+ * <p>
+ * The primitive methods, such as {@link #add(int, Position)}, {@link #getInt(Position)},
+ * {@link #replace(Position, int)} and the cursor's {@link Cursor#intElement()}, read and
+ * write the int field of the node, so they never box and an element read does not follow
+ * a pointer to an Integer. The structure, the position checks and the boxed view are
+ * shared with LongNAryTree, see {@link PrimitiveNAryTree}.
+ */
+public class IntNAryTree extends PrimitiveNAryTree<Integer, IntNAryTree> {
+
+    private static final class IntNode extends Node<Integer> {
+        private int element;
+
+        private IntNode(int element) {
+            this.element = element;
+        }
+
+        @Override
+        public Integer getElement() {
+            return element;
+        }
+
+        @Override
+        protected Node<Integer> copy() {
+            return new IntNode(element);
+        }
+
+        @Override
+        protected void swapElement(Node<Integer> other) {
+            IntNode node = (IntNode) other;
+            int e = element;
+            element = node.element;
+            node.element = e;
+        }
+
+        @Override
+        protected Integer replaceElement(Integer e) {
+            int old = element;
+            element = unbox(e);
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            return Integer.toString(element);
+        }
+    }
+
+    public IntNAryTree() {
+    }
+
+    /**
+     * Creates a tree with the same shape and elements as another tree in linear time.
+     *
+     * @param source the tree to copy, which must not contain null elements
+     * @return the new tree
+     */
+    public static IntNAryTree copyOf(Tree<Integer> source) {
+        IntNAryTree tree = new IntNAryTree();
+        tree.copyFrom(source);
+        return tree;
+    }
+
+    private static int unbox(Integer element) {
+        if (element == null) {
+            throw new RuntimeException("The element is invalid");
+        }
+        return element;
+    }
+
+    @Override
+    protected IntNAryTree newTree() {
+        return new IntNAryTree();
+    }
+
+    @Override
+    protected Node<Integer> newNode(Integer element) {
+        return new IntNode(unbox(element));
+    }
+
+    /**
+     * Returns the element of a node without boxing it.
+     *
+     * @param p the node
+     * @return the element of the node
+     */
+    public int getInt(Position<Integer> p) {
+        return ((IntNode) checkPosition(p)).element;
+    }
+
+    public Position<Integer> addRoot(int e) {
+        return addRootNode(new IntNode(e));
+    }
+
+    /**
+     * Adds a node as the last child of another, in constant time plus the update of the
+     * counts of the ancestors.
+     */
+    public Position<Integer> add(int element, Position<Integer> p) {
+        return addNode(new IntNode(element), p);
+    }
+
+    /**
+     * Adds a node as the n-th child of another.
+     */
+    public Position<Integer> add(int element, Position<Integer> p, int n) {
+        return addNode(new IntNode(element), p, n);
+    }
+
+    /**
+     * Replaces the element of a node without boxing it.
+     *
+     * @return the old element
+     */
+    public int replace(Position<Integer> p, int e) {
+        IntNode node = (IntNode) checkPosition(p);
+        int old = node.element;
+        node.element = e;
+        if (replaced(node)) {
+            fireReplaced(node, old);
+        }
+        return old;
+    }
+
+    @Override
+    public Cursor cursor(Position<Integer> v) {
+        return new Cursor(checkPosition(v));
+    }
+
+    /**
+     * A cursor over the nodes of the tree that also reads their elements unboxed.
+     */
+    public static class Cursor extends NodeCursor<Integer> {
+
+        private Cursor(Node<Integer> start) {
+            super(start);
+        }
+
+        /**
+         * Returns the element of the current node without boxing it.
+         */
+        public int intElement() {
+            return ((IntNode) node()).element;
+        }
+    }
+}
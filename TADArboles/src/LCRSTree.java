@@ -1,22 +1,47 @@
 import material.Position;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
 
 
 /**
  * An implementation of the NAryTree interface using left-child, right-sibling representation.
+ * <p>
+ * Nodes are stamped with the {@link TreeOwner} of their tree, as in LinkedTree, so
+ * positions of other trees and removed nodes are rejected by a field comparison, and
+ * {@link #setDebugChecks(boolean)} also rejects the descendants of removed nodes.
+ * <p>
+ * The iterator and the children follow the links of the nodes lazily and throw
+ * ConcurrentModificationException, on a best-effort basis, when the tree is structurally
+ * modified while they are in use.
  *
  * @param <E> the type of elements stored in the tree
  */
-public class LCRSTree<E> implements NAryTree<E> {
+public class LCRSTree<E> extends DrawableTree<E> {
 
-    private class LCRSnode<T> implements Position<T> {
+    private static class LCRSnode<T> implements Position<T> {
         private T element;
         private LCRSnode<T> parent;
         private LCRSnode<T> leftChild;
         private LCRSnode<T> rightSibling;
+        private LCRSnode<T> lastChild;
+        private int hash;
+        private boolean hashValid;
+        private int count = 1;
+        /** The owner of the tree of the node, or null once the node has been removed. */
+        private TreeOwner owner;
 
         public LCRSnode(T element, LCRSnode<T> parent, LCRSnode<T> leftChild, LCRSnode<T> rightSibling){
             this.element = element;
@@ -24,12 +49,13 @@ public class LCRSTree<E> implements NAryTree<E> {
             this.leftChild = leftChild;
             this.rightSibling = rightSibling;
         }
-        public LCRSnode (T element){
-            this(element,null,null,null);
+        public LCRSnode (T element, TreeOwner owner){
+            this(element, null, owner);
         }
 
-        public LCRSnode(T element, LCRSnode<T> parent) {
+        public LCRSnode(T element, LCRSnode<T> parent, TreeOwner owner) {
             this(element,parent,null,null);
+            this.owner = owner;
         }
 
         @Override
@@ -69,45 +95,187 @@ public class LCRSTree<E> implements NAryTree<E> {
             return element.toString();
         }
     }
-    private LCRSnode root;
+    /**
+     * Copies a subtree, forking a task per child when the subtree is large enough. The
+     * largest child of every node is copied by the same task, walking down, so a forked
+     * subtree is at most half as large as the subtree of its task, and tasks nest at most
+     * log(n) deep whatever the depth of the tree.
+     */
+    @SuppressWarnings("serial")
+    private class CopyTask extends RecursiveTask<LCRSnode<E>> {
+        private final LCRSnode<E> source;
+        private final LCRSnode<E> parent;
+        private final TreeOwner owner;
+
+        public CopyTask(LCRSnode<E> source, LCRSnode<E> parent, TreeOwner owner) {
+            this.source = source;
+            this.parent = parent;
+            this.owner = owner;
+        }
+
+        @Override
+        protected LCRSnode<E> compute() {
+            if (source.count <= PARALLEL_COPY_THRESHOLD) {
+                return copyNodes(source, parent, owner);
+            }
+            LCRSnode<E> top = copyNode(source, parent, owner);
+            List<CopyTask> tasks = new ArrayList<>();
+            // The path of largest children: the sources, their copies, and the largest child
+            // of every source with its copy. The children of every copy are linked once the
+            // tasks of the other children are done.
+            List<LCRSnode<E>> froms = new ArrayList<>();
+            List<LCRSnode<E>> tos = new ArrayList<>();
+            List<LCRSnode<E>> heavies = new ArrayList<>();
+            List<LCRSnode<E>> heavyCopies = new ArrayList<>();
+            LCRSnode<E> from = source;
+            LCRSnode<E> to = top;
+            while (from != null) {
+                LCRSnode<E> heavy = null;
+                for (LCRSnode<E> child = from.getLeftChild(); child != null; child = child.getRightSibling()) {
+                    if (heavy == null || child.count > heavy.count) {
+                        heavy = child;
+                    }
+                }
+                LCRSnode<E> next = null;
+                for (LCRSnode<E> child = from.getLeftChild(); child != null; child = child.getRightSibling()) {
+                    if (child != heavy) {
+                        tasks.add(new CopyTask(child, to, owner));
+                    } else if (child.count <= PARALLEL_COPY_THRESHOLD) {
+                        heavyCopies.add(copyNodes(child, to, owner));
+                    } else {
+                        next = copyNode(child, to, owner);
+                        heavyCopies.add(next);
+                    }
+                }
+                if (heavy == null) {
+                    heavyCopies.add(null);
+                }
+                heavies.add(heavy);
+                froms.add(from);
+                tos.add(to);
+                from = next == null ? null : heavy;
+                to = next;
+            }
+            invokeAll(tasks);
+            Iterator<CopyTask> finished = tasks.iterator();
+            for (int i = 0; i < froms.size(); i++) {
+                for (LCRSnode<E> child = froms.get(i).getLeftChild(); child != null; child = child.getRightSibling()) {
+                    appendChild(tos.get(i), child == heavies.get(i) ? heavyCopies.get(i) : finished.next().join());
+                }
+            }
+            return top;
+        }
+    }
+
+    /**
+     * Prunes the subtree of a node that does not match, collecting the removed and the
+     * changed nodes so the tree can be updated after all the tasks have finished.
+     */
+    @SuppressWarnings("serial")
+    private class PruneTask extends RecursiveAction {
+        private final LCRSnode<E> top;
+        private final Predicate<Position<E>> filter;
+        private final List<LCRSnode<E>> removed = new ArrayList<>();
+        private final List<LCRSnode<E>> changed = new ArrayList<>();
+
+        public PruneTask(LCRSnode<E> top, Predicate<Position<E>> filter) {
+            this.top = top;
+            this.filter = filter;
+        }
+
+        @Override
+        protected void compute() {
+            pruneSubtree(top, filter, removed, changed);
+        }
+    }
+
+    /** Subtrees with at most this number of nodes are copied by a single task. */
+    private static final int PARALLEL_COPY_THRESHOLD = 8192;
+
+    private LCRSnode<E> root;
     private int size;
+    private TreeEventSupport<E> events;
+    private TreeOwner owner = new TreeOwner();
+    private boolean debugChecks = LCRSTree.class.desiredAssertionStatus();
+    /** Whether this tree is a subtree view, whose nodes belong to another tree. */
+    private boolean view;
+    /** Number of structural changes, checked by the iterators to fail fast. */
+    private int modCount;
 
     @Override
     public Position<E> addRoot(E e) {
         if(!isEmpty()){
             throw new RuntimeException("Tree already has a root");
         }
-        this.root = new LCRSnode<>(e);
+        this.root = new LCRSnode<>(e, owner);
         this.size= 1;
+        modCount++;
+        fire(TreeEvent.Kind.ADDED, root, null, null, e);
         return this.root;
     }
 
     @Override
     public Position<E> add(E element, Position<E> p) {
         LCRSnode<E> parent = checkPosition(p);
-        LCRSnode<E> newNode = new LCRSnode<>(element,parent);
+        LCRSnode<E> newNode = new LCRSnode<>(element, parent, owner);
         if(parent.getLeftChild()==null){
             parent.setLeftChild(newNode);
         }else{
-            LCRSnode<E> leftChild = parent.getLeftChild();
-            while (leftChild.getRightSibling()!= null){
-                leftChild = leftChild.getRightSibling();
-            }
-            leftChild.setRightSibling(newNode);
+            parent.lastChild.setRightSibling(newNode);
         }
+        parent.lastChild = newNode;
+        updateCounts(parent, 1);
+        invalidate(parent);
         this.size++;
+        modCount++;
+        fire(TreeEvent.Kind.ADDED, newNode, null, null, element);
         return newNode;
     }
+    /**
+     * Selects how positions are checked. The fast checks compare the owner stamp of the
+     * node; the debug checks also walk from the node to the root, in time proportional to
+     * its depth. They are on by default when assertions are enabled.
+     *
+     * @param debug whether the debug checks are done
+     */
+    public void setDebugChecks(boolean debug) {
+        this.debugChecks = debug;
+    }
+
     private LCRSnode<E> checkPosition(Position<E> p){
         if(!(p instanceof LCRSnode)){
             throw new RuntimeException("The position invalid");
         }
-        return (LCRSnode<E>) p;
+        LCRSnode<E> node = (LCRSnode<E>) p;
+        if (node.owner != owner && !adopt(node)) {
+            throw new RuntimeException("The position invalid");
+        }
+        if (debugChecks) {
+            for (LCRSnode<E> n = node; n != root; n = n.getParent()) {
+                if (n == null || n.owner == null) {
+                    throw new RuntimeException("The position invalid");
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Restamps a node whose owner has been forwarded to the owner of this tree.
+     *
+     * @return false if the node belongs to another tree or has been removed
+     */
+    private boolean adopt(LCRSnode<E> node) {
+        if (node.owner == null || node.owner.resolve() != owner.resolve()) {
+            return false;
+        }
+        node.owner = owner;
+        return true;
     }
     @Override
     public Position<E> add(E element, Position<E> p, int n) {
         LCRSnode<E> parent = checkPosition(p);
-        LCRSnode<E> newNode = new LCRSnode<>(element,parent);
+        LCRSnode<E> newNode = new LCRSnode<>(element, parent, owner);
         if(n < 0){
             throw new RuntimeException("The position invalid");
         } else if (n == 0){
@@ -123,7 +291,14 @@ public class LCRSTree<E> implements NAryTree<E> {
             newNode.setRightSibling(leftChild.getRightSibling());
             leftChild.setRightSibling(newNode);
         }
+        if(newNode.getRightSibling()==null){
+            parent.lastChild = newNode;
+        }
+        updateCounts(parent, 1);
+        invalidate(parent);
         this.size++;
+        modCount++;
+        fire(TreeEvent.Kind.ADDED, newNode, null, null, element);
         return newNode;
     }
 
@@ -134,6 +309,9 @@ public class LCRSTree<E> implements NAryTree<E> {
         E aux = node1.getElement();
         node1.setElement(node2.getElement());
         node2.setElement(aux);
+        invalidate(node1);
+        invalidate(node2);
+        fire(TreeEvent.Kind.SWAPPED, node1, node2, null, null);
     }
 
     @Override
@@ -141,41 +319,250 @@ public class LCRSTree<E> implements NAryTree<E> {
         LCRSnode<E> node = checkPosition(p);
         E old = node.getElement();
         node.setElement(e);
+        invalidate(node);
+        fire(TreeEvent.Kind.REPLACED, node, null, old, e);
         return old;
     }
 
     @Override
     public void remove(Position<E> p) {
         LCRSnode<E> node = checkPosition(p);
+        boolean detached = view && node == root;
         if(node==root){
             root = null;
             size = 0;
+            modCount++;
         } else{
             LCRSnode<E> parent = node.getParent();
+            LCRSnode<E> previous = null;
             if( parent.getLeftChild() == node){
                 parent.setLeftChild(node.getRightSibling());
             } else{
-                LCRSnode<E> leftChild = parent.getLeftChild();
-                while ( leftChild.getRightSibling() != node){
-                    leftChild = leftChild.getRightSibling();
+                previous = parent.getLeftChild();
+                while ( previous.getRightSibling() != node){
+                    previous = previous.getRightSibling();
                 }
-                leftChild.setRightSibling(node.getRightSibling());
+                previous.setRightSibling(node.getRightSibling());
+            }
+            if(parent.lastChild == node){
+                parent.lastChild = previous;
+            }
+            node.setRightSibling(null);
+            updateCounts(parent, -node.count);
+            invalidate(parent);
+            size -= node.count;
+            modCount++;
+        }
+        try {
+            fire(TreeEvent.Kind.REMOVED, node, root == null ? null : node.getParent(), null, null);
+        } finally {
+            // After the event, so the synchronous listeners can still read the subtree, but
+            // also when the notification fails. The root of a subtree view is only detached
+            // from the view and still belongs to the tree it was taken from.
+            if (!detached) {
+                disown(node);
             }
         }
-        size -= computeSize(node);
     }
-    private int computeSize(LCRSnode<E> node) {
-        if (node == null) {
+
+    /**
+     * Clears the owner stamp of every node of a removed subtree, so the fast checks
+     * reject all its positions, not only the position of its root.
+     */
+    private static <T> void disown(LCRSnode<T> top) {
+        Deque<LCRSnode<T>> stack = new ArrayDeque<>();
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            LCRSnode<T> node = stack.pop();
+            node.owner = null;
+            for (LCRSnode<T> child = node.getLeftChild(); child != null; child = child.getRightSibling()) {
+                stack.push(child);
+            }
+        }
+    }
+
+    /**
+     * Removes every node that matches a predicate, together with its subtree, in one
+     * traversal. The sibling list of every node is relinked once, skipping the matches,
+     * the subtree counts are recomputed on the way back up and the size is adjusted at
+     * the end, so the cost is linear in the number of visited nodes.
+     *
+     * @param filter the predicate that selects the nodes to remove
+     * @return the number of removed nodes
+     */
+    @Override
+    public int removeIf(Predicate<Position<E>> filter) {
+        return removeIf(filter, false);
+    }
+
+    /**
+     * Removes every node that matches a predicate, together with its subtree. In parallel
+     * mode, the subtrees of the children of the root are pruned by a task each on the
+     * common fork/join pool.
+     *
+     * @param filter   the predicate that selects the nodes to remove
+     * @param parallel whether the subtrees of the children of the root are pruned in parallel
+     * @return the number of removed nodes
+     */
+    @Override
+    public int removeIf(Predicate<Position<E>> filter, boolean parallel) {
+        if (isEmpty()) {
             return 0;
+        }
+        LCRSnode<E> top = checkPosition(root);
+        if (filter.test(top)) {
+            int removed = size;
+            remove(top);
+            return removed;
+        }
+        List<LCRSnode<E>> removed = new ArrayList<>();
+        List<LCRSnode<E>> changed = new ArrayList<>();
+        if (parallel) {
+            filterChildren(top, filter, removed, changed);
+            List<PruneTask> tasks = new ArrayList<>();
+            for (LCRSnode<E> child = top.getLeftChild(); child != null; child = child.getRightSibling()) {
+                tasks.add(new PruneTask(child, filter));
+            }
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            int count = 1;
+            for (PruneTask task : tasks) {
+                removed.addAll(task.removed);
+                changed.addAll(task.changed);
+                count += task.top.count;
+            }
+            top.count = count;
         } else {
-            int size = 1;
-            LCRSnode<E> child = node.getLeftChild();
-            while (child != null) {
-                size += computeSize(child);
-                child = child.getRightSibling();
+            pruneSubtree(top, filter, removed, changed);
+        }
+        int removedNodes = 0;
+        for (LCRSnode<E> node : removed) {
+            removedNodes += node.count;
+        }
+        size -= removedNodes;
+        modCount++;
+        for (LCRSnode<E> node : changed) {
+            invalidate(node);
+        }
+        try {
+            fireRemoved(removed);
+        } finally {
+            for (LCRSnode<E> node : removed) {
+                disown(node);
+            }
+        }
+        return removedNodes;
+    }
+
+    /**
+     * Fires a REMOVED event for every removed subtree. If the notification of one fails,
+     * the others are still fired and the first failure is rethrown at the end, with the
+     * later ones suppressed.
+     */
+    private void fireRemoved(List<LCRSnode<E>> removed) {
+        RuntimeException failure = null;
+        for (LCRSnode<E> node : removed) {
+            try {
+                fire(TreeEvent.Kind.REMOVED, node, node.getParent(), null, null);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Prunes the subtree of a node that does not match, in post-order with an explicit
+     * stack, and recomputes the counts of the nodes that are kept.
+     */
+    private void pruneSubtree(LCRSnode<E> top, Predicate<Position<E>> filter, List<LCRSnode<E>> removed,
+                              List<LCRSnode<E>> changed) {
+        Deque<LCRSnode<E>> nodes = new ArrayDeque<>();
+        filterChildren(top, filter, removed, changed);
+        nodes.push(top);
+        LCRSnode<E> next = top.getLeftChild();
+        while (!nodes.isEmpty()) {
+            if (next != null) {
+                filterChildren(next, filter, removed, changed);
+                nodes.push(next);
+                next = next.getLeftChild();
+            } else {
+                LCRSnode<E> node = nodes.pop();
+                int count = 1;
+                for (LCRSnode<E> c = node.getLeftChild(); c != null; c = c.getRightSibling()) {
+                    count += c.count;
+                }
+                node.count = count;
+                next = node == top ? null : node.getRightSibling();
+            }
+        }
+    }
+
+    /**
+     * Relinks the children of a node that do not match, unlinking the matches from their
+     * siblings.
+     */
+    private void filterChildren(LCRSnode<E> node, Predicate<Position<E>> filter, List<LCRSnode<E>> removed,
+                                List<LCRSnode<E>> changed) {
+        LCRSnode<E> last = null;
+        boolean matched = false;
+        LCRSnode<E> child = node.getLeftChild();
+        while (child != null) {
+            LCRSnode<E> following = child.getRightSibling();
+            if (filter.test(child)) {
+                child.setRightSibling(null);
+                removed.add(child);
+                matched = true;
+            } else {
+                if (last == null) {
+                    node.setLeftChild(child);
+                } else {
+                    last.setRightSibling(child);
+                }
+                last = child;
             }
-            return size;
+            child = following;
         }
+        if (matched) {
+            if (last == null) {
+                node.setLeftChild(null);
+            } else {
+                last.setRightSibling(null);
+            }
+            node.lastChild = last;
+            changed.add(node);
+        }
+    }
+
+    /**
+     * Adds a delta to the subtree counts of a node and all its ancestors.
+     *
+     * @param node  the deepest node whose subtree has changed
+     * @param delta the number of nodes added (or removed, if negative)
+     */
+    private void updateCounts(LCRSnode<E> node, int delta) {
+        while (node != null) {
+            node.count += delta;
+            node = node.getParent();
+        }
+    }
+
+    /**
+     * Returns the number of nodes of the subtree rooted at a node in constant time,
+     * using the count maintained in every node.
+     *
+     * @param v the root of the subtree
+     * @return the size of the subtree
+     */
+    @Override
+    public int subtreeSize(Position<E> v) {
+        LCRSnode<E> node = checkPosition(v);
+        return node.count;
     }
 
     @Override
@@ -183,24 +570,292 @@ public class LCRSTree<E> implements NAryTree<E> {
         LCRSnode<E> node = checkPosition(v);
         LCRSTree<E> tree = new LCRSTree<>();
         tree.root= node;
-        tree.size = computeSize(node);
+        tree.size = node.count;
+        tree.owner = owner;
+        tree.debugChecks = debugChecks;
+        tree.view = true;
+        tree.shareDot(this);
         return tree;
     }
 
     @Override
     public void attach(Position<E> p, NAryTree<E> t) {
         LCRSnode<E> node = checkPosition(p);
-        LCRSTree<E> tree = (LCRSTree<E>) t;
-        LCRSnode<E> leftChild = node.getLeftChild();
-        if(leftChild == null){
-            node.setLeftChild(tree.root);
+        LCRSTree<E> tree = checkTree(t);
+        if (tree.isEmpty()) {
+            return;
+        }
+        LCRSnode<E> top;
+        if (tree.view) {
+            // The nodes of a subtree view still belong to its tree, so they are copied.
+            top = ForkJoinPool.commonPool().invoke(new CopyTask(tree.root, node, owner));
+        } else {
+            if (tree.owner.resolve() == owner.resolve()) {
+                // Attaching this tree into itself would make a cycle.
+                throw new RuntimeException("The tree is invalid");
+            }
+            // The attached nodes keep their stamp, which now stands for this tree. The
+            // root of the attached tree moves too, so that tree is left empty with a new
+            // owner.
+            tree.owner.forwardTo(owner);
+            tree.owner = new TreeOwner();
+            top = tree.root;
+            tree.root = null;
+            tree.size = 0;
+            tree.modCount++;
+        }
+        if(node.getLeftChild() == null){
+            node.setLeftChild(top);
         }else {
-            while (leftChild.getRightSibling() != null){
-                leftChild= leftChild.getRightSibling();
+            node.lastChild.setRightSibling(top);
+        }
+        node.lastChild = top;
+        discardDot(top);
+        top.setParent(node);
+        updateCounts(node, top.count);
+        invalidate(node);
+        this.size += top.count;
+        modCount++;
+        fire(TreeEvent.Kind.ATTACHED, node, null, null, null);
+    }
+
+    /**
+     * Checks if the given tree is of type LCRSTree.
+     *
+     * @param t The tree to be checked.
+     * @return The LCRSTree instance if the tree is of type LCRSTree.
+     * @throws RuntimeException If the tree is not a valid LCRSTree instance.
+     */
+    private LCRSTree<E> checkTree(NAryTree<E> t) {
+        if (!(t instanceof LCRSTree)) {
+            throw new RuntimeException("The tree is invalid");
+        }
+        return (LCRSTree<E>) t;
+    }
+
+    @Override
+    public void addListener(TreeListener<E> listener) {
+        if (events == null) {
+            events = new TreeEventSupport<>();
+        }
+        events.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(TreeListener<E> listener) {
+        if (events != null) {
+            events.removeListener(listener);
+        }
+    }
+
+    @Override
+    public void setListenerExecutor(Executor executor) {
+        if (events == null) {
+            events = new TreeEventSupport<>();
+        }
+        events.setExecutor(executor);
+    }
+
+    /**
+     * Notifies a change to the listeners. The event is only created if there are
+     * listeners, so trees without them pay a null check per mutation.
+     */
+    private void fire(TreeEvent.Kind kind, Position<E> p, Position<E> second, E oldElement, E newElement) {
+        if (events != null && events.hasListeners()) {
+            events.fire(new TreeEvent<>(kind, p, second, oldElement, newElement));
+        }
+    }
+
+    /**
+     * Returns the structural hash of the subtree rooted at a node. Hashes are cached
+     * in the nodes and invalidated along the path to the root on every mutation, so
+     * only the subtrees that changed since the last call are visited again.
+     *
+     * @param p the root of the subtree
+     * @return the structural hash of the subtree
+     */
+    @Override
+    public int structuralHash(Position<E> p) {
+        LCRSnode<E> node = checkPosition(p);
+        return computeHash(node);
+    }
+
+    /**
+     * Recomputes the invalid hashes of a subtree in post-order, following the parent and
+     * sibling links instead of recursing, and descending only into the invalid ones.
+     */
+    private int computeHash(LCRSnode<E> top) {
+        LCRSnode<E> node = top;
+        while (!top.hashValid) {
+            LCRSnode<E> child = firstInvalid(node.getLeftChild());
+            if (child != null) {
+                node = child;
+                continue;
+            }
+            int hash = Objects.hashCode(node.getElement());
+            for (child = node.getLeftChild(); child != null; child = child.getRightSibling()) {
+                hash = 31 * hash + child.hash;
+            }
+            node.hash = hash;
+            node.hashValid = true;
+            if (node != top) {
+                LCRSnode<E> sibling = firstInvalid(node.getRightSibling());
+                node = sibling != null ? sibling : node.getParent();
+            }
+        }
+        return top.hash;
+    }
+
+    /**
+     * Returns the first node of a sibling list, starting at a node, whose hash is invalid.
+     */
+    private static <T> LCRSnode<T> firstInvalid(LCRSnode<T> node) {
+        while (node != null && node.hashValid) {
+            node = node.getRightSibling();
+        }
+        return node;
+    }
+
+    /**
+     * Invalidates every cached value that depends on the subtree of a node.
+     *
+     * @param node the node whose subtree has changed
+     */
+    private void invalidate(LCRSnode<E> node) {
+        invalidateHash(node);
+        invalidateDot(node);
+    }
+
+    /**
+     * Marks the cached hash of a node and its ancestors as stale. The walk stops at
+     * the first node that is already stale, because its ancestors are stale too.
+     *
+     * @param node the node whose subtree has changed
+     */
+    private void invalidateHash(LCRSnode<E> node) {
+        while (node != null && node.hashValid) {
+            node.hashValid = false;
+            node = node.getParent();
+        }
+    }
+
+    /**
+     * Creates an LCRSTree with the same shape and elements as another tree in linear
+     * time. The sibling links are built directly, keeping the last child of every node,
+     * so no sibling list is walked as add would do.
+     *
+     * @param source the tree to copy, of any implementation
+     * @param <E>    the type of elements stored in the tree
+     * @return the new tree
+     */
+    public static <E> LCRSTree<E> copyOf(Tree<E> source) {
+        LCRSTree<E> tree = new LCRSTree<>();
+        if (!source.isEmpty()) {
+            tree.root = tree.copyNode(source, source.root(), null);
+            tree.size = tree.root.count;
+        }
+        return tree;
+    }
+
+    /**
+     * Copies the subtree of a node of another tree, in pre-order with an explicit stack,
+     * adding the counts to the parents on the way back up.
+     */
+    private LCRSnode<E> copyNode(Tree<E> source, Position<E> p, LCRSnode<E> parent) {
+        LCRSnode<E> top = new LCRSnode<>(p.getElement(), parent, owner);
+        Deque<LCRSnode<E>> nodes = new ArrayDeque<>();
+        Deque<Iterator<? extends Position<E>>> iterators = new ArrayDeque<>();
+        nodes.push(top);
+        iterators.push(source.children(p).iterator());
+        while (!nodes.isEmpty()) {
+            Iterator<? extends Position<E>> children = iterators.peek();
+            if (children.hasNext()) {
+                Position<E> child = children.next();
+                LCRSnode<E> copy = new LCRSnode<>(child.getElement(), nodes.peek(), owner);
+                appendChild(nodes.peek(), copy);
+                nodes.push(copy);
+                iterators.push(source.children(child).iterator());
+            } else {
+                iterators.pop();
+                LCRSnode<E> node = nodes.pop();
+                if (node != top) {
+                    node.getParent().count += node.count;
+                }
             }
-            leftChild.setRightSibling(tree.root);
         }
-        this.size += tree.size;
+        return top;
+    }
+
+    /**
+     * Returns an independent copy of the subtree rooted at a node. Large subtrees are
+     * copied in parallel on the common fork/join pool, one task per child.
+     *
+     * @param v root of the copied subtree
+     * @return The new tree.
+     */
+    @Override
+    public LCRSTree<E> copySubtree(Position<E> v) {
+        LCRSnode<E> node = checkPosition(v);
+        LCRSTree<E> tree = new LCRSTree<>();
+        tree.root = ForkJoinPool.commonPool().invoke(new CopyTask(node, null, tree.owner));
+        tree.size = tree.root.count;
+        return tree;
+    }
+
+    @Override
+    public LCRSTree<E> deepCopy() {
+        return isEmpty() ? new LCRSTree<>() : copySubtree(root);
+    }
+
+    /**
+     * Copies a node without its children, keeping its cached count and hash.
+     */
+    private LCRSnode<E> copyNode(LCRSnode<E> source, LCRSnode<E> parent, TreeOwner owner) {
+        LCRSnode<E> node = new LCRSnode<>(source.getElement(), parent, owner);
+        node.count = source.count;
+        node.hash = source.hash;
+        node.hashValid = source.hashValid;
+        return node;
+    }
+
+    /**
+     * Copies a whole subtree sequentially, in pre-order, following the parent and sibling
+     * links of the source instead of recursing.
+     */
+    private LCRSnode<E> copyNodes(LCRSnode<E> source, LCRSnode<E> parent, TreeOwner owner) {
+        LCRSnode<E> top = copyNode(source, parent, owner);
+        LCRSnode<E> from = source;
+        LCRSnode<E> to = top;
+        while (true) {
+            if (from.getLeftChild() != null) {
+                from = from.getLeftChild();
+            } else {
+                while (from != source && from.getRightSibling() == null) {
+                    from = from.getParent();
+                    to = to.getParent();
+                }
+                if (from == source) {
+                    return top;
+                }
+                from = from.getRightSibling();
+                to = to.getParent();
+            }
+            LCRSnode<E> copy = copyNode(from, to, owner);
+            appendChild(to, copy);
+            to = copy;
+        }
+    }
+
+    /**
+     * Links a node as the last child of another one.
+     */
+    private static <T> void appendChild(LCRSnode<T> parent, LCRSnode<T> child) {
+        if (parent.lastChild == null) {
+            parent.setLeftChild(child);
+        } else {
+            parent.lastChild.setRightSibling(child);
+        }
+        parent.lastChild = child;
     }
 
     @Override
@@ -222,13 +877,79 @@ public class LCRSTree<E> implements NAryTree<E> {
     @Override
     public Iterable<? extends Position<E>> children(Position<E> v) {
         LCRSnode<E> node = checkPosition(v);
-        List<Position<E>> list = new ArrayList<>();
-        LCRSnode<E> child = node.getLeftChild();
-        while (child != null){
-            list.add(child);
-            child= child.getRightSibling();
+        return () -> new NodeIterator() {
+            private LCRSnode<E> next = node.getLeftChild();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            protected LCRSnode<E> nextNode() {
+                LCRSnode<E> child = next;
+                next = next.getRightSibling();
+                return child;
+            }
+        };
+    }
+
+    /**
+     * Base of the lazy iterators, which checks the modification count of the tree before
+     * every step.
+     */
+    private abstract class NodeIterator implements Iterator<Position<E>> {
+        private final int expectedModCount = modCount;
+
+        protected abstract LCRSnode<E> nextNode();
+
+        @Override
+        public Position<E> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return nextNode();
+        }
+    }
+
+    /**
+     * Pruned, depth-bounded pre-order traversal that follows the sibling links
+     * directly, without building the children lists.
+     */
+    @Override
+    public void traverse(Position<E> v, int maxDepth, Predicate<Position<E>> descend, TreeVisitor<E> visitor) {
+        LCRSnode<E> node = checkPosition(v);
+        traverse(node, 0, maxDepth, descend, visitor);
+    }
+
+    /**
+     * Visits the subtree of a node in pre-order, following the parent and sibling links
+     * instead of recursing, so the depth of the tree does not matter.
+     */
+    private void traverse(LCRSnode<E> top, int depth, int maxDepth, Predicate<Position<E>> descend, TreeVisitor<E> visitor) {
+        LCRSnode<E> node = top;
+        while (true) {
+            visitor.visit(node, depth);
+            if (depth < maxDepth && descend.test(node) && node.getLeftChild() != null) {
+                node = node.getLeftChild();
+                depth++;
+                continue;
+            }
+            if (node == top) {
+                return;
+            }
+            while (node.getRightSibling() == null) {
+                node = node.getParent();
+                depth--;
+                if (node == top) {
+                    return;
+                }
+            }
+            node = node.getRightSibling();
         }
-        return list;
     }
 
     @Override
@@ -249,9 +970,99 @@ public class LCRSTree<E> implements NAryTree<E> {
         return node==this.root;
     }
 
+    /**
+     * Returns a cursor placed on a node. Every move follows a single link of the node,
+     * so a walk with the cursor allocates nothing.
+     *
+     * @param v the node where the cursor starts
+     * @return the cursor
+     */
+    @Override
+    public TreeCursor<E> cursor(Position<E> v) {
+        return new NodeCursor(checkPosition(v));
+    }
+
+    private class NodeCursor implements TreeCursor<E> {
+        private LCRSnode<E> current;
+        private int depth;
+
+        public NodeCursor(LCRSnode<E> start) {
+            current = start;
+            for (LCRSnode<E> p = start.parent; p != null; p = p.parent) {
+                depth++;
+            }
+        }
+
+        @Override
+        public boolean toParent() {
+            if (current.parent == null) {
+                return false;
+            }
+            current = current.parent;
+            depth--;
+            return true;
+        }
+
+        @Override
+        public boolean toFirstChild() {
+            if (current.leftChild == null) {
+                return false;
+            }
+            current = current.leftChild;
+            depth++;
+            return true;
+        }
+
+        @Override
+        public boolean toNextSibling() {
+            if (current.rightSibling == null) {
+                return false;
+            }
+            current = current.rightSibling;
+            return true;
+        }
+
+        @Override
+        public E element() {
+            return current.element;
+        }
+
+        @Override
+        public int depth() {
+            return depth;
+        }
+
+        @Override
+        public Position<E> position() {
+            return current;
+        }
+    }
+
+    /**
+     * Iterates the nodes in breadth-first order. The iterator is lazy: it keeps a queue
+     * of the nodes to visit instead of copying the whole tree.
+     */
     @Override
     public Iterator<Position<E>> iterator() {
-        throw new UnsupportedOperationException("Not supported yet.");
+        Deque<LCRSnode<E>> queue = new ArrayDeque<>();
+        if (root != null) {
+            queue.add(root);
+        }
+        return new NodeIterator() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            protected LCRSnode<E> nextNode() {
+                LCRSnode<E> node = queue.poll();
+                for (LCRSnode<E> child = node.getLeftChild(); child != null; child = child.getRightSibling()) {
+                    queue.add(child);
+                }
+                return node;
+            }
+        };
     }
 
     public int size() {
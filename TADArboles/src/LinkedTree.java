@@ -1,36 +1,78 @@
 import material.Position;
 
+import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
 
 
 /**
  * This class represents a tree data structure using a linked implementation.
  * It implements the NAryTree interface.
+ * <p>
+ * The tree supports a single writer. Other threads can read it concurrently through
+ * snapshot-isolated read views, see {@link #readView()}.
+ * <p>
+ * Every node is stamped with the {@link TreeOwner} of its tree, so a position of another
+ * tree, or a node that was removed, is rejected by a field comparison. The descendants
+ * of a removed node keep their stamp; the debug checks, see
+ * {@link #setDebugChecks(boolean)}, also walk from the node to the root and reject them.
+ * <p>
+ * The iterators and the children lists are lazy views of the nodes. They throw
+ * ConcurrentModificationException, on a best-effort basis, when the tree is
+ * structurally modified (a node is added, removed or attached) while they are in use.
  *
  * @param <E> the type of element stored in the tree
  */
-public class LinkedTree<E> implements NAryTree<E> {
+public class LinkedTree<E> extends DrawableTree<E> {
 
     /**
      * This class represents a node in a tree data structure.
      * It implements the Position interface.
+     * <p>
+     * The children list is only allocated when the first child is added, so
+     * leaves (the majority of nodes in most trees) carry a null reference
+     * instead of an empty ArrayList.
      *
      * @param <T> the type of element stored in the node
      */
-    private class TreeNode<T> implements Position<T> {
+    private static class TreeNode<T> implements Position<T> {
         private T element;
         private TreeNode<T> parent;
-        private List<TreeNode<T>> children = new ArrayList<>();
+        private List<TreeNode<T>> children;
+        /** The cached structural hash of the subtree, or NO_HASH if it is stale. */
+        private int hash = NO_HASH;
+        private int count = 1;
+        private volatile Version<T> history;
+        /** The owner of the tree of the node, or null once the node has been removed. */
+        private TreeOwner owner;
 
-        public TreeNode(T element){
+        public TreeNode(T element, TreeOwner owner){
             this.element= element;
+            this.owner = owner;
         }
 
-        public TreeNode(T element, TreeNode parent){
+        public TreeNode(T element, TreeNode<T> parent, TreeOwner owner){
             this.element = element;
             this.parent = parent;
+            this.owner = owner;
         }
 
         @Override
@@ -42,33 +84,395 @@ public class LinkedTree<E> implements NAryTree<E> {
             return parent;
         }
 
+        /**
+         * Returns the children of this node. Leaves share an immutable empty list.
+         *
+         * @return the children of this node, never null
+         */
         public List<TreeNode<T>> getChildren() {
+            if (children == null) {
+                return Collections.emptyList();
+            }
+            return children;
+        }
+
+        /**
+         * Returns the children list of this node, allocating it if needed.
+         * Must be used by every operation that adds children.
+         *
+         * @return the modifiable children list of this node
+         */
+        public List<TreeNode<T>> getOrCreateChildren() {
+            if (children == null) {
+                children = new ArrayList<>();
+            }
             return children;
         }
     }
+    /**
+     * The state of a node before the mutation with a given version, kept while a read
+     * view older than that mutation is open. The versions of a node are linked from
+     * the newest to the oldest.
+     */
+    private static final class Version<T> {
+        private final long until;
+        private final T element;
+        private final Object[] children;
+        private Version<T> older;
+
+        private Version(long until, T element, Object[] children, Version<T> older) {
+            this.until = until;
+            this.element = element;
+            this.children = children;
+            this.older = older;
+        }
+    }
+
+    /**
+     * A consistent, read-only view of the tree as it was when the view was acquired.
+     * <p>
+     * Reading the view takes no lock and does not block the writer: every node shows
+     * the state it had at the version of the view, taken from the node itself if it has
+     * not changed since then, or from the versions the writer saved before changing it.
+     * Positions of the view are only valid in the view. It must be closed so that the
+     * writer stops saving versions for it.
+     */
+    public class ReadView implements Tree<E>, AutoCloseable {
+        private final long at;
+        private final int size;
+        private final ViewNode root;
+        private boolean closed;
+
+        private ReadView(long at, int size, TreeNode<E> root) {
+            this.at = at;
+            this.size = size;
+            this.root = root == null ? null : new ViewNode(this, root, null);
+        }
+
+        /**
+         * Returns the number of mutations of the tree seen by this view.
+         *
+         * @return the version of the view
+         */
+        public long version() {
+            return at;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return root == null;
+        }
+
+        @Override
+        public Position<E> root() {
+            return root;
+        }
+
+        @Override
+        public Position<E> parent(Position<E> v) {
+            // The parent comes from the path the position was reached by, because the
+            // parent link of the node is not versioned and attach changes it.
+            return checkPosition(v).parent;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<Position<E>> children(Position<E> v) {
+            ViewNode node = checkPosition(v);
+            Object[] array = node.state().children;
+            List<Position<E>> children = new ArrayList<>(array.length);
+            for (Object child : array) {
+                children.add(new ViewNode(this, (TreeNode<E>) child, node));
+            }
+            return children;
+        }
+
+        @Override
+        public boolean isInternal(Position<E> v) {
+            return checkPosition(v).state().children.length > 0;
+        }
+
+        @Override
+        public boolean isLeaf(Position<E> v) {
+            return checkPosition(v).state().children.length == 0;
+        }
+
+        @Override
+        public boolean isRoot(Position<E> v) {
+            return checkPosition(v).equals(root);
+        }
+
+        /**
+         * Iterates the view in breadth-first order, as the tree does.
+         */
+        @Override
+        public Iterator<Position<E>> iterator() {
+            List<Position<E>> positions = new ArrayList<>();
+            Deque<Position<E>> queue = new ArrayDeque<>();
+            if (root != null) {
+                queue.add(root);
+            }
+            while (!queue.isEmpty()) {
+                Position<E> node = queue.poll();
+                positions.add(node);
+                queue.addAll(children(node));
+            }
+            return positions.iterator();
+        }
+
+        /**
+         * Releases the view. Closing it twice has no effect.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                views.computeIfPresent(at, (version, count) -> count == 1 ? null : count - 1);
+            }
+        }
+
+        private ViewNode checkPosition(Position<E> p) {
+            if (!(p instanceof LinkedTree.ViewNode) || ((ViewNode) p).view != this) {
+                throw new RuntimeException("The position is invalid");
+            }
+            return (ViewNode) p;
+        }
+    }
+
+    /**
+     * A node as seen by a read view, with the position of its parent in the view. Its
+     * state is looked up the first time it is read, so positions that are only passed
+     * through do not copy the children of their node.
+     */
+    private class ViewNode implements Position<E> {
+        private final ReadView view;
+        private final TreeNode<E> node;
+        private final ViewNode parent;
+        private Version<E> state;
+
+        private ViewNode(ReadView view, TreeNode<E> node, ViewNode parent) {
+            this.view = view;
+            this.node = node;
+            this.parent = parent;
+        }
+
+        private Version<E> state() {
+            if (state == null) {
+                state = stateAt(node, view.at);
+            }
+            return state;
+        }
+
+        @Override
+        public E getElement() {
+            return state().element;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LinkedTree.ViewNode)) {
+                return false;
+            }
+            LinkedTree<?>.ViewNode other = (LinkedTree<?>.ViewNode) o;
+            return other.view == view && other.node == node;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(node);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(state().element);
+        }
+    }
+
+    /**
+     * Copies a subtree, forking a task per child when the subtree is large enough. The
+     * largest child of every node is copied by the same task, walking down, so a forked
+     * subtree is at most half as large as the subtree of its task, and tasks nest at most
+     * log(n) deep whatever the depth of the tree.
+     */
+    @SuppressWarnings("serial")
+    private class CopyTask extends RecursiveTask<TreeNode<E>> {
+        private final TreeNode<E> source;
+        private final TreeNode<E> parent;
+        private final TreeOwner owner;
+        /** Index of the copy in the children of the parent, set when the task is forked. */
+        private int index;
+
+        public CopyTask(TreeNode<E> source, TreeNode<E> parent, TreeOwner owner) {
+            this.source = source;
+            this.parent = parent;
+            this.owner = owner;
+        }
+
+        @Override
+        protected TreeNode<E> compute() {
+            if (source.count <= PARALLEL_COPY_THRESHOLD) {
+                return copyNodes(source, parent, owner);
+            }
+            TreeNode<E> top = copyNode(source, parent, owner);
+            List<CopyTask> tasks = new ArrayList<>();
+            TreeNode<E> from = source;
+            TreeNode<E> to = top;
+            while (from != null) {
+                TreeNode<E> heavy = null;
+                for (TreeNode<E> child : from.getChildren()) {
+                    if (heavy == null || child.count > heavy.count) {
+                        heavy = child;
+                    }
+                }
+                TreeNode<E> next = null;
+                for (TreeNode<E> child : from.getChildren()) {
+                    if (child != heavy) {
+                        // A placeholder, set when the task has finished.
+                        CopyTask task = new CopyTask(child, to, owner);
+                        task.index = to.children.size();
+                        to.children.add(null);
+                        tasks.add(task);
+                    } else if (child.count <= PARALLEL_COPY_THRESHOLD) {
+                        to.children.add(copyNodes(child, to, owner));
+                    } else {
+                        next = copyNode(child, to, owner);
+                        to.children.add(next);
+                    }
+                }
+                from = next == null ? null : heavy;
+                to = next;
+            }
+            invokeAll(tasks);
+            for (CopyTask task : tasks) {
+                task.parent.children.set(task.index, task.join());
+            }
+            return top;
+        }
+    }
+
+    /**
+     * Prunes the subtree of a node that does not match, collecting the removed and the
+     * changed nodes so the tree can be updated after all the tasks have finished.
+     */
+    @SuppressWarnings("serial")
+    private class PruneTask extends RecursiveAction {
+        private final TreeNode<E> top;
+        private final Predicate<Position<E>> filter;
+        private final List<TreeNode<E>> removed = new ArrayList<>();
+        private final List<TreeNode<E>> changed = new ArrayList<>();
+
+        public PruneTask(TreeNode<E> top, Predicate<Position<E>> filter) {
+            this.top = top;
+            this.filter = filter;
+        }
+
+        @Override
+        protected void compute() {
+            pruneSubtree(top, filter, removed, changed);
+        }
+    }
+
+    /** Subtrees with at most this number of nodes are copied by a single task. */
+    private static final int PARALLEL_COPY_THRESHOLD = 8192;
+
+    private static final Object[] NO_CHILDREN = new Object[0];
+
+    /**
+     * Marks a stale cached hash, so the nodes need no separate flag. A subtree whose hash
+     * happens to be this value is just not cached, and neither are its ancestors, so a
+     * node that looks stale always has stale ancestors.
+     */
+    private static final int NO_HASH = Integer.MIN_VALUE;
+
     private TreeNode<E> root;
     private int size;
+    private TreeEventSupport<E> events;
+    private TreeOwner owner = new TreeOwner();
+    private boolean debugChecks = LinkedTree.class.desiredAssertionStatus();
+    /** Whether this tree is a subtree view, whose nodes belong to another tree. */
+    private boolean view;
+    /** Number of structural changes, checked by the iterators to fail fast. */
+    private int modCount;
+
+    // Versions for the read views. A mutation sets writing to version + 1 before it
+    // changes anything and publishes version when it is complete.
+    private volatile long version;
+    private volatile long writing;
+    private final ConcurrentSkipListMap<Long, Integer> views = new ConcurrentSkipListMap<>();
+
     @Override
     public Position<E> addRoot(E e) {
         if(!isEmpty()){
             throw new RuntimeException("The tree already has a root");
         }
-        this.root= new TreeNode<>(e);
+        beginWrite();
+        this.root= new TreeNode<>(e, owner);
         size++;
+        modCount++;
+        endWrite();
+        fire(TreeEvent.Kind.ADDED, root, null, null, e);
         return root;
     }
+    /**
+     * Selects how positions are checked. The fast checks compare the owner stamp of the
+     * node, which is cleared on every node of a removed subtree. The debug checks also
+     * walk from the node to the root, rejecting, in a subtree, the nodes outside it, in
+     * time proportional to the depth of the node. They are on by default when assertions
+     * are enabled.
+     *
+     * @param debug whether the debug checks are done
+     */
+    public void setDebugChecks(boolean debug) {
+        this.debugChecks = debug;
+    }
+
     private TreeNode<E> checkPosition(Position<E> p){
         if (!(p instanceof TreeNode)){
             throw new RuntimeException("The position is invalid");
         }
-        return (TreeNode<E>) p;
+        TreeNode<E> node = (TreeNode<E>) p;
+        if (node.owner != owner && !adopt(node)) {
+            throw new RuntimeException("The position is invalid");
+        }
+        if (debugChecks) {
+            for (TreeNode<E> n = node; n != root; n = n.parent) {
+                if (n == null || n.owner == null) {
+                    throw new RuntimeException("The position is invalid");
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Restamps a node whose owner has been forwarded to the owner of this tree.
+     *
+     * @return false if the node belongs to another tree or has been removed
+     */
+    private boolean adopt(TreeNode<E> node) {
+        if (node.owner == null || node.owner.resolve() != owner.resolve()) {
+            return false;
+        }
+        node.owner = owner;
+        return true;
     }
     @Override
     public Position<E> add(E element, Position<E> p) {
         TreeNode<E> parent = checkPosition(p);
-        TreeNode<E> newNode = new TreeNode<>(element, parent);
-        parent.getChildren().add(newNode);
+        beginWrite();
+        save(parent);
+        TreeNode<E> newNode = new TreeNode<>(element, parent, owner);
+        parent.getOrCreateChildren().add(newNode);
+        updateCounts(parent, 1);
+        invalidate(parent);
         size++;
+        modCount++;
+        endWrite();
+        fire(TreeEvent.Kind.ADDED, newNode, null, null, element);
         return newNode;
     }
 
@@ -76,12 +480,19 @@ public class LinkedTree<E> implements NAryTree<E> {
     public Position<E> add(E element, Position<E> p, int n) {
         TreeNode<E> parent = checkPosition(p);
         checkPositionOfChildrenList(n, parent);
-        TreeNode<E> newNode = new TreeNode<>(element, parent);
-        parent.getChildren().add(n,newNode);
+        beginWrite();
+        save(parent);
+        TreeNode<E> newNode = new TreeNode<>(element, parent, owner);
+        parent.getOrCreateChildren().add(n,newNode);
+        updateCounts(parent, 1);
+        invalidate(parent);
         size++;
+        modCount++;
+        endWrite();
+        fire(TreeEvent.Kind.ADDED, newNode, null, null, element);
         return newNode;
     }
-    public void checkPositionOfChildrenList(int n, LinkedTree<E>.TreeNode<E> parent){
+    public void checkPositionOfChildrenList(int n, TreeNode<E> parent){
         if (n<0 || n > parent.getChildren().size()){
             throw new RuntimeException("The position is invalid");
         }
@@ -90,37 +501,363 @@ public class LinkedTree<E> implements NAryTree<E> {
     public void swapElements(Position<E> p1, Position<E> p2) {
         TreeNode<E> node1 = checkPosition(p1);
         TreeNode<E> node2 = checkPosition(p2);
+        beginWrite();
+        save(node1);
+        save(node2);
         E aux = node1.element;
         node1.element = node2.element;
         node2.element = aux;
+        invalidate(node1);
+        invalidate(node2);
+        endWrite();
+        fire(TreeEvent.Kind.SWAPPED, node1, node2, null, null);
     }
 
     @Override
     public E replace(Position<E> p, E e) {
         TreeNode<E> node = checkPosition(p);
+        beginWrite();
+        save(node);
         E element = node.element;
         node.element= e;
+        invalidate(node);
+        endWrite();
+        fire(TreeEvent.Kind.REPLACED, node, null, element, e);
         return element;
     }
 
     @Override
     public void remove(Position<E> p) {
         TreeNode<E> node = checkPosition(p);
+        boolean detached = view && node == root;
+        beginWrite();
         if (node == root){
             size = 0;
+            modCount++;
             root = null;
         }else {
             TreeNode<E> parent = node.getParent();
+            save(parent);
             parent.getChildren().remove(node);
-            size -= computeSize(node);
+            updateCounts(parent, -node.count);
+            invalidate(parent);
+            size -= node.count;
+            modCount++;
+        }
+        endWrite();
+        try {
+            fire(TreeEvent.Kind.REMOVED, node, root == null ? null : node.getParent(), null, null);
+        } finally {
+            // After the event, so the synchronous listeners can still read the subtree, but
+            // also when the notification fails. The root of a subtree view is only detached
+            // from the view and still belongs to the tree it was taken from.
+            if (!detached) {
+                disown(node);
+            }
         }
     }
-    private int computeSize(TreeNode<E> node){
-        int size = 1;
-        for(TreeNode<E> child: node.getChildren()){
-            size += computeSize(child);
+
+    /**
+     * Clears the owner stamp of every node of a removed subtree, so the fast checks
+     * reject all its positions, not only the position of its root.
+     */
+    private static <T> void disown(TreeNode<T> top) {
+        Deque<TreeNode<T>> stack = new ArrayDeque<>();
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            TreeNode<T> node = stack.pop();
+            node.owner = null;
+            for (TreeNode<T> child : node.getChildren()) {
+                stack.push(child);
+            }
         }
-        return size;
+    }
+
+    /**
+     * Removes every node that matches a predicate, together with its subtree, in one
+     * traversal. The children list of every node is filtered once, the subtree counts are
+     * recomputed on the way back up and the size is adjusted at the end, so the cost is
+     * linear in the number of visited nodes.
+     *
+     * @param filter the predicate that selects the nodes to remove
+     * @return the number of removed nodes
+     */
+    @Override
+    public int removeIf(Predicate<Position<E>> filter) {
+        return removeIf(filter, false);
+    }
+
+    /**
+     * Removes every node that matches a predicate, together with its subtree. In parallel
+     * mode, the subtrees of the children of the root are pruned by a task each on the
+     * common fork/join pool.
+     *
+     * @param filter   the predicate that selects the nodes to remove
+     * @param parallel whether the subtrees of the children of the root are pruned in parallel
+     * @return the number of removed nodes
+     */
+    @Override
+    public int removeIf(Predicate<Position<E>> filter, boolean parallel) {
+        if (isEmpty()) {
+            return 0;
+        }
+        if (filter.test(root)) {
+            int removed = size;
+            remove(root);
+            return removed;
+        }
+        beginWrite();
+        List<TreeNode<E>> removed = new ArrayList<>();
+        List<TreeNode<E>> changed = new ArrayList<>();
+        if (parallel) {
+            filterChildren(root, filter, removed, changed);
+            List<PruneTask> tasks = new ArrayList<>(root.getChildren().size());
+            for (TreeNode<E> child : root.getChildren()) {
+                tasks.add(new PruneTask(child, filter));
+            }
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            int count = 1;
+            for (PruneTask task : tasks) {
+                removed.addAll(task.removed);
+                changed.addAll(task.changed);
+                count += task.top.count;
+            }
+            root.count = count;
+        } else {
+            pruneSubtree(root, filter, removed, changed);
+        }
+        int removedNodes = 0;
+        for (TreeNode<E> node : removed) {
+            removedNodes += node.count;
+        }
+        size -= removedNodes;
+        modCount++;
+        for (TreeNode<E> node : changed) {
+            invalidate(node);
+        }
+        endWrite();
+        try {
+            fireRemoved(removed);
+        } finally {
+            for (TreeNode<E> node : removed) {
+                disown(node);
+            }
+        }
+        return removedNodes;
+    }
+
+    /**
+     * Fires a REMOVED event for every removed subtree. If the notification of one fails,
+     * the others are still fired and the first failure is rethrown at the end, with the
+     * later ones suppressed.
+     */
+    private void fireRemoved(List<TreeNode<E>> removed) {
+        RuntimeException failure = null;
+        for (TreeNode<E> node : removed) {
+            try {
+                fire(TreeEvent.Kind.REMOVED, node, node.parent, null, null);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Prunes the subtree of a node that does not match, in post-order with an explicit
+     * stack, and recomputes the counts of the nodes that are kept.
+     */
+    private void pruneSubtree(TreeNode<E> top, Predicate<Position<E>> filter, List<TreeNode<E>> removed,
+                       List<TreeNode<E>> changed) {
+        Deque<TreeNode<E>> nodes = new ArrayDeque<>();
+        Deque<Iterator<TreeNode<E>>> iterators = new ArrayDeque<>();
+        filterChildren(top, filter, removed, changed);
+        nodes.push(top);
+        iterators.push(top.getChildren().iterator());
+        while (!nodes.isEmpty()) {
+            Iterator<TreeNode<E>> children = iterators.peek();
+            if (children.hasNext()) {
+                TreeNode<E> child = children.next();
+                filterChildren(child, filter, removed, changed);
+                nodes.push(child);
+                iterators.push(child.getChildren().iterator());
+            } else {
+                iterators.pop();
+                TreeNode<E> node = nodes.pop();
+                int count = 1;
+                for (TreeNode<E> c : node.getChildren()) {
+                    count += c.count;
+                }
+                node.count = count;
+            }
+        }
+    }
+
+    /**
+     * Tests the children of a node and, if any matches, replaces its children list with
+     * a new list of the others. The old list is left untouched for the read views.
+     */
+    private void filterChildren(TreeNode<E> node, Predicate<Position<E>> filter, List<TreeNode<E>> removed,
+                                List<TreeNode<E>> changed) {
+        List<TreeNode<E>> children = node.children;
+        if (children == null) {
+            return;
+        }
+        List<TreeNode<E>> kept = null;
+        for (int i = 0; i < children.size(); i++) {
+            TreeNode<E> child = children.get(i);
+            if (filter.test(child)) {
+                if (kept == null) {
+                    kept = new ArrayList<>(children.subList(0, i));
+                }
+                removed.add(child);
+            } else if (kept != null) {
+                kept.add(child);
+            }
+        }
+        if (kept != null) {
+            save(node);
+            node.children = kept.isEmpty() ? null : kept;
+            changed.add(node);
+        }
+    }
+
+    /**
+     * Adds a delta to the subtree counts of a node and all its ancestors.
+     *
+     * @param node  the deepest node whose subtree has changed
+     * @param delta the number of nodes added (or removed, if negative)
+     */
+    private void updateCounts(TreeNode<E> node, int delta) {
+        while (node != null) {
+            node.count += delta;
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Acquires a snapshot-isolated view of the tree. It can be used from any thread
+     * while the writer keeps changing the tree, and it always shows the tree as it was
+     * when the view was acquired.
+     * <p>
+     * Acquiring a view only waits for the mutation in progress, if any. Reading it takes
+     * no lock. While views are open, the writer saves the old state of every node it
+     * changes (its element and a copy of its children), at most once per node for all
+     * the views acquired since the last change of that node.
+     *
+     * @return the view, that must be closed after use
+     */
+    public ReadView readView() {
+        while (true) {
+            long at = version;
+            views.merge(at, 1, Integer::sum);
+            int currentSize = size;
+            TreeNode<E> currentRoot = root;
+            VarHandle.acquireFence();
+            if (writing == at) {
+                return new ReadView(at, currentSize, currentRoot);
+            }
+            // A mutation started before the view was registered, wait until it ends.
+            views.computeIfPresent(at, (v, count) -> count == 1 ? null : count - 1);
+            Thread.onSpinWait();
+        }
+    }
+
+    private void beginWrite() {
+        writing = version + 1;
+    }
+
+    private void endWrite() {
+        version = writing;
+    }
+
+    /**
+     * Saves the state of a node before the running mutation changes it, if an open view
+     * may need it. Versions that no open view needs any longer are dropped.
+     *
+     * @param node the node about to change
+     */
+    private void save(TreeNode<E> node) {
+        Version<E> head = node.history;
+        if (head == null && views.isEmpty()) {
+            return;
+        }
+        Map.Entry<Long, Integer> newest = views.lastEntry();
+        if (newest == null) {
+            // The views acquired from now on see the new state.
+            node.history = null;
+        } else if (head == null || newest.getKey() >= head.until) {
+            Object[] children = node.children == null ? NO_CHILDREN : node.children.toArray();
+            node.history = new Version<>(writing, node.element, children, prune(head));
+        }
+        // Otherwise every open view finds its state in the saved versions.
+    }
+
+    /**
+     * Drops the versions that were replaced before the oldest open view was acquired.
+     *
+     * @return the new head of the versions
+     */
+    private Version<E> prune(Version<E> head) {
+        Map.Entry<Long, Integer> oldest = views.firstEntry();
+        if (oldest == null || head == null || head.until <= oldest.getKey()) {
+            return null;
+        }
+        for (Version<E> v = head; v.older != null; v = v.older) {
+            if (v.older.until <= oldest.getKey()) {
+                v.older = null;
+                break;
+            }
+        }
+        return head;
+    }
+
+    /**
+     * Returns the state a node had at a version: the oldest saved version changed
+     * after it, or the current state of the node if it has not changed since then.
+     */
+    private Version<E> stateAt(TreeNode<E> node, long at) {
+        while (true) {
+            Version<E> head = node.history;
+            Version<E> found = null;
+            for (Version<E> v = head; v != null && v.until > at; v = v.older) {
+                found = v;
+            }
+            if (found != null) {
+                return found;
+            }
+            try {
+                E element = node.element;
+                List<TreeNode<E>> children = node.children;
+                Object[] array = children == null ? NO_CHILDREN : children.toArray();
+                VarHandle.acquireFence();
+                // If no version was saved meanwhile, the writer has not touched the node.
+                if (node.history == head) {
+                    return new Version<>(at, element, array, null);
+                }
+            } catch (RuntimeException e) {
+                // The writer changed the children while they were copied, read them again.
+            }
+        }
+    }
+
+    /**
+     * Returns the number of nodes of the subtree rooted at a node in constant time,
+     * using the count maintained in every node.
+     *
+     * @param v the root of the subtree
+     * @return the size of the subtree
+     */
+    @Override
+    public int subtreeSize(Position<E> v) {
+        TreeNode<E> node = checkPosition(v);
+        return node.count;
     }
 
     @Override
@@ -128,7 +865,11 @@ public class LinkedTree<E> implements NAryTree<E> {
         TreeNode<E> node = checkPosition(v);
         LinkedTree<E> tree = new LinkedTree<>();
         tree.root=node;
-        tree.size = computeSize(node);
+        tree.size = node.count;
+        tree.owner = owner;
+        tree.debugChecks = debugChecks;
+        tree.view = true;
+        tree.shareDot(this);
         return tree;
 
     }
@@ -137,9 +878,283 @@ public class LinkedTree<E> implements NAryTree<E> {
     public void attach(Position<E> p, NAryTree<E> t) {
         TreeNode<E> node = checkPosition(p);
         LinkedTree<E> tree = checkTree(t);
-        node.getChildren().addAll(tree.root.getChildren());
+        List<TreeNode<E>> attached;
+        if (tree.view) {
+            // The nodes of a subtree view still belong to its tree, so they are copied.
+            attached = new ArrayList<>();
+            for (TreeNode<E> child : tree.root.getChildren()) {
+                attached.add(ForkJoinPool.commonPool().invoke(new CopyTask(child, node, owner)));
+            }
+        } else {
+            if (tree.owner.resolve() != owner.resolve()) {
+                // The moved nodes keep their stamp, which now stands for this tree. The
+                // root of the attached tree stays there, so that tree gets a new owner.
+                tree.owner.forwardTo(owner);
+                tree.owner = new TreeOwner();
+                tree.root.owner = tree.owner;
+            }
+            attached = tree.root.getChildren();
+        }
+        beginWrite();
+        save(node);
+        for (TreeNode<E> child : attached) {
+            discardDot(child);
+            child.parent = node;
+            node.getOrCreateChildren().add(child);
+            updateCounts(node, child.count);
+            size += child.count;
+        }
+        modCount++;
+        invalidate(node);
+        endWrite();
+        fire(TreeEvent.Kind.ATTACHED, node, null, null, null);
+    }
 
+    /**
+     * Returns the structural hash of the subtree rooted at a node. It combines the
+     * element of the node with the hashes of its children, in order, so two subtrees
+     * with equal elements and shape have the same hash.
+     * <p>
+     * Hashes are cached in the nodes. Every mutation invalidates the cached values
+     * along the path to the root, and they are recomputed lazily, so only the
+     * subtrees that changed since the last call are visited again.
+     *
+     * @param p the root of the subtree
+     * @return the structural hash of the subtree
+     */
+    @Override
+    public int structuralHash(Position<E> p) {
+        TreeNode<E> node = checkPosition(p);
+        return computeHash(node);
     }
+
+    /**
+     * Recomputes the invalid hashes of a subtree in post-order, with an explicit stack so
+     * the depth of the tree does not matter, descending only into the invalid ones.
+     */
+    private int computeHash(TreeNode<E> top) {
+        if (top.hash != NO_HASH) {
+            return top.hash;
+        }
+        // hashes[d] accumulates the hash of the node at depth d of the current path, and
+        // cacheable[d] tells whether none of its hashes so far is NO_HASH.
+        Deque<TreeNode<E>> nodes = new ArrayDeque<>();
+        Deque<Iterator<TreeNode<E>>> iterators = new ArrayDeque<>();
+        int[] hashes = new int[16];
+        boolean[] cacheable = new boolean[16];
+        nodes.push(top);
+        iterators.push(top.getChildren().iterator());
+        hashes[0] = Objects.hashCode(top.element);
+        cacheable[0] = true;
+        while (true) {
+            Iterator<TreeNode<E>> children = iterators.peek();
+            int depth = nodes.size() - 1;
+            if (children.hasNext()) {
+                TreeNode<E> child = children.next();
+                if (child.hash != NO_HASH) {
+                    hashes[depth] = 31 * hashes[depth] + child.hash;
+                } else {
+                    if (depth + 1 == hashes.length) {
+                        hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+                        cacheable = Arrays.copyOf(cacheable, 2 * cacheable.length);
+                    }
+                    hashes[depth + 1] = Objects.hashCode(child.element);
+                    cacheable[depth + 1] = true;
+                    nodes.push(child);
+                    iterators.push(child.getChildren().iterator());
+                }
+            } else {
+                iterators.pop();
+                TreeNode<E> node = nodes.pop();
+                int hash = hashes[depth];
+                boolean cached = cacheable[depth] && hash != NO_HASH;
+                if (cached) {
+                    node.hash = hash;
+                }
+                if (depth == 0) {
+                    return hash;
+                }
+                hashes[depth - 1] = 31 * hashes[depth - 1] + hash;
+                cacheable[depth - 1] &= cached;
+            }
+        }
+    }
+
+    /**
+     * Invalidates every cached value that depends on the subtree of a node.
+     *
+     * @param node the node whose subtree has changed
+     */
+    private void invalidate(TreeNode<E> node) {
+        invalidateHash(node);
+        invalidateDot(node);
+    }
+
+    /**
+     * Marks the cached hash of a node and its ancestors as stale. The walk stops at
+     * the first node that is already stale, because its ancestors are stale too.
+     *
+     * @param node the node whose subtree has changed
+     */
+    private void invalidateHash(TreeNode<E> node) {
+        while (node != null && node.hash != NO_HASH) {
+            node.hash = NO_HASH;
+            node = node.parent;
+        }
+    }
+    @Override
+    public void addListener(TreeListener<E> listener) {
+        if (events == null) {
+            events = new TreeEventSupport<>();
+        }
+        events.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(TreeListener<E> listener) {
+        if (events != null) {
+            events.removeListener(listener);
+        }
+    }
+
+    @Override
+    public void setListenerExecutor(Executor executor) {
+        if (events == null) {
+            events = new TreeEventSupport<>();
+        }
+        events.setExecutor(executor);
+    }
+
+    /**
+     * Notifies a change to the listeners. The event is only created if there are
+     * listeners, so trees without them pay a null check per mutation.
+     */
+    private void fire(TreeEvent.Kind kind, Position<E> p, Position<E> second, E oldElement, E newElement) {
+        if (events != null && events.hasListeners()) {
+            events.fire(new TreeEvent<>(kind, p, second, oldElement, newElement));
+        }
+    }
+
+    /**
+     * Creates a LinkedTree with the same shape and elements as another tree in linear
+     * time. The nodes are built directly, with their children lists presized, instead
+     * of adding them one by one through the public API.
+     *
+     * @param source the tree to copy, of any implementation
+     * @param <E>    the type of elements stored in the tree
+     * @return the new tree
+     */
+    public static <E> LinkedTree<E> copyOf(Tree<E> source) {
+        LinkedTree<E> tree = new LinkedTree<>();
+        if (!source.isEmpty()) {
+            tree.root = tree.copyNode(source, source.root(), null);
+            tree.size = tree.root.count;
+        }
+        return tree;
+    }
+
+    /**
+     * Copies the subtree of a node of another tree, in pre-order with an explicit stack,
+     * adding the counts to the parents on the way back up.
+     */
+    private TreeNode<E> copyNode(Tree<E> source, Position<E> p, TreeNode<E> parent) {
+        Deque<TreeNode<E>> nodes = new ArrayDeque<>();
+        Deque<Iterator<? extends Position<E>>> iterators = new ArrayDeque<>();
+        TreeNode<E> top = newNode(source, p, parent, nodes, iterators);
+        while (!nodes.isEmpty()) {
+            Iterator<? extends Position<E>> children = iterators.peek();
+            if (children.hasNext()) {
+                TreeNode<E> node = nodes.peek();
+                node.getOrCreateChildren().add(newNode(source, children.next(), node, nodes, iterators));
+            } else {
+                iterators.pop();
+                TreeNode<E> node = nodes.pop();
+                if (node != top) {
+                    node.parent.count += node.count;
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Creates the copy of a node of another tree, with its children list presized, and
+     * pushes it with the iterator of the children to copy.
+     */
+    private TreeNode<E> newNode(Tree<E> source, Position<E> p, TreeNode<E> parent, Deque<TreeNode<E>> nodes,
+                                Deque<Iterator<? extends Position<E>>> iterators) {
+        TreeNode<E> node = new TreeNode<>(p.getElement(), parent, owner);
+        Iterable<? extends Position<E>> children = source.children(p);
+        if (children instanceof Collection) {
+            int n = ((Collection<?>) children).size();
+            if (n > 0) {
+                node.children = new ArrayList<>(n);
+            }
+        }
+        nodes.push(node);
+        iterators.push(children.iterator());
+        return node;
+    }
+
+    /**
+     * Returns an independent copy of the subtree rooted at a node. Large subtrees are
+     * copied in parallel on the common fork/join pool, one task per child, and every
+     * children list is created with its final size.
+     *
+     * @param v root of the copied subtree
+     * @return The new tree.
+     */
+    @Override
+    public LinkedTree<E> copySubtree(Position<E> v) {
+        TreeNode<E> node = checkPosition(v);
+        LinkedTree<E> tree = new LinkedTree<>();
+        tree.root = ForkJoinPool.commonPool().invoke(new CopyTask(node, null, tree.owner));
+        tree.size = tree.root.count;
+        return tree;
+    }
+
+    @Override
+    public LinkedTree<E> deepCopy() {
+        return isEmpty() ? new LinkedTree<>() : copySubtree(root);
+    }
+
+    /**
+     * Copies a node without its children, keeping its cached count and hash.
+     */
+    private TreeNode<E> copyNode(TreeNode<E> source, TreeNode<E> parent, TreeOwner owner) {
+        TreeNode<E> node = new TreeNode<>(source.element, parent, owner);
+        node.count = source.count;
+        node.hash = source.hash;
+        if (source.children != null && !source.children.isEmpty()) {
+            node.children = new ArrayList<>(source.children.size());
+        }
+        return node;
+    }
+
+    /**
+     * Copies a whole subtree sequentially, with an explicit stack.
+     */
+    private TreeNode<E> copyNodes(TreeNode<E> source, TreeNode<E> parent, TreeOwner owner) {
+        TreeNode<E> top = copyNode(source, parent, owner);
+        Deque<TreeNode<E>> sources = new ArrayDeque<>();
+        Deque<TreeNode<E>> copies = new ArrayDeque<>();
+        sources.push(source);
+        copies.push(top);
+        while (!sources.isEmpty()) {
+            TreeNode<E> from = sources.pop();
+            TreeNode<E> to = copies.pop();
+            for (TreeNode<E> child : from.getChildren()) {
+                TreeNode<E> copy = copyNode(child, to, owner);
+                to.children.add(copy);
+                if (copy.children != null) {
+                    sources.push(child);
+                    copies.push(copy);
+                }
+            }
+        }
+        return top;
+    }
+
     /**
      * Checks if the given tree is of type LinkedTree.
      *
@@ -173,7 +1188,67 @@ public class LinkedTree<E> implements NAryTree<E> {
     @Override
     public Iterable<? extends Position<E>> children(Position<E> v) {
         TreeNode<E> node = checkPosition(v);
-        return node.getChildren();
+        return new ChildrenView(node);
+    }
+
+    /**
+     * An unmodifiable view of the children of a node, which reads them from the node on
+     * every access. Its iterator fails fast.
+     */
+    private class ChildrenView extends AbstractList<Position<E>> {
+        private final TreeNode<E> node;
+
+        public ChildrenView(TreeNode<E> node) {
+            this.node = node;
+        }
+
+        @Override
+        public Position<E> get(int index) {
+            return node.getChildren().get(index);
+        }
+
+        @Override
+        public int size() {
+            return node.getChildren().size();
+        }
+
+        @Override
+        public Iterator<Position<E>> iterator() {
+            return new NodeIterator() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < node.getChildren().size();
+                }
+
+                @Override
+                protected TreeNode<E> nextNode() {
+                    return node.getChildren().get(next++);
+                }
+            };
+        }
+    }
+
+    /**
+     * Base of the lazy iterators, which checks the modification count of the tree before
+     * every step.
+     */
+    private abstract class NodeIterator implements Iterator<Position<E>> {
+        private final int expectedModCount = modCount;
+
+        protected abstract TreeNode<E> nextNode();
+
+        @Override
+        public Position<E> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return nextNode();
+        }
     }
 
     @Override
@@ -194,59 +1269,192 @@ public class LinkedTree<E> implements NAryTree<E> {
         return node == root;
     }
 
+    /**
+     * Returns a cursor placed on a node. For every node on its path, the cursor keeps the
+     * children list that holds it and its index there, so moving to the next sibling
+     * reads the list it already has instead of going back through the parent. No move
+     * allocates once the path has reached its deepest level.
+     *
+     * @param v the node where the cursor starts
+     * @return the cursor
+     */
     @Override
-    public Iterator<Position<E>> iterator() {
-        if (isEmpty()){
-            return new ArrayList<Position<E>>().iterator();
-        }
-        List<Position<E>> positions = new ArrayList<>();
-        breadthFirstTraversal(root, positions);
-        return positions.iterator();
+    public TreeCursor<E> cursor(Position<E> v) {
+        return new NodeCursor(checkPosition(v));
     }
-    public Iterator<Position<E>> iteratorPreOrder() {
-        if (isEmpty()){
-            return new ArrayList<Position<E>>().iterator();
+
+    private class NodeCursor implements TreeCursor<E> {
+        private TreeNode<E> current;
+        private int depth;
+        /** siblings[d] holds the node at depth d, or is null if it has not been looked up. */
+        private List<TreeNode<E>>[] siblings;
+        /** indices[d] is the index of the node at depth d in siblings[d]. */
+        private int[] indices;
+
+        @SuppressWarnings("unchecked")
+        public NodeCursor(TreeNode<E> start) {
+            current = start;
+            for (TreeNode<E> p = start.parent; p != null; p = p.parent) {
+                depth++;
+            }
+            siblings = (List<TreeNode<E>>[]) new List<?>[Math.max(16, depth + 1)];
+            indices = new int[siblings.length];
         }
-        List<Position<E>> positions = new ArrayList<>();
-        preOrderTraversal(root, positions);
-        return positions.iterator();
-    }
-    public Iterator<Position<E>> iteratorPostOrder() {
-        if (isEmpty()){
-            return new ArrayList<Position<E>>().iterator();
+
+        @Override
+        public boolean toParent() {
+            if (current.parent == null) {
+                return false;
+            }
+            current = current.parent;
+            depth--;
+            return true;
         }
-        List<Position<E>> positions = new ArrayList<>();
-        postOrderTraversal(root, positions);
-        return positions.iterator();
-    }
 
-    private void breadthFirstTraversal(TreeNode<E> root,List<Position<E>> positions ){
-        if(root != null){
-            List<TreeNode<E>> queue = new ArrayList<>();
-            queue.add(root);
-            while (!queue.isEmpty()){
-                TreeNode<E> nodeToVisit = queue.remove(0);
-                positions.add(nodeToVisit);
-                queue.addAll(nodeToVisit.getChildren());
+        @Override
+        public boolean toFirstChild() {
+            List<TreeNode<E>> children = current.children;
+            if (children == null || children.isEmpty()) {
+                return false;
             }
+            current = children.get(0);
+            depth++;
+            if (depth == indices.length) {
+                siblings = Arrays.copyOf(siblings, 2 * depth);
+                indices = Arrays.copyOf(indices, 2 * depth);
+            }
+            siblings[depth] = children;
+            indices[depth] = 0;
+            return true;
         }
-    }
-    private void preOrderTraversal(TreeNode<E> root,List<Position<E>> positions ){
-        if(root != null){
-            positions.add(root);
-            for(TreeNode<E> child: root.getChildren()){
-                preOrderTraversal(child,positions);
+
+        @Override
+        public boolean toNextSibling() {
+            List<TreeNode<E>> list = siblings[depth];
+            if (list == null) {
+                if (current.parent == null) {
+                    return false;
+                }
+                list = current.parent.children;
+                siblings[depth] = list;
+                indices[depth] = list.indexOf(current);
+            }
+            int next = indices[depth] + 1;
+            if (next >= list.size()) {
+                return false;
             }
+            current = list.get(next);
+            indices[depth] = next;
+            return true;
+        }
+
+        @Override
+        public E element() {
+            return current.element;
+        }
+
+        @Override
+        public int depth() {
+            return depth;
+        }
+
+        @Override
+        public Position<E> position() {
+            return current;
         }
     }
-    private void postOrderTraversal(TreeNode<E> root,List<Position<E>> positions ){
-        if(root != null){
-            for(TreeNode<E> child: root.getChildren()){
-                postOrderTraversal(child,positions);
+
+    /**
+     * Iterates the nodes in breadth-first order. The iterator is lazy: it keeps a queue
+     * of the nodes to visit instead of copying the whole tree.
+     */
+    @Override
+    public Iterator<Position<E>> iterator() {
+        Deque<TreeNode<E>> queue = new ArrayDeque<>();
+        if (root != null) {
+            queue.add(root);
+        }
+        return new NodeIterator() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            protected TreeNode<E> nextNode() {
+                TreeNode<E> node = queue.poll();
+                if (node.children != null) {
+                    queue.addAll(node.children);
+                }
+                return node;
+            }
+        };
+    }
+
+    /**
+     * Iterates the nodes in pre-order, lazily, with a stack of the nodes to visit.
+     */
+    public Iterator<Position<E>> iteratorPreOrder() {
+        Deque<TreeNode<E>> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
+        return new NodeIterator() {
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
             }
-            positions.add(root);
+
+            @Override
+            protected TreeNode<E> nextNode() {
+                TreeNode<E> node = stack.pop();
+                List<TreeNode<E>> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(children.get(i));
+                }
+                return node;
+            }
+        };
+    }
+
+    /**
+     * Iterates the nodes in post-order, lazily, with a stack of the nodes on the path
+     * and the index of the next child of each one. The indices are kept in an int array
+     * that grows with the depth, so they are not boxed.
+     */
+    public Iterator<Position<E>> iteratorPostOrder() {
+        Deque<TreeNode<E>> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
         }
+        return new NodeIterator() {
+            private int[] nextChild = new int[16];
+
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            protected TreeNode<E> nextNode() {
+                while (true) {
+                    TreeNode<E> node = stack.peek();
+                    int top = stack.size() - 1;
+                    int i = nextChild[top];
+                    if (i == node.getChildren().size()) {
+                        return stack.pop();
+                    }
+                    nextChild[top] = i + 1;
+                    if (top + 1 == nextChild.length) {
+                        nextChild = Arrays.copyOf(nextChild, 2 * nextChild.length);
+                    }
+                    nextChild[top + 1] = 0;
+                    stack.push(node.getChildren().get(i));
+                }
+            }
+        };
     }
+
     public int size() {
         return size;
     }
@@ -0,0 +1,150 @@
+import material.Position;
+
+
+/**
+ * An n-ary tree whose elements are long values, stored unboxed in the nodes.
+ * <p>
+ * The primitive methods, such as {@link #add(long, Position)}, {@link #getLong(Position)},
+ * {@link #replace(Position, long)} and the cursor's {@link Cursor#longElement()}, read and
+ * write the long field of the node, so they never box and an element read does not follow
+ * a pointer to a Long. The structure, the position checks and the boxed view are
+ * shared with IntNAryTree, see {@link PrimitiveNAryTree}.
+ */
+public class LongNAryTree extends PrimitiveNAryTree<Long, LongNAryTree> {
+
+    private static final class LongNode extends Node<Long> {
+        private long element;
+
+        private LongNode(long element) {
+            this.element = element;
+        }
+
+        @Override
+        public Long getElement() {
+            return element;
+        }
+
+        @Override
+        protected Node<Long> copy() {
+            return new LongNode(element);
+        }
+
+        @Override
+        protected void swapElement(Node<Long> other) {
+            LongNode node = (LongNode) other;
+            long e = element;
+            element = node.element;
+            node.element = e;
+        }
+
+        @Override
+        protected Long replaceElement(Long e) {
+            long old = element;
+            element = unbox(e);
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            return Long.toString(element);
+        }
+    }
+
+    public LongNAryTree() {
+    }
+
+    /**
+     * Creates a tree with the same shape and elements as another tree in linear time.
+     *
+     * @param source the tree to copy, which must not contain null elements
+     * @return the new tree
+     */
+    public static LongNAryTree copyOf(Tree<Long> source) {
+        LongNAryTree tree = new LongNAryTree();
+        tree.copyFrom(source);
+        return tree;
+    }
+
+    private static long unbox(Long element) {
+        if (element == null) {
+            throw new RuntimeException("The element is invalid");
+        }
+        return element;
+    }
+
+    @Override
+    protected LongNAryTree newTree() {
+        return new LongNAryTree();
+    }
+
+    @Override
+    protected Node<Long> newNode(Long element) {
+        return new LongNode(unbox(element));
+    }
+
+    /**
+     * Returns the element of a node without boxing it.
+     *
+     * @param p the node
+     * @return the element of the node
+     */
+    public long getLong(Position<Long> p) {
+        return ((LongNode) checkPosition(p)).element;
+    }
+
+    public Position<Long> addRoot(long e) {
+        return addRootNode(new LongNode(e));
+    }
+
+    /**
+     * Adds a node as the last child of another, in constant time plus the update of the
+     * counts of the ancestors.
+     */
+    public Position<Long> add(long element, Position<Long> p) {
+        return addNode(new LongNode(element), p);
+    }
+
+    /**
+     * Adds a node as the n-th child of another.
+     */
+    public Position<Long> add(long element, Position<Long> p, int n) {
+        return addNode(new LongNode(element), p, n);
+    }
+
+    /**
+     * Replaces the element of a node without boxing it.
+     *
+     * @return the old element
+     */
+    public long replace(Position<Long> p, long e) {
+        LongNode node = (LongNode) checkPosition(p);
+        long old = node.element;
+        node.element = e;
+        if (replaced(node)) {
+            fireReplaced(node, old);
+        }
+        return old;
+    }
+
+    @Override
+    public Cursor cursor(Position<Long> v) {
+        return new Cursor(checkPosition(v));
+    }
+
+    /**
+     * A cursor over the nodes of the tree that also reads their elements unboxed.
+     */
+    public static class Cursor extends NodeCursor<Long> {
+
+        private Cursor(Node<Long> start) {
+            super(start);
+        }
+
+        /**
+         * Returns the element of the current node without boxing it.
+         */
+        public long longElement() {
+            return ((LongNode) node()).element;
+        }
+    }
+}
@@ -1,5 +1,15 @@
 import material.Position;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
 
 public interface NAryTree<E> extends Tree<E> {
 
@@ -55,6 +65,57 @@ public interface NAryTree<E> extends Tree<E> {
      */
     public void remove(Position<E> p);
 
+    /**
+     * Removes every node that matches a predicate, together with its subtree. The nodes
+     * below a match are not tested.
+     * <p>
+     * This default implementation finds the matching nodes in one traversal and then
+     * removes them one by one. Implementations may rebuild the children of every node
+     * in a single pass instead.
+     *
+     * @param filter the predicate that selects the nodes to remove
+     * @return the number of removed nodes
+     */
+    public default int removeIf(Predicate<Position<E>> filter) {
+        if (isEmpty()) {
+            return 0;
+        }
+        List<Position<E>> matches = new ArrayList<>();
+        Deque<Position<E>> stack = new ArrayDeque<>();
+        stack.push(root());
+        while (!stack.isEmpty()) {
+            Position<E> node = stack.pop();
+            if (filter.test(node)) {
+                matches.add(node);
+            } else {
+                for (Position<E> child : children(node)) {
+                    stack.push(child);
+                }
+            }
+        }
+        int removed = 0;
+        for (Position<E> node : matches) {
+            removed += subtreeSize(node);
+            remove(node);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every node that matches a predicate, together with its subtree, optionally
+     * pruning the subtrees of the children of the root in parallel. In parallel, the
+     * predicate is called from several threads and must be thread-safe.
+     * <p>
+     * This default implementation always prunes sequentially.
+     *
+     * @param filter   the predicate that selects the nodes to remove
+     * @param parallel whether the subtrees of the children of the root are pruned in parallel
+     * @return the number of removed nodes
+     */
+    public default int removeIf(Predicate<Position<E>> filter, boolean parallel) {
+        return removeIf(filter);
+    }
+
     /**
      * Create un new tree from node v of the same type that invoked class.
      *
@@ -72,4 +133,184 @@ public interface NAryTree<E> extends Tree<E> {
      */
     public void attach(Position<E> p, NAryTree<E> t);
 
+    /**
+     * Create a new tree of the same type with a copy of the subtree rooted at v. Unlike
+     * subTree, the new tree does not share any node with this one.
+     *
+     * @param v root of the copied subtree
+     * @return The new tree.
+     */
+    public NAryTree<E> copySubtree(Position<E> v);
+
+    /**
+     * Create a new tree of the same type with a copy of this tree, that does not share
+     * any node with it.
+     *
+     * @return The new tree.
+     */
+    public NAryTree<E> deepCopy();
+
+    /**
+     * Registers a listener that receives the changes made to the tree in batches.
+     *
+     * @param listener the listener
+     */
+    public void addListener(TreeListener<E> listener);
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(TreeListener<E> listener);
+
+    /**
+     * Sets the executor that delivers the batches of changes to the listeners. By
+     * default they are delivered asynchronously on the common fork/join pool.
+     *
+     * @param executor the executor
+     */
+    public void setListenerExecutor(Executor executor);
+
+    /**
+     * Returns the structural hash of the subtree rooted at a node. The hash of a node
+     * is the hash of its element combined, in order, with the hashes of its children,
+     * so identical subtrees always have the same hash, even in different trees.
+     * <p>
+     * This default implementation walks the whole subtree. Implementations may cache
+     * the hashes and only recompute the subtrees that changed.
+     *
+     * @param p the root of the subtree
+     * @return the structural hash of the subtree
+     */
+    public default int structuralHash(Position<E> p) {
+        // Post-order with an explicit stack: hashes[d] accumulates the hash of the node
+        // at depth d of the current path.
+        Deque<Iterator<? extends Position<E>>> iterators = new ArrayDeque<>();
+        int[] hashes = new int[16];
+        hashes[0] = Objects.hashCode(p.getElement());
+        iterators.push(children(p).iterator());
+        while (true) {
+            Iterator<? extends Position<E>> children = iterators.peek();
+            int top = iterators.size() - 1;
+            if (children.hasNext()) {
+                Position<E> child = children.next();
+                if (top + 1 == hashes.length) {
+                    hashes = Arrays.copyOf(hashes, 2 * hashes.length);
+                }
+                hashes[top + 1] = Objects.hashCode(child.getElement());
+                iterators.push(children(child).iterator());
+            } else {
+                iterators.pop();
+                if (top == 0) {
+                    return hashes[0];
+                }
+                hashes[top - 1] = 31 * hashes[top - 1] + hashes[top];
+            }
+        }
+    }
+
+    /**
+     * Returns the roots of every subtree of this tree that is isomorphic to a pattern,
+     * that is, with the same elements and shape regardless of the order of the children.
+     *
+     * @param pattern the tree to search for
+     * @return the matching positions, in post-order
+     */
+    public default List<Position<E>> findOccurrences(NAryTree<E> pattern) {
+        return TreeIsomorphism.findOccurrences(this, pattern);
+    }
+
+    /**
+     * Groups the subtrees of this tree that are isomorphic to each other.
+     *
+     * @return the groups with more than one subtree, each one as a list of their roots
+     */
+    public default List<List<Position<E>>> groupIsomorphicSubtrees() {
+        return TreeIsomorphism.groupIsomorphicSubtrees(this);
+    }
+
+    /**
+     * Returns a read-only copy of this tree laid out in pre-order in contiguous arrays,
+     * which is faster to traverse than the linked representations.
+     *
+     * @return the compacted tree
+     */
+    public default CompactTree<E> compact() {
+        return new CompactTree<>(this);
+    }
+
+    /**
+     * Returns the number of nodes of the subtree rooted at a node.
+     * <p>
+     * This default implementation walks the whole subtree. Implementations may keep
+     * the count in every node and answer in constant time.
+     *
+     * @param v the root of the subtree
+     * @return the size of the subtree
+     */
+    public default int subtreeSize(Position<E> v) {
+        int size = 0;
+        Deque<Position<E>> stack = new ArrayDeque<>();
+        stack.push(v);
+        while (!stack.isEmpty()) {
+            size++;
+            for (Position<E> child : children(stack.pop())) {
+                stack.push(child);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the k-th node of the tree in pre-order, starting at 0. Whole subtrees are
+     * skipped using their size, so it visits O(depth * fanout) nodes when the subtree
+     * sizes are available in constant time.
+     *
+     * @param k the index of the node in pre-order
+     * @return the position of the k-th node
+     * @throws RuntimeException if k is not between 0 and the size of the tree minus 1
+     */
+    public default Position<E> select(int k) {
+        if (k < 0 || isEmpty() || k >= subtreeSize(root())) {
+            throw new RuntimeException("The index is out of range");
+        }
+        Position<E> node = root();
+        while (k > 0) {
+            k--;
+            for (Position<E> child : children(node)) {
+                int size = subtreeSize(child);
+                if (k < size) {
+                    node = child;
+                    break;
+                }
+                k -= size;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns the index of a node in the pre-order of the tree, starting at 0. It is
+     * the inverse of {@link #select(int)}.
+     *
+     * @param p the position of the node
+     * @return the index of the node in pre-order
+     */
+    public default int rank(Position<E> p) {
+        int rank = 0;
+        while (!isRoot(p)) {
+            Position<E> parent = parent(p);
+            rank++;
+            for (Position<E> sibling : children(parent)) {
+                if (sibling.equals(p)) {
+                    break;
+                }
+                rank += subtreeSize(sibling);
+            }
+            p = parent;
+        }
+        return rank;
+    }
+
 }
@@ -0,0 +1,83 @@
+import material.Position;
+
+import java.util.Iterator;
+
+
+/**
+ * A cursor for any tree, built on its positions. It is the fallback used by
+ * {@link Tree#cursor(Position)}, and it allocates the iterables that the tree returns:
+ * a move to the next sibling scans the children of the parent.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public class PositionCursor<E> implements TreeCursor<E> {
+
+    private final Tree<E> tree;
+    private Position<E> current;
+    private int depth;
+
+    public PositionCursor(Tree<E> tree, Position<E> start) {
+        if (start == null) {
+            throw new RuntimeException("The position is invalid");
+        }
+        this.tree = tree;
+        this.current = start;
+        for (Position<E> p = tree.parent(start); p != null; p = tree.parent(p)) {
+            depth++;
+        }
+    }
+
+    @Override
+    public boolean toParent() {
+        Position<E> parent = tree.parent(current);
+        if (parent == null) {
+            return false;
+        }
+        current = parent;
+        depth--;
+        return true;
+    }
+
+    @Override
+    public boolean toFirstChild() {
+        Iterator<? extends Position<E>> children = tree.children(current).iterator();
+        if (!children.hasNext()) {
+            return false;
+        }
+        current = children.next();
+        depth++;
+        return true;
+    }
+
+    @Override
+    public boolean toNextSibling() {
+        Position<E> parent = tree.parent(current);
+        if (parent == null) {
+            return false;
+        }
+        Iterator<? extends Position<E>> siblings = tree.children(parent).iterator();
+        while (!siblings.next().equals(current)) {
+            // skip the previous siblings
+        }
+        if (!siblings.hasNext()) {
+            return false;
+        }
+        current = siblings.next();
+        return true;
+    }
+
+    @Override
+    public E element() {
+        return current.getElement();
+    }
+
+    @Override
+    public int depth() {
+        return depth;
+    }
+
+    @Override
+    public Position<E> position() {
+        return current;
+    }
+}
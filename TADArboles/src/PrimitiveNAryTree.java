@@ -0,0 +1,800 @@
+import material.Position;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+
+
+/**
+ * The common implementation of {@link IntNAryTree} and {@link LongNAryTree}, the n-ary
+ * trees whose elements are stored unboxed in the nodes.
+ * <p>
+ * The nodes are linked as in LCRSTree, through their first child, next sibling and last
+ * child, and keep the number of nodes of their subtree. The subclasses add the primitive
+ * element to the nodes and the methods that read and write it without boxing.
+ * <p>
+ * Every node is stamped with the {@link TreeOwner} of its tree, as in LinkedTree, so a
+ * position of another tree or of a removed subtree is rejected by a field comparison. A
+ * subtree shares the owner of its tree, and attaching a tree moves its nodes by forwarding
+ * its owner.
+ * <p>
+ * {@link #boxed()} returns a view of the same nodes as an {@code NAryTree}, for the code
+ * that needs the general interface. The positions of the view are the positions of this
+ * tree, and {@link Position#getElement()} boxes the element.
+ *
+ * @param <E> the boxed type of the elements
+ * @param <T> the type of the tree
+ */
+public abstract class PrimitiveNAryTree<E, T extends PrimitiveNAryTree<E, T>> {
+
+    /**
+     * A node of the tree. The subclasses add the element.
+     */
+    protected abstract static class Node<E> implements Position<E> {
+        private Node<E> parent;
+        private Node<E> firstChild;
+        private Node<E> nextSibling;
+        private Node<E> lastChild;
+        private int count = 1;
+        private TreeOwner owner;
+
+        /**
+         * Returns a new node with the same element and no links.
+         */
+        protected abstract Node<E> copy();
+
+        /**
+         * Exchanges the element of this node with the element of another node of the
+         * same type.
+         */
+        protected abstract void swapElement(Node<E> other);
+
+        /**
+         * Replaces the element of this node with a boxed one, rejecting null.
+         *
+         * @return the old element
+         */
+        protected abstract E replaceElement(E element);
+    }
+
+    private Node<E> root;
+    private int size;
+    private TreeEventSupport<E> events;
+    private Boxed boxed;
+    /** The tree whose nodes this subtree shares, or null if it is not a subtree. */
+    private PrimitiveNAryTree<E, T> base;
+    private TreeOwner owner = new TreeOwner();
+    private boolean debugChecks = PrimitiveNAryTree.class.desiredAssertionStatus();
+
+    /**
+     * Returns a new empty tree of the same type.
+     */
+    protected abstract T newTree();
+
+    /**
+     * Returns a new node that stores a boxed element, rejecting null.
+     */
+    protected abstract Node<E> newNode(E element);
+
+    /**
+     * Fills this empty tree with the shape and elements of another tree, in linear time.
+     * Every copy is linked to its parent when its own subtree is done, so its count is
+     * already known.
+     *
+     * @param source the tree to copy, which must not contain null elements
+     */
+    protected void copyFrom(Tree<E> source) {
+        if (source.isEmpty()) {
+            return;
+        }
+        Node<E> top = newNode(source.root().getElement());
+        top.owner = owner;
+        Deque<Node<E>> nodes = new ArrayDeque<>();
+        Deque<Iterator<? extends Position<E>>> iterators = new ArrayDeque<>();
+        nodes.push(top);
+        iterators.push(source.children(source.root()).iterator());
+        while (!nodes.isEmpty()) {
+            Iterator<? extends Position<E>> children = iterators.peek();
+            if (children.hasNext()) {
+                Position<E> child = children.next();
+                Node<E> node = newNode(child.getElement());
+                node.parent = nodes.peek();
+                node.owner = owner;
+                nodes.push(node);
+                iterators.push(source.children(child).iterator());
+            } else {
+                iterators.pop();
+                Node<E> node = nodes.pop();
+                if (node != top) {
+                    link(node.parent, node);
+                }
+            }
+        }
+        root = top;
+        size = top.count;
+    }
+
+    /**
+     * Appends a node, whose count is already computed, as the last child of another.
+     */
+    private static <E> void link(Node<E> parent, Node<E> child) {
+        if (parent.lastChild == null) {
+            parent.firstChild = child;
+        } else {
+            parent.lastChild.nextSibling = child;
+        }
+        parent.lastChild = child;
+        parent.count += child.count;
+    }
+
+    /**
+     * Selects how positions are checked, as in LinkedTree. The fast checks compare the
+     * owner stamp of the node, which is cleared on every node of a removed subtree. The
+     * debug checks also walk from the node to the root, rejecting, in a subtree, the nodes
+     * outside it. They are on by default when assertions are enabled.
+     *
+     * @param debug whether the debug checks are done
+     */
+    public void setDebugChecks(boolean debug) {
+        this.debugChecks = debug;
+    }
+
+    /**
+     * Returns the node of a position of this tree.
+     *
+     * @throws RuntimeException if the position belongs to another tree or has been removed
+     */
+    @SuppressWarnings("unchecked")
+    protected Node<E> checkPosition(Position<E> p) {
+        if (!(p instanceof Node)) {
+            throw new RuntimeException("The position is invalid");
+        }
+        Node<E> node = (Node<E>) p;
+        if (node.owner != owner && !adopt(node)) {
+            throw new RuntimeException("The position is invalid");
+        }
+        if (debugChecks) {
+            for (Node<E> n = node; n != root; n = n.parent) {
+                if (n == null || n.owner == null) {
+                    throw new RuntimeException("The position is invalid");
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Restamps a node whose owner has been forwarded to the owner of this tree.
+     *
+     * @return false if the node belongs to another tree or has been removed
+     */
+    private boolean adopt(Node<E> node) {
+        if (node.owner == null || node.owner.resolve() != owner.resolve()) {
+            return false;
+        }
+        node.owner = owner;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public Position<E> root() {
+        return root;
+    }
+
+    public Position<E> parent(Position<E> v) {
+        return checkPosition(v).parent;
+    }
+
+    /**
+     * Returns the children of a node. The iterable follows the sibling links, so it does
+     * not copy them into a list.
+     */
+    public Iterable<Position<E>> children(Position<E> v) {
+        Node<E> node = checkPosition(v);
+        return () -> new Iterator<Position<E>>() {
+            private Node<E> next = node.firstChild;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Position<E> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Node<E> child = next;
+                next = next.nextSibling;
+                return child;
+            }
+        };
+    }
+
+    public boolean isInternal(Position<E> v) {
+        return checkPosition(v).firstChild != null;
+    }
+
+    public boolean isLeaf(Position<E> v) {
+        return checkPosition(v).firstChild == null;
+    }
+
+    public boolean isRoot(Position<E> v) {
+        return checkPosition(v) == root;
+    }
+
+    /**
+     * Returns the number of nodes of the subtree rooted at a node in constant time.
+     */
+    public int subtreeSize(Position<E> v) {
+        return checkPosition(v).count;
+    }
+
+    /**
+     * Makes a new node the root of the tree.
+     */
+    protected Position<E> addRootNode(Node<E> node) {
+        if (!isEmpty()) {
+            throw new RuntimeException("Tree already has a root");
+        }
+        node.owner = owner;
+        root = node;
+        size = 1;
+        fire(TreeEvent.Kind.ADDED, root, null, null, root);
+        return root;
+    }
+
+    /**
+     * Adds a new node as the last child of another, in constant time plus the update of
+     * the counts of the ancestors.
+     */
+    protected Position<E> addNode(Node<E> node, Position<E> p) {
+        Node<E> parent = checkPosition(p);
+        node.parent = parent;
+        node.owner = owner;
+        if (parent.lastChild == null) {
+            parent.firstChild = node;
+        } else {
+            parent.lastChild.nextSibling = node;
+        }
+        parent.lastChild = node;
+        added(parent, node);
+        return node;
+    }
+
+    /**
+     * Adds a new node as the n-th child of another.
+     */
+    protected Position<E> addNode(Node<E> node, Position<E> p, int n) {
+        Node<E> parent = checkPosition(p);
+        if (n < 0) {
+            throw new RuntimeException("The position is invalid");
+        }
+        Node<E> previous = null;
+        Node<E> next = parent.firstChild;
+        for (int i = 0; i < n; i++) {
+            if (next == null) {
+                throw new RuntimeException("The position is invalid");
+            }
+            previous = next;
+            next = next.nextSibling;
+        }
+        node.parent = parent;
+        node.owner = owner;
+        node.nextSibling = next;
+        if (previous == null) {
+            parent.firstChild = node;
+        } else {
+            previous.nextSibling = node;
+        }
+        if (next == null) {
+            parent.lastChild = node;
+        }
+        added(parent, node);
+        return node;
+    }
+
+    private void added(Node<E> parent, Node<E> node) {
+        updateCounts(parent, 1);
+        invalidate(parent);
+        size++;
+        fire(TreeEvent.Kind.ADDED, node, null, null, node);
+    }
+
+    /**
+     * Marks the cached values that depend on a node whose element has been replaced as
+     * stale.
+     *
+     * @return whether there are listeners to notify with {@link #fireReplaced}
+     */
+    protected boolean replaced(Node<E> node) {
+        invalidate(node);
+        return events != null && events.hasListeners();
+    }
+
+    /**
+     * Notifies the listeners that the element of a node has been replaced. The primitive
+     * replace methods only call it, and box the old element, when {@link #replaced}
+     * returns true.
+     */
+    protected void fireReplaced(Node<E> node, E oldElement) {
+        fire(TreeEvent.Kind.REPLACED, node, null, oldElement, node);
+    }
+
+    public void swapElements(Position<E> p1, Position<E> p2) {
+        Node<E> node1 = checkPosition(p1);
+        Node<E> node2 = checkPosition(p2);
+        node1.swapElement(node2);
+        invalidate(node1);
+        invalidate(node2);
+        fire(TreeEvent.Kind.SWAPPED, node1, node2, null, null);
+    }
+
+    /**
+     * Removes a node and its subtree. The root of a subtree is only detached from the
+     * subtree, since its nodes still belong to the tree it was taken from.
+     */
+    public void remove(Position<E> p) {
+        Node<E> node = checkPosition(p);
+        boolean detached = base != null && node == root;
+        Node<E> parent = node.parent;
+        if (node == root) {
+            root = null;
+            size = 0;
+        } else {
+            Node<E> previous = null;
+            if (parent.firstChild == node) {
+                parent.firstChild = node.nextSibling;
+            } else {
+                previous = parent.firstChild;
+                while (previous.nextSibling != node) {
+                    previous = previous.nextSibling;
+                }
+                previous.nextSibling = node.nextSibling;
+            }
+            if (parent.lastChild == node) {
+                parent.lastChild = previous;
+            }
+            node.nextSibling = null;
+            updateCounts(parent, -node.count);
+            invalidate(parent);
+            size -= node.count;
+        }
+        try {
+            fire(TreeEvent.Kind.REMOVED, node, root == null ? null : parent, null, null);
+        } finally {
+            if (!detached) {
+                disown(node);
+            }
+        }
+    }
+
+    /**
+     * Clears the owner stamp of every node of a removed subtree, so the fast checks
+     * reject all its positions, not only the position of its root.
+     */
+    private static <E> void disown(Node<E> top) {
+        Deque<Node<E>> stack = new ArrayDeque<>();
+        stack.push(top);
+        while (!stack.isEmpty()) {
+            Node<E> node = stack.pop();
+            node.owner = null;
+            for (Node<E> child = node.firstChild; child != null; child = child.nextSibling) {
+                stack.push(child);
+            }
+        }
+    }
+
+    /**
+     * Returns a tree rooted at a node that shares the nodes of this tree.
+     */
+    public T subTree(Position<E> v) {
+        Node<E> node = checkPosition(v);
+        T tree = newTree();
+        PrimitiveNAryTree<E, T> sub = tree;
+        sub.root = node;
+        sub.size = node.count;
+        sub.owner = owner;
+        sub.debugChecks = debugChecks;
+        sub.base = base == null ? this : base;
+        return tree;
+    }
+
+    /**
+     * Makes the root of another tree the last child of a node. The nodes of the other tree
+     * are moved, so it becomes empty, unless it is a subtree of another tree, whose nodes
+     * are copied instead.
+     *
+     * @throws RuntimeException if the other tree shares its nodes with this one, as this
+     *                          tree itself, its subtrees and the tree it was taken from do
+     */
+    public void attach(Position<E> p, T t) {
+        Node<E> node = checkPosition(p);
+        PrimitiveNAryTree<E, T> tree = t;
+        if (tree.owner.resolve() == owner.resolve()) {
+            throw new RuntimeException("The tree is invalid");
+        }
+        if (tree.isEmpty()) {
+            return;
+        }
+        Node<E> top;
+        if (tree.base != null) {
+            top = tree.copyNodes(tree.root, owner);
+        } else {
+            top = tree.root;
+            // The moved nodes keep their stamp, which now stands for this tree.
+            tree.owner.forwardTo(owner);
+            tree.owner = new TreeOwner();
+            tree.root = null;
+            tree.size = 0;
+        }
+        if (boxed != null) {
+            boxed.discardDot(top);
+        }
+        top.parent = node;
+        link(node, top);
+        updateCounts(node.parent, top.count);
+        invalidate(node);
+        size += top.count;
+        fire(TreeEvent.Kind.ATTACHED, node, null, null, null);
+    }
+
+    /**
+     * Returns an independent copy of the subtree rooted at a node.
+     */
+    public T copySubtree(Position<E> v) {
+        Node<E> source = checkPosition(v);
+        T tree = newTree();
+        PrimitiveNAryTree<E, T> copy = tree;
+        copy.root = copyNodes(source, copy.owner);
+        copy.size = source.count;
+        return tree;
+    }
+
+    /**
+     * Copies the subtree of a node with an explicit stack, stamping the copies with an
+     * owner.
+     */
+    private Node<E> copyNodes(Node<E> source, TreeOwner owner) {
+        Node<E> top = source.copy();
+        top.count = source.count;
+        top.owner = owner;
+        Deque<Node<E>> sources = new ArrayDeque<>();
+        Deque<Node<E>> copies = new ArrayDeque<>();
+        sources.push(source);
+        copies.push(top);
+        while (!sources.isEmpty()) {
+            Node<E> from = sources.pop();
+            Node<E> to = copies.pop();
+            for (Node<E> child = from.firstChild; child != null; child = child.nextSibling) {
+                Node<E> copy = child.copy();
+                copy.parent = to;
+                copy.count = child.count;
+                copy.owner = owner;
+                if (to.lastChild == null) {
+                    to.firstChild = copy;
+                } else {
+                    to.lastChild.nextSibling = copy;
+                }
+                to.lastChild = copy;
+                sources.push(child);
+                copies.push(copy);
+            }
+        }
+        return top;
+    }
+
+    public T deepCopy() {
+        return isEmpty() ? newTree() : copySubtree(root);
+    }
+
+    /**
+     * Returns a cursor placed on a node, which reads the elements without boxing them.
+     */
+    public abstract NodeCursor<E> cursor(Position<E> v);
+
+    /**
+     * A cursor over the nodes of the tree. The subclasses add the method that reads the
+     * element of the current node unboxed.
+     */
+    public abstract static class NodeCursor<E> implements TreeCursor<E> {
+        private Node<E> current;
+        private int depth;
+
+        protected NodeCursor(Node<E> start) {
+            current = start;
+            for (Node<E> p = start.parent; p != null; p = p.parent) {
+                depth++;
+            }
+        }
+
+        /**
+         * Returns the current node.
+         */
+        protected Node<E> node() {
+            return current;
+        }
+
+        @Override
+        public boolean toParent() {
+            if (current.parent == null) {
+                return false;
+            }
+            current = current.parent;
+            depth--;
+            return true;
+        }
+
+        @Override
+        public boolean toFirstChild() {
+            if (current.firstChild == null) {
+                return false;
+            }
+            current = current.firstChild;
+            depth++;
+            return true;
+        }
+
+        @Override
+        public boolean toNextSibling() {
+            if (current.nextSibling == null) {
+                return false;
+            }
+            current = current.nextSibling;
+            return true;
+        }
+
+        @Override
+        public E element() {
+            return current.getElement();
+        }
+
+        @Override
+        public int depth() {
+            return depth;
+        }
+
+        @Override
+        public Position<E> position() {
+            return current;
+        }
+    }
+
+    public void addListener(TreeListener<E> listener) {
+        if (events == null) {
+            events = new TreeEventSupport<>();
+        }
+        events.addListener(listener);
+    }
+
+    public void removeListener(TreeListener<E> listener) {
+        if (events != null) {
+            events.removeListener(listener);
+        }
+    }
+
+    public void setListenerExecutor(Executor executor) {
+        if (events == null) {
+            events = new TreeEventSupport<>();
+        }
+        events.setExecutor(executor);
+    }
+
+    /**
+     * Notifies the listeners, if any. The new element is read from a node, so it is only
+     * boxed when there is someone to tell.
+     */
+    private void fire(TreeEvent.Kind kind, Position<E> p, Position<E> second, E oldElement, Node<E> added) {
+        if (events != null && events.hasListeners()) {
+            events.fire(new TreeEvent<>(kind, p, second, oldElement, added == null ? null : added.getElement()));
+        }
+    }
+
+    private static <E> void updateCounts(Node<E> node, int delta) {
+        while (node != null) {
+            node.count += delta;
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Marks the DOT fragments of the boxed view that depend on a node as stale. The
+     * boxed view of a subtree tells the boxed view of its base tree instead.
+     */
+    private void invalidate(Node<E> node) {
+        if (boxed != null || base != null) {
+            boxed().invalidateDot(node);
+        }
+    }
+
+    /**
+     * Returns a view of this tree as an {@code NAryTree}. Every element that goes through
+     * the view is boxed or unboxed, and null elements are rejected. Its subtrees and
+     * copies are views of new trees of the same type, and attaching a tree that is not
+     * such a view copies it first.
+     *
+     * @return the view, the same on every call
+     */
+    public DrawableTree<E> boxed() {
+        if (boxed == null) {
+            boxed = new Boxed();
+            if (base != null) {
+                boxed.shareDot(base.boxed());
+            }
+        }
+        return boxed;
+    }
+
+    private class Boxed extends DrawableTree<E> {
+
+        private PrimitiveNAryTree<E, T> tree() {
+            return PrimitiveNAryTree.this;
+        }
+
+        @Override
+        public Position<E> addRoot(E e) {
+            return addRootNode(newNode(e));
+        }
+
+        @Override
+        public Position<E> add(E element, Position<E> p) {
+            return addNode(newNode(element), p);
+        }
+
+        @Override
+        public Position<E> add(E element, Position<E> p, int n) {
+            return addNode(newNode(element), p, n);
+        }
+
+        @Override
+        public void swapElements(Position<E> p1, Position<E> p2) {
+            PrimitiveNAryTree.this.swapElements(p1, p2);
+        }
+
+        @Override
+        public E replace(Position<E> p, E e) {
+            Node<E> node = checkPosition(p);
+            E old = node.replaceElement(e);
+            if (replaced(node)) {
+                fireReplaced(node, old);
+            }
+            return old;
+        }
+
+        @Override
+        public void remove(Position<E> p) {
+            PrimitiveNAryTree.this.remove(p);
+        }
+
+        @Override
+        public NAryTree<E> subTree(Position<E> v) {
+            return PrimitiveNAryTree.this.subTree(v).boxed();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void attach(Position<E> p, NAryTree<E> t) {
+            T tree;
+            if (t instanceof PrimitiveNAryTree.Boxed
+                    && ((PrimitiveNAryTree<?, ?>.Boxed) t).tree().getClass() == PrimitiveNAryTree.this.getClass()) {
+                tree = (T) ((PrimitiveNAryTree<?, ?>.Boxed) t).tree();
+            } else {
+                tree = newTree();
+                tree.copyFrom(t);
+            }
+            PrimitiveNAryTree.this.attach(p, tree);
+        }
+
+        @Override
+        public NAryTree<E> copySubtree(Position<E> v) {
+            return PrimitiveNAryTree.this.copySubtree(v).boxed();
+        }
+
+        @Override
+        public NAryTree<E> deepCopy() {
+            return PrimitiveNAryTree.this.deepCopy().boxed();
+        }
+
+        @Override
+        public int subtreeSize(Position<E> v) {
+            return PrimitiveNAryTree.this.subtreeSize(v);
+        }
+
+        @Override
+        public TreeCursor<E> cursor(Position<E> v) {
+            return PrimitiveNAryTree.this.cursor(v);
+        }
+
+        @Override
+        public void addListener(TreeListener<E> listener) {
+            PrimitiveNAryTree.this.addListener(listener);
+        }
+
+        @Override
+        public void removeListener(TreeListener<E> listener) {
+            PrimitiveNAryTree.this.removeListener(listener);
+        }
+
+        @Override
+        public void setListenerExecutor(Executor executor) {
+            PrimitiveNAryTree.this.setListenerExecutor(executor);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return PrimitiveNAryTree.this.isEmpty();
+        }
+
+        @Override
+        public Position<E> root() {
+            return PrimitiveNAryTree.this.root();
+        }
+
+        @Override
+        public Position<E> parent(Position<E> v) {
+            return PrimitiveNAryTree.this.parent(v);
+        }
+
+        @Override
+        public Iterable<Position<E>> children(Position<E> v) {
+            return PrimitiveNAryTree.this.children(v);
+        }
+
+        @Override
+        public boolean isInternal(Position<E> v) {
+            return PrimitiveNAryTree.this.isInternal(v);
+        }
+
+        @Override
+        public boolean isLeaf(Position<E> v) {
+            return PrimitiveNAryTree.this.isLeaf(v);
+        }
+
+        @Override
+        public boolean isRoot(Position<E> v) {
+            return PrimitiveNAryTree.this.isRoot(v);
+        }
+
+        public int size() {
+            return PrimitiveNAryTree.this.size();
+        }
+
+        /**
+         * Iterates the nodes in breadth-first order, as LinkedTree does.
+         */
+        @Override
+        public Iterator<Position<E>> iterator() {
+            Deque<Node<E>> queue = new ArrayDeque<>();
+            if (root != null) {
+                queue.add(root);
+            }
+            return new Iterator<Position<E>>() {
+                @Override
+                public boolean hasNext() {
+                    return !queue.isEmpty();
+                }
+
+                @Override
+                public Position<E> next() {
+                    Node<E> node = queue.poll();
+                    if (node == null) {
+                        throw new NoSuchElementException();
+                    }
+                    for (Node<E> child = node.firstChild; child != null; child = child.nextSibling) {
+                        queue.add(child);
+                    }
+                    return node;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import material.Position;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * A read-only view of a tree that does not copy it.
+ * <p>
+ * It exposes any NAryTree (a LinkedTree, an LCRSTree...) through the LinkedTree API:
+ * size, breadth-first iterator and pre-order and post-order iterators, plus the DOT
+ * export of DrawableTree. Reads are delegated to the viewed tree, so they always see
+ * its current state, and every mutation throws UnsupportedOperationException.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public class ReadOnlyTreeView<E> extends DrawableTree<E> {
+
+    private final NAryTree<E> tree;
+
+    /**
+     * Creates a view of a tree.
+     *
+     * @param tree the viewed tree
+     */
+    public ReadOnlyTreeView(NAryTree<E> tree) {
+        if (tree == null) {
+            throw new RuntimeException("The tree is invalid");
+        }
+        this.tree = tree;
+    }
+
+    @Override
+    public Position<E> addRoot(E e) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    @Override
+    public Position<E> add(E element, Position<E> p) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    @Override
+    public Position<E> add(E element, Position<E> p, int n) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    @Override
+    public void swapElements(Position<E> p1, Position<E> p2) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    @Override
+    public E replace(Position<E> p, E e) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    @Override
+    public void remove(Position<E> p) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    /**
+     * Returns a read-only view of a subtree of the viewed tree.
+     */
+    @Override
+    public NAryTree<E> subTree(Position<E> v) {
+        return new ReadOnlyTreeView<>(tree.subTree(v));
+    }
+
+    @Override
+    public void attach(Position<E> p, NAryTree<E> t) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    /**
+     * Returns a modifiable copy of a subtree of the viewed tree.
+     */
+    @Override
+    public NAryTree<E> copySubtree(Position<E> v) {
+        return tree.copySubtree(v);
+    }
+
+    /**
+     * Returns a modifiable copy of the viewed tree.
+     */
+    @Override
+    public NAryTree<E> deepCopy() {
+        return tree.deepCopy();
+    }
+
+    @Override
+    public void addListener(TreeListener<E> listener) {
+        tree.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(TreeListener<E> listener) {
+        tree.removeListener(listener);
+    }
+
+    /**
+     * The executor belongs to the configuration of the viewed tree, so it cannot be
+     * changed through the view.
+     */
+    @Override
+    public void setListenerExecutor(Executor executor) {
+        throw new UnsupportedOperationException("The view is read-only");
+    }
+
+    /**
+     * Returns the DOT representation of the viewed tree. The changes are made on the
+     * viewed tree, so the view keeps no DOT cache of its own.
+     */
+    @Override
+    public String toDot() {
+        return tree instanceof DrawableTree ? ((DrawableTree<E>) tree).toDot() : renderDot();
+    }
+
+    @Override
+    public String toDot(int maxDepth, int maxNodes) {
+        return tree instanceof DrawableTree ? ((DrawableTree<E>) tree).toDot(maxDepth, maxNodes)
+                : super.toDot(maxDepth, maxNodes);
+    }
+
+    @Override
+    public String toDot(Position<E> focus, int maxDepth, int maxNodes) {
+        return tree instanceof DrawableTree ? ((DrawableTree<E>) tree).toDot(focus, maxDepth, maxNodes)
+                : super.toDot(focus, maxDepth, maxNodes);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tree.isEmpty();
+    }
+
+    @Override
+    public Position<E> root() {
+        return tree.root();
+    }
+
+    @Override
+    public Position<E> parent(Position<E> v) {
+        return tree.parent(v);
+    }
+
+    @Override
+    public Iterable<? extends Position<E>> children(Position<E> v) {
+        return tree.children(v);
+    }
+
+    @Override
+    public TreeCursor<E> cursor(Position<E> v) {
+        return tree.cursor(v);
+    }
+
+    @Override
+    public boolean isInternal(Position<E> v) {
+        return tree.isInternal(v);
+    }
+
+    @Override
+    public boolean isLeaf(Position<E> v) {
+        return tree.isLeaf(v);
+    }
+
+    @Override
+    public boolean isRoot(Position<E> v) {
+        return tree.isRoot(v);
+    }
+
+    @Override
+    public int structuralHash(Position<E> p) {
+        return tree.structuralHash(p);
+    }
+
+    @Override
+    public int subtreeSize(Position<E> v) {
+        return tree.subtreeSize(v);
+    }
+
+    public int size() {
+        return isEmpty() ? 0 : tree.subtreeSize(tree.root());
+    }
+
+    /**
+     * Iterates the viewed tree in breadth-first order, as LinkedTree does.
+     */
+    @Override
+    public Iterator<Position<E>> iterator() {
+        List<Position<E>> positions = new ArrayList<>();
+        if (!isEmpty()) {
+            positions.add(root());
+            for (int i = 0; i < positions.size(); i++) {
+                for (Position<E> child : children(positions.get(i))) {
+                    positions.add(child);
+                }
+            }
+        }
+        return positions.iterator();
+    }
+
+    public Iterator<Position<E>> iteratorPreOrder() {
+        List<Position<E>> positions = new ArrayList<>();
+        if (!isEmpty()) {
+            preOrderTraversal(root(), positions);
+        }
+        return positions.iterator();
+    }
+
+    public Iterator<Position<E>> iteratorPostOrder() {
+        List<Position<E>> positions = new ArrayList<>();
+        if (!isEmpty()) {
+            postOrderTraversal(root(), positions);
+        }
+        return positions.iterator();
+    }
+
+    private void preOrderTraversal(Position<E> node, List<Position<E>> positions) {
+        positions.add(node);
+        for (Position<E> child : children(node)) {
+            preOrderTraversal(child, positions);
+        }
+    }
+
+    private void postOrderTraversal(Position<E> node, List<Position<E>> positions) {
+        for (Position<E> child : children(node)) {
+            postOrderTraversal(child, positions);
+        }
+        positions.add(node);
+    }
+}
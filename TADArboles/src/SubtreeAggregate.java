@@ -0,0 +1,208 @@
+import material.Position;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * An aggregate of every subtree of a tree, such as its number of nodes or the sum, the
+ * minimum or the maximum of an attribute of its elements, kept up to date as the tree
+ * changes.
+ * <p>
+ * The value of a node is the value of its element combined, in order, with the values
+ * of its children: {@code f(v) + agg(c1) + ... + agg(ck)}. The operation must be
+ * associative. Every value is stored, so {@link #get(Position)} takes constant time.
+ * <p>
+ * The aggregate listens to the tree synchronously. After add, remove, replace, swap or
+ * attach it recomputes the changed node and walks up towards the root, recomputing every
+ * ancestor from its children, and stops at the first one whose value does not change.
+ * A change costs O(depth * fanout) at most, and usually much less for min and max.
+ * Attached subtrees are computed once and removed subtrees are forgotten, in time
+ * proportional to their size.
+ *
+ * @param <E> the type of elements stored in the tree
+ * @param <A> the type of the aggregated values
+ */
+public class SubtreeAggregate<E, A> implements SynchronousTreeListener<E> {
+
+    private final NAryTree<E> tree;
+    private final Function<? super E, A> value;
+    private final BinaryOperator<A> combine;
+    private final Map<Position<E>, A> values = new HashMap<>();
+
+    /**
+     * Computes the aggregate of every subtree and registers it on the tree.
+     *
+     * @param tree    the tree
+     * @param value   the value of a single element
+     * @param combine the associative operation that combines two values
+     */
+    public SubtreeAggregate(NAryTree<E> tree, Function<? super E, A> value, BinaryOperator<A> combine) {
+        if (tree == null || value == null || combine == null) {
+            throw new RuntimeException("The aggregate is invalid");
+        }
+        this.tree = tree;
+        this.value = value;
+        this.combine = combine;
+        if (!tree.isEmpty()) {
+            computeSubtree(tree.root());
+        }
+        tree.addListener(this);
+    }
+
+    /**
+     * Number of nodes of every subtree.
+     */
+    public static <E> SubtreeAggregate<E, Integer> count(NAryTree<E> tree) {
+        return new SubtreeAggregate<>(tree, e -> 1, Integer::sum);
+    }
+
+    /**
+     * Sum of a value of the elements of every subtree.
+     */
+    public static <E> SubtreeAggregate<E, Double> sum(NAryTree<E> tree, ToDoubleFunction<? super E> value) {
+        return new SubtreeAggregate<>(tree, e -> value.applyAsDouble(e), Double::sum);
+    }
+
+    /**
+     * Maximum of a value of the elements of every subtree.
+     */
+    public static <E> SubtreeAggregate<E, Double> max(NAryTree<E> tree, ToDoubleFunction<? super E> value) {
+        return new SubtreeAggregate<>(tree, e -> value.applyAsDouble(e), Math::max);
+    }
+
+    /**
+     * Minimum of a value of the elements of every subtree.
+     */
+    public static <E> SubtreeAggregate<E, Double> min(NAryTree<E> tree, ToDoubleFunction<? super E> value) {
+        return new SubtreeAggregate<>(tree, e -> value.applyAsDouble(e), Math::min);
+    }
+
+    /**
+     * Returns the aggregate of the subtree rooted at a node.
+     *
+     * @param p the root of the subtree
+     * @return the aggregate of the subtree
+     * @throws RuntimeException if the node is not in the tree
+     */
+    public A get(Position<E> p) {
+        A result = values.get(p);
+        if (result == null && !values.containsKey(p)) {
+            throw new RuntimeException("The position is invalid");
+        }
+        return result;
+    }
+
+    /**
+     * Unregisters the aggregate from the tree. It must not be used afterwards.
+     */
+    public void close() {
+        tree.removeListener(this);
+        values.clear();
+    }
+
+    @Override
+    public void treeChanged(List<TreeEvent<E>> events) {
+        for (TreeEvent<E> event : events) {
+            Position<E> p = event.getPosition();
+            switch (event.getKind()) {
+                case ADDED:
+                    values.put(p, value.apply(p.getElement()));
+                    if (!tree.isRoot(p)) {
+                        propagate(tree.parent(p));
+                    }
+                    break;
+                case REMOVED:
+                    forget(p);
+                    if (event.getSecondPosition() != null) {
+                        propagate(event.getSecondPosition());
+                    }
+                    break;
+                case REPLACED:
+                    propagate(p);
+                    break;
+                case SWAPPED:
+                    propagate(p);
+                    propagate(event.getSecondPosition());
+                    break;
+                case ATTACHED:
+                    for (Position<E> child : tree.children(p)) {
+                        if (!values.containsKey(child)) {
+                            computeSubtree(child);
+                        }
+                    }
+                    propagate(p);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Recomputes a node from its children and then its ancestors, until a value does not
+     * change.
+     */
+    private void propagate(Position<E> p) {
+        while (true) {
+            A old = values.get(p);
+            A updated = compute(p);
+            values.put(p, updated);
+            if (Objects.equals(old, updated) || tree.isRoot(p)) {
+                return;
+            }
+            p = tree.parent(p);
+        }
+    }
+
+    private A compute(Position<E> p) {
+        A result = value.apply(p.getElement());
+        for (Position<E> child : tree.children(p)) {
+            result = combine.apply(result, values.get(child));
+        }
+        return result;
+    }
+
+    /**
+     * Computes every node of a subtree in post-order, with an explicit stack.
+     */
+    private void computeSubtree(Position<E> root) {
+        Deque<Position<E>> nodes = new ArrayDeque<>();
+        Deque<Iterator<? extends Position<E>>> stack = new ArrayDeque<>();
+        nodes.push(root);
+        stack.push(tree.children(root).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<? extends Position<E>> children = stack.peek();
+            if (children.hasNext()) {
+                Position<E> child = children.next();
+                nodes.push(child);
+                stack.push(tree.children(child).iterator());
+            } else {
+                stack.pop();
+                Position<E> node = nodes.pop();
+                values.put(node, compute(node));
+            }
+        }
+    }
+
+    /**
+     * Drops the values of a removed subtree.
+     */
+    private void forget(Position<E> root) {
+        Deque<Position<E>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Position<E> node = stack.pop();
+            values.remove(node);
+            for (Position<E> child : tree.children(node)) {
+                stack.push(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * A TreeListener that receives every change in the thread that makes it, right after
+ * the tree has been changed and before the mutating method returns, in a list of a
+ * single event. It is meant for structures that must stay consistent with the tree at
+ * all times, so it must be fast and must not change the tree.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public interface SynchronousTreeListener<E> extends TreeListener<E> {
+}
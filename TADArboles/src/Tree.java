@@ -1,5 +1,10 @@
 import material.Position;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.Predicate;
+
 
 /**
  * This interface represents a Tree data structure, which is a collection of nodes organized in a hierarchical structure.
@@ -62,4 +67,69 @@ public interface Tree<E> extends Iterable<Position<E>> {
      * @return true if the node is the root of the tree, false otherwise.
      */
     public boolean isRoot(Position<E> v);
-}
\ No newline at end of file
+
+    /**
+     * Returns a cursor placed on a node. This default implementation moves through the
+     * positions and iterables of the tree; implementations should move over their own
+     * nodes without allocating.
+     *
+     * @param v the node where the cursor starts
+     * @return the cursor
+     */
+    public default TreeCursor<E> cursor(Position<E> v) {
+        return new PositionCursor<>(this, v);
+    }
+
+    /**
+     * Visits the nodes of the tree in pre-order, up to a maximum depth and skipping the
+     * subtrees that the caller is not interested in. The children of a skipped node
+     * are never accessed, so pruning a subtree costs nothing.
+     *
+     * @param maxDepth the maximum depth of the visited nodes, 0 visits only the root
+     * @param descend  decides, for every visited node, whether its children are visited
+     * @param visitor  called for every visited node with its depth
+     */
+    public default void traverse(int maxDepth, Predicate<Position<E>> descend, TreeVisitor<E> visitor) {
+        if (!isEmpty()) {
+            traverse(root(), maxDepth, descend, visitor);
+        }
+    }
+
+    /**
+     * Visits the nodes of the subtree rooted at a node in pre-order, up to a maximum
+     * depth (relative to that node) and skipping the subtrees that the caller is not
+     * interested in.
+     *
+     * @param v        the node where the traversal starts, visited with depth 0
+     * @param maxDepth the maximum depth of the visited nodes
+     * @param descend  decides, for every visited node, whether its children are visited
+     * @param visitor  called for every visited node with its depth
+     */
+    public default void traverse(Position<E> v, int maxDepth, Predicate<Position<E>> descend, TreeVisitor<E> visitor) {
+        traverse(v, 0, maxDepth, descend, visitor);
+    }
+
+    private void traverse(Position<E> v, int depth, int maxDepth, Predicate<Position<E>> descend, TreeVisitor<E> visitor) {
+        // An explicit stack of the iterators of the children on the path, so the depth of
+        // the tree does not consume stack frames; its size is the depth of the next child.
+        visitor.visit(v, depth);
+        if (depth >= maxDepth || !descend.test(v)) {
+            return;
+        }
+        Deque<Iterator<? extends Position<E>>> iterators = new ArrayDeque<>();
+        iterators.push(children(v).iterator());
+        while (!iterators.isEmpty()) {
+            Iterator<? extends Position<E>> children = iterators.peek();
+            if (!children.hasNext()) {
+                iterators.pop();
+                continue;
+            }
+            Position<E> child = children.next();
+            int childDepth = depth + iterators.size();
+            visitor.visit(child, childDepth);
+            if (childDepth < maxDepth && descend.test(child)) {
+                iterators.push(children(child).iterator());
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+import material.Position;
+
+
+/**
+ * A mutable pointer to a node of a tree that moves to the parent, the first child or
+ * the next sibling in place.
+ * <p>
+ * The linked and array-backed trees implement the moves over their own fields, so
+ * walking a tree with a cursor allocates no positions or iterables, and a cursor that
+ * does not escape the method that created it can be kept in registers by the JIT.
+ * <p>
+ * A move that is not possible returns false and leaves the cursor where it was. A
+ * cursor must not be used after its tree is modified.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public interface TreeCursor<E> {
+
+    /**
+     * Moves to the parent of the current node.
+     *
+     * @return false if the current node is the root
+     */
+    public boolean toParent();
+
+    /**
+     * Moves to the first child of the current node.
+     *
+     * @return false if the current node is a leaf
+     */
+    public boolean toFirstChild();
+
+    /**
+     * Moves to the next sibling of the current node.
+     *
+     * @return false if the current node is the last child of its parent, or the root
+     */
+    public boolean toNextSibling();
+
+    /**
+     * Returns the element of the current node.
+     *
+     * @return the element of the current node
+     */
+    public E element();
+
+    /**
+     * Returns the depth of the current node, 0 for the root of the tree.
+     *
+     * @return the depth of the current node
+     */
+    public int depth();
+
+    /**
+     * Returns the current node as a position of the tree. The linked trees return the
+     * node itself; the array-backed trees create a handle.
+     *
+     * @return the current node
+     */
+    public Position<E> position();
+}
@@ -0,0 +1,148 @@
+import material.Position;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * Computes the differences between two trees using their structural hashes.
+ * <p>
+ * Both trees are walked in parallel, matching children by their index. The structural
+ * hashes are used as a filter: subtrees with different hashes are always visited, and
+ * subtrees with the same hash are compared node by node and skipped only if they are
+ * equal, so no change is reported for them. Subtrees whose hashes collide but that are
+ * not equal are visited as usual.
+ */
+public class TreeDiff {
+
+    /**
+     * The kind of a change between two trees.
+     */
+    public enum Kind {
+        /** The subtree only exists in the new tree. */
+        ADDED,
+        /** The subtree only exists in the old tree. */
+        REMOVED,
+        /** The node exists in both trees but stores a different element. */
+        CHANGED
+    }
+
+    /**
+     * A change between two trees.
+     *
+     * @param <E> the type of elements stored in the trees
+     */
+    public static class Change<E> {
+        private final Kind kind;
+        private final Position<E> oldPosition;
+        private final Position<E> newPosition;
+
+        public Change(Kind kind, Position<E> oldPosition, Position<E> newPosition) {
+            this.kind = kind;
+            this.oldPosition = oldPosition;
+            this.newPosition = newPosition;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the position in the old tree, or null if the kind is ADDED
+         */
+        public Position<E> getOldPosition() {
+            return oldPosition;
+        }
+
+        /**
+         * @return the position in the new tree, or null if the kind is REMOVED
+         */
+        public Position<E> getNewPosition() {
+            return newPosition;
+        }
+
+        @Override
+        public String toString() {
+            Object oldElement = oldPosition == null ? null : oldPosition.getElement();
+            Object newElement = newPosition == null ? null : newPosition.getElement();
+            return kind + "(" + oldElement + " -> " + newElement + ")";
+        }
+    }
+
+    /**
+     * Returns the changes needed to transform a tree into another one. An added or
+     * removed subtree is reported once, by its root.
+     *
+     * @param oldTree the original tree
+     * @param newTree the modified tree
+     * @param <E>     the type of elements stored in the trees
+     * @return the list of changes, in pre-order
+     */
+    public static <E> List<Change<E>> diff(NAryTree<E> oldTree, NAryTree<E> newTree) {
+        List<Change<E>> changes = new ArrayList<>();
+        if (oldTree.isEmpty() && !newTree.isEmpty()) {
+            changes.add(new Change<>(Kind.ADDED, null, newTree.root()));
+        } else if (!oldTree.isEmpty() && newTree.isEmpty()) {
+            changes.add(new Change<>(Kind.REMOVED, oldTree.root(), null));
+        } else if (!oldTree.isEmpty()) {
+            diff(oldTree, oldTree.root(), newTree, newTree.root(), changes);
+        }
+        return changes;
+    }
+
+    private static <E> void diff(NAryTree<E> oldTree, Position<E> oldNode,
+                                 NAryTree<E> newTree, Position<E> newNode, List<Change<E>> changes) {
+        if (oldTree.structuralHash(oldNode) == newTree.structuralHash(newNode)
+                && equalSubtrees(oldTree, oldNode, newTree, newNode)) {
+            return;
+        }
+        if (!Objects.equals(oldNode.getElement(), newNode.getElement())) {
+            changes.add(new Change<>(Kind.CHANGED, oldNode, newNode));
+        }
+        Iterator<? extends Position<E>> oldChildren = oldTree.children(oldNode).iterator();
+        Iterator<? extends Position<E>> newChildren = newTree.children(newNode).iterator();
+        while (oldChildren.hasNext() && newChildren.hasNext()) {
+            diff(oldTree, oldChildren.next(), newTree, newChildren.next(), changes);
+        }
+        while (oldChildren.hasNext()) {
+            changes.add(new Change<>(Kind.REMOVED, oldChildren.next(), null));
+        }
+        while (newChildren.hasNext()) {
+            changes.add(new Change<>(Kind.ADDED, null, newChildren.next()));
+        }
+    }
+
+    /**
+     * Tells whether two subtrees with the same structural hash are really equal, so a
+     * hash collision is not taken for equality. The subtrees are walked together with an
+     * explicit stack, comparing the elements and the number of children of every node.
+     */
+    private static <E> boolean equalSubtrees(NAryTree<E> oldTree, Position<E> oldNode,
+                                             NAryTree<E> newTree, Position<E> newNode) {
+        Deque<Position<E>> oldStack = new ArrayDeque<>();
+        Deque<Position<E>> newStack = new ArrayDeque<>();
+        oldStack.push(oldNode);
+        newStack.push(newNode);
+        while (!oldStack.isEmpty()) {
+            Position<E> oldTop = oldStack.pop();
+            Position<E> newTop = newStack.pop();
+            if (!Objects.equals(oldTop.getElement(), newTop.getElement())) {
+                return false;
+            }
+            Iterator<? extends Position<E>> oldChildren = oldTree.children(oldTop).iterator();
+            Iterator<? extends Position<E>> newChildren = newTree.children(newTop).iterator();
+            while (oldChildren.hasNext() && newChildren.hasNext()) {
+                oldStack.push(oldChildren.next());
+                newStack.push(newChildren.next());
+            }
+            if (oldChildren.hasNext() || newChildren.hasNext()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+import material.Position;
+
+
+/**
+ * A change made to a tree, delivered to the registered TreeListener instances.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public class TreeEvent<E> {
+
+    /**
+     * The kind of change.
+     */
+    public enum Kind {
+        /** A node was added. The position is the new node. */
+        ADDED,
+        /**
+         * A subtree was removed. The position is its root and the second position is its
+         * former parent, or null if the root of the tree was removed.
+         */
+        REMOVED,
+        /** The element of a node was replaced. */
+        REPLACED,
+        /** The elements of two nodes were swapped. The second position is the other node. */
+        SWAPPED,
+        /** A tree was attached. The position is the node it was attached to. */
+        ATTACHED
+    }
+
+    private final Kind kind;
+    private final Position<E> position;
+    private final Position<E> secondPosition;
+    private final E oldElement;
+    private final E newElement;
+
+    public TreeEvent(Kind kind, Position<E> position, Position<E> secondPosition, E oldElement, E newElement) {
+        this.kind = kind;
+        this.position = position;
+        this.secondPosition = secondPosition;
+        this.oldElement = oldElement;
+        this.newElement = newElement;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Position<E> getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the other node of a SWAPPED event, the former parent of the root of a
+     * REMOVED subtree, or null for the rest of kinds
+     */
+    public Position<E> getSecondPosition() {
+        return secondPosition;
+    }
+
+    /**
+     * @return the element before a REPLACED event, or null for the rest of kinds
+     */
+    public E getOldElement() {
+        return oldElement;
+    }
+
+    /**
+     * @return the element stored by an ADDED or REPLACED event, or null for the rest of kinds
+     */
+    public E getNewElement() {
+        return newElement;
+    }
+
+    @Override
+    public String toString() {
+        return kind + "(" + position + ")";
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Keeps the listeners of a tree and delivers its events in batches.
+ * <p>
+ * Events are queued as they happen. The first queued event schedules a delivery on the
+ * executor, and every event queued before that delivery runs goes in the same batch.
+ * Only one delivery is scheduled at a time, so batches arrive in order. If the executor
+ * rejects a delivery, the exception is thrown to the method that changed the tree and
+ * the events stay queued for the next one. An exception thrown by a listener during a
+ * delivery goes to the uncaught exception handler of the delivering thread, and the
+ * other listeners still receive the batch.
+ * <p>
+ * Instances of {@link SynchronousTreeListener} are not batched: they receive every
+ * event as soon as it is fired, in the thread that fires it. An exception thrown by one
+ * of them is rethrown to the method that changed the tree, after the other listeners
+ * have received the event.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public class TreeEventSupport<E> {
+
+    private final List<TreeListener<E>> listeners = new CopyOnWriteArrayList<>();
+    private final List<TreeListener<E>> synchronousListeners = new CopyOnWriteArrayList<>();
+    private List<TreeEvent<E>> pending = new ArrayList<>();
+    private boolean scheduled;
+    private volatile Executor executor = ForkJoinPool.commonPool();
+
+    public void addListener(TreeListener<E> listener) {
+        if (listener instanceof SynchronousTreeListener) {
+            synchronousListeners.add(listener);
+        } else {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(TreeListener<E> listener) {
+        listeners.remove(listener);
+        synchronousListeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !listeners.isEmpty() || !synchronousListeners.isEmpty();
+    }
+
+    /**
+     * Sets the executor that delivers the batches. Use {@code Runnable::run} to deliver
+     * every event synchronously, in the thread that changes the tree.
+     *
+     * @param executor the executor
+     */
+    public void setExecutor(Executor executor) {
+        if (executor == null) {
+            throw new RuntimeException("The executor is invalid");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Delivers an event to the synchronous listeners and queues it for the others,
+     * scheduling a delivery if none is pending.
+     *
+     * @param event the event
+     * @throws RuntimeException the first exception thrown by a synchronous listener,
+     *                          with the following ones suppressed
+     */
+    public void fire(TreeEvent<E> event) {
+        RuntimeException failure = null;
+        if (!synchronousListeners.isEmpty()) {
+            List<TreeEvent<E>> events = Collections.singletonList(event);
+            for (TreeListener<E> listener : synchronousListeners) {
+                try {
+                    listener.treeChanged(events);
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (!listeners.isEmpty()) {
+            schedule(event);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void schedule(TreeEvent<E> event) {
+        synchronized (this) {
+            pending.add(event);
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        try {
+            executor.execute(this::deliver);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                scheduled = false;
+            }
+            throw e;
+        }
+    }
+
+    private void deliver() {
+        while (true) {
+            List<TreeEvent<E>> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            List<TreeEvent<E>> events = Collections.unmodifiableList(batch);
+            for (TreeListener<E> listener : listeners) {
+                try {
+                    listener.treeChanged(events);
+                } catch (RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import material.Position;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Subtree isomorphism queries based on AHU canonical identifiers.
+ * <p>
+ * Every subtree gets an integer identifier computed bottom-up from its element and
+ * the sorted identifiers of its children. Two subtrees are isomorphic (same elements
+ * and same shape, regardless of the order of the children) if and only if they get
+ * the same identifier. All identifiers of a tree are computed in a single post-order
+ * pass, so the queries are linear in the size of the tree.
+ */
+public class TreeIsomorphism {
+
+    /**
+     * Assigns identifiers to subtrees. Trees compared with each other must share the
+     * same dictionary, so that equal subtrees get equal identifiers.
+     */
+    private static class Dictionary {
+        private final Map<List<Object>, Integer> ids = new HashMap<>();
+
+        private int idOf(Object element, int[] childIds) {
+            Arrays.sort(childIds);
+            List<Object> key = new ArrayList<>(childIds.length + 1);
+            key.add(element);
+            for (int id : childIds) {
+                key.add(id);
+            }
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns the roots of every subtree of a tree that is isomorphic to a pattern.
+     *
+     * @param tree    the tree to search in
+     * @param pattern the tree to search for
+     * @param <E>     the type of elements stored in the trees
+     * @return the matching positions of the tree, in post-order
+     */
+    public static <E> List<Position<E>> findOccurrences(NAryTree<E> tree, NAryTree<E> pattern) {
+        List<Position<E>> occurrences = new ArrayList<>();
+        if (tree.isEmpty() || pattern.isEmpty()) {
+            return occurrences;
+        }
+        Dictionary dictionary = new Dictionary();
+        int patternId = canonicalId(pattern, pattern.root(), dictionary, null);
+        Map<Position<E>, Integer> ids = new LinkedHashMap<>();
+        canonicalId(tree, tree.root(), dictionary, ids);
+        for (Map.Entry<Position<E>, Integer> entry : ids.entrySet()) {
+            if (entry.getValue() == patternId) {
+                occurrences.add(entry.getKey());
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Groups the subtrees of a tree that are isomorphic to each other. Only groups with
+     * more than one subtree are returned.
+     *
+     * @param tree the tree to analyze
+     * @param <E>  the type of elements stored in the tree
+     * @return the groups of isomorphic subtrees, each one as a list of their roots
+     */
+    public static <E> List<List<Position<E>>> groupIsomorphicSubtrees(NAryTree<E> tree) {
+        List<List<Position<E>>> groups = new ArrayList<>();
+        if (tree.isEmpty()) {
+            return groups;
+        }
+        Map<Position<E>, Integer> ids = new LinkedHashMap<>();
+        canonicalId(tree, tree.root(), new Dictionary(), ids);
+        Map<Integer, List<Position<E>>> byId = new LinkedHashMap<>();
+        for (Map.Entry<Position<E>, Integer> entry : ids.entrySet()) {
+            byId.computeIfAbsent(entry.getValue(), id -> new ArrayList<>()).add(entry.getKey());
+        }
+        for (List<Position<E>> group : byId.values()) {
+            if (group.size() > 1) {
+                groups.add(group);
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Computes the identifier of the subtree rooted at a node.
+     *
+     * @param tree       the tree that contains the node
+     * @param node       the root of the subtree
+     * @param dictionary the dictionary of identifiers
+     * @param ids        map where the identifier of every node is stored in post-order, or null
+     * @param <E>        the type of elements stored in the tree
+     * @return the identifier of the subtree
+     */
+    private static <E> int canonicalId(NAryTree<E> tree, Position<E> node, Dictionary dictionary,
+                                       Map<Position<E>, Integer> ids) {
+        List<Integer> childIds = new ArrayList<>();
+        for (Position<E> child : tree.children(node)) {
+            childIds.add(canonicalId(tree, child, dictionary, ids));
+        }
+        int[] sorted = new int[childIds.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = childIds.get(i);
+        }
+        int id = dictionary.idOf(node.getElement(), sorted);
+        if (ids != null) {
+            ids.put(node, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,18 @@
+import java.util.List;
+
+
+/**
+ * Receives the changes made to a tree. Changes are delivered in batches, in the order
+ * they were made, and never by two threads at the same time for the same tree.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public interface TreeListener<E> {
+
+    /**
+     * Called with the changes made to the tree since the previous batch.
+     *
+     * @param events the changes, in the order they were made
+     */
+    public void treeChanged(List<TreeEvent<E>> events);
+}
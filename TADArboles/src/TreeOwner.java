@@ -0,0 +1,45 @@
+/**
+ * The stamp that tells the nodes of a linked tree from the nodes of any other tree.
+ * <p>
+ * Every node keeps the owner of the tree it belongs to, so checking that a position
+ * belongs to a tree is a field comparison. A subtree view shares the owner of its
+ * tree. When attach moves the nodes of one tree into another, the owner of the
+ * attached tree is forwarded to the owner of the receiving one instead of stamping
+ * every moved node again, and the trees restamp a forwarded node the first time they
+ * check it.
+ */
+public final class TreeOwner {
+
+    private TreeOwner forward;
+
+    /**
+     * Returns the owner this stamp stands for, shortening the chain of forwards.
+     *
+     * @return the current owner
+     */
+    public TreeOwner resolve() {
+        TreeOwner owner = this;
+        while (owner.forward != null) {
+            owner = owner.forward;
+        }
+        for (TreeOwner o = this; o != owner; ) {
+            TreeOwner next = o.forward;
+            o.forward = owner;
+            o = next;
+        }
+        return owner;
+    }
+
+    /**
+     * Makes the nodes stamped with this owner belong to another one.
+     *
+     * @param other the owner that receives the nodes
+     */
+    public void forwardTo(TreeOwner other) {
+        TreeOwner from = resolve();
+        TreeOwner to = other.resolve();
+        if (from != to) {
+            from.forward = to;
+        }
+    }
+}
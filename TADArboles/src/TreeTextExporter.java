@@ -0,0 +1,168 @@
+import material.Position;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+
+/**
+ * Streaming writers for the text formats read by TreeTextImporter, and for DOT.
+ * <p>
+ * The output is encoded through bounded buffers straight into a channel, so the text
+ * of the whole tree is never built in memory.
+ */
+public class TreeTextExporter {
+
+    private static final String NEWICK_SPECIAL = "()[]':;,";
+
+    /**
+     * Writes a tree in Newick format, ending with a semicolon.
+     *
+     * @param tree    the tree
+     * @param channel the channel, that is not closed
+     * @param <E>     the type of elements stored in the tree
+     * @throws IOException if the channel cannot be written
+     */
+    public static <E> void writeNewick(Tree<E> tree, WritableByteChannel channel) throws IOException {
+        ChannelCharWriter writer = new ChannelCharWriter(channel);
+        if (!tree.isEmpty()) {
+            writeNewick(tree, tree.root(), writer);
+        }
+        writer.append(";\n");
+        writer.finish();
+    }
+
+    /**
+     * Writes a subtree with an explicit stack of the internal nodes on the path and the
+     * iterators of their children, so the depth of the tree does not matter.
+     */
+    private static <E> void writeNewick(Tree<E> tree, Position<E> top, ChannelCharWriter writer) throws IOException {
+        Deque<Position<E>> nodes = new ArrayDeque<>();
+        Deque<Iterator<? extends Position<E>>> iterators = new ArrayDeque<>();
+        Position<E> next = top;
+        // Whether the next child is the first of the innermost open node.
+        boolean first = true;
+        while (true) {
+            if (next != null) {
+                if (!first) {
+                    writer.append(",");
+                }
+                Iterator<? extends Position<E>> children = tree.children(next).iterator();
+                if (children.hasNext()) {
+                    writer.append("(");
+                    nodes.push(next);
+                    iterators.push(children);
+                    first = true;
+                } else {
+                    writer.append(newickLabel(next.getElement()));
+                    first = false;
+                }
+            }
+            if (nodes.isEmpty()) {
+                return;
+            }
+            Iterator<? extends Position<E>> children = iterators.peek();
+            if (children.hasNext()) {
+                next = children.next();
+            } else {
+                iterators.pop();
+                writer.append(")").append(newickLabel(nodes.pop().getElement()));
+                next = null;
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * Quotes a label if it contains characters with a meaning in Newick.
+     */
+    private static String newickLabel(Object element) {
+        String label = element == null ? "" : element.toString();
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (NEWICK_SPECIAL.indexOf(c) >= 0 || Character.isWhitespace(c)) {
+                return "'" + label.replace("'", "''") + "'";
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Writes a tree as an indented outline, two spaces per level. Labels must not
+     * contain line breaks.
+     *
+     * @param tree    the tree
+     * @param channel the channel, that is not closed
+     * @param <E>     the type of elements stored in the tree
+     * @throws IOException if the channel cannot be written
+     */
+    public static <E> void writeOutline(Tree<E> tree, WritableByteChannel channel) throws IOException {
+        ChannelCharWriter writer = new ChannelCharWriter(channel);
+        try {
+            tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> {
+                try {
+                    for (int i = 0; i < depth; i++) {
+                        writer.append("  ");
+                    }
+                    writer.append(String.valueOf(p.getElement())).append("\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    /**
+     * Writes a tree in the same DOT format as DrawableTree.toDot.
+     *
+     * @param tree    the tree
+     * @param channel the channel, that is not closed
+     * @param <E>     the type of elements stored in the tree
+     * @throws IOException if the channel cannot be written
+     */
+    public static <E> void writeDot(Tree<E> tree, WritableByteChannel channel) throws IOException {
+        writeDot(tree, tree.isEmpty() ? null : tree.root(), new ChannelCharWriter(channel));
+    }
+
+    /**
+     * Writes the subtree rooted at a node in the same DOT format as the toDot of its
+     * subTree, reading it straight from the tree.
+     *
+     * @param tree    the tree
+     * @param p       the root of the subtree
+     * @param channel the channel, that is not closed
+     * @param <E>     the type of elements stored in the tree
+     * @throws IOException if the channel cannot be written
+     */
+    public static <E> void writeDot(Tree<E> tree, Position<E> p, WritableByteChannel channel) throws IOException {
+        writeDot(tree, p, new ChannelCharWriter(channel));
+    }
+
+    private static <E> void writeDot(Tree<E> tree, Position<E> p, ChannelCharWriter writer) throws IOException {
+        writer.append("digraph Tree {\n");
+        try {
+            if (p != null) {
+                tree.traverse(p, Integer.MAX_VALUE, v -> true, (v, depth) -> {
+                    if (depth > 0) {
+                        try {
+                            writer.append("\"").append(String.valueOf(tree.parent(v).getElement()))
+                                    .append("\" -> \"").append(String.valueOf(v.getElement())).append("\";\n");
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                });
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.append("}");
+        writer.finish();
+    }
+}
@@ -0,0 +1,221 @@
+import material.Position;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+
+/**
+ * Streaming parsers that build a tree from a text file.
+ * <p>
+ * The input is read through a FileChannel with bounded buffers and the nodes are added
+ * to the tree as they are parsed, so files of several gigabytes can be imported without
+ * loading them as a String. Any empty NAryTree (LinkedTree, LCRSTree...) can be filled.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ *     <li>Newick: {@code (B,(D,E)C)A;}. Labels can be quoted with single quotes.
+ *     Branch lengths ({@code :0.5}) and comments ({@code [...]}) are skipped.</li>
+ *     <li>Indented outline: one label per line, children indented deeper than their
+ *     parent with spaces or tabs. Blank lines are skipped.</li>
+ * </ul>
+ */
+public class TreeTextImporter {
+
+    /**
+     * Reads a Newick file into an empty tree.
+     *
+     * @param path the file
+     * @param tree the empty tree to fill
+     * @param <T>  the type of the tree
+     * @return the filled tree
+     * @throws IOException if the file cannot be read
+     */
+    public static <T extends NAryTree<String>> T readNewick(Path path, T tree) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readNewick(channel, tree);
+        }
+    }
+
+    /**
+     * Reads a Newick tree from a channel into an empty tree. Reading stops at the
+     * semicolon that ends the tree.
+     *
+     * @param channel the channel, that is not closed
+     * @param tree    the empty tree to fill
+     * @param <T>     the type of the tree
+     * @return the filled tree
+     * @throws IOException      if the channel cannot be read
+     * @throws RuntimeException if the input is not valid Newick
+     */
+    public static <T extends NAryTree<String>> T readNewick(ReadableByteChannel channel, T tree) throws IOException {
+        checkEmpty(tree);
+        ChannelCharReader reader = new ChannelCharReader(channel);
+        Deque<Position<String>> open = new ArrayDeque<>();
+        StringBuilder label = new StringBuilder();
+        Position<String> closed = null;
+        boolean finished = false;
+        int c = reader.read();
+        while (c != -1 && !finished) {
+            switch (c) {
+                case '(':
+                    open.push(open.isEmpty() ? tree.addRoot(null) : tree.add(null, open.peek()));
+                    break;
+                case ',':
+                case ')':
+                case ';':
+                    if (closed != null) {
+                        tree.replace(closed, label.toString());
+                        closed = null;
+                    } else if (open.isEmpty()) {
+                        tree.addRoot(label.toString());
+                    } else {
+                        tree.add(label.toString(), open.peek());
+                    }
+                    label.setLength(0);
+                    if (c == ')') {
+                        if (open.isEmpty()) {
+                            throw new RuntimeException("Unbalanced ')' in Newick input");
+                        }
+                        closed = open.pop();
+                    } else if (c == ';') {
+                        finished = true;
+                    }
+                    break;
+                case ':':
+                    c = skipUntil(reader, ",);");
+                    continue;
+                case '[':
+                    c = skipUntil(reader, "]");
+                    break;
+                case '\'':
+                    c = readQuoted(reader, label);
+                    continue;
+                default:
+                    if (!Character.isWhitespace(c)) {
+                        label.append((char) c);
+                    }
+            }
+            c = reader.read();
+        }
+        if (!finished || !open.isEmpty()) {
+            throw new RuntimeException("Incomplete Newick input");
+        }
+        return tree;
+    }
+
+    /**
+     * Skips characters until one of the given delimiters.
+     *
+     * @return the delimiter found, or -1 at the end of the input
+     */
+    private static int skipUntil(ChannelCharReader reader, String delimiters) throws IOException {
+        int c = reader.read();
+        while (c != -1 && delimiters.indexOf(c) < 0) {
+            c = reader.read();
+        }
+        return c;
+    }
+
+    /**
+     * Reads a quoted label, after its opening quote. Two consecutive quotes stand for one.
+     *
+     * @return the character after the closing quote
+     */
+    private static int readQuoted(ChannelCharReader reader, StringBuilder label) throws IOException {
+        while (true) {
+            int c = reader.read();
+            if (c == -1) {
+                throw new RuntimeException("Unterminated quoted label in Newick input");
+            }
+            if (c == '\'') {
+                c = reader.read();
+                if (c != '\'') {
+                    return c;
+                }
+            }
+            label.append((char) c);
+        }
+    }
+
+    /**
+     * Reads an indented outline file into an empty tree.
+     *
+     * @param path the file
+     * @param tree the empty tree to fill
+     * @param <T>  the type of the tree
+     * @return the filled tree
+     * @throws IOException if the file cannot be read
+     */
+    public static <T extends NAryTree<String>> T readOutline(Path path, T tree) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readOutline(channel, tree);
+        }
+    }
+
+    /**
+     * Reads an indented outline from a channel into an empty tree.
+     *
+     * @param channel the channel, that is not closed
+     * @param tree    the empty tree to fill
+     * @param <T>     the type of the tree
+     * @return the filled tree
+     * @throws IOException      if the channel cannot be read
+     * @throws RuntimeException if the outline has more than one root
+     */
+    public static <T extends NAryTree<String>> T readOutline(ReadableByteChannel channel, T tree) throws IOException {
+        checkEmpty(tree);
+        ChannelCharReader reader = new ChannelCharReader(channel);
+        List<Integer> indents = new ArrayList<>();
+        List<Position<String>> path = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        int c;
+        do {
+            c = reader.read();
+            if (c != -1 && c != '\n') {
+                line.append((char) c);
+                continue;
+            }
+            int indent = 0;
+            while (indent < line.length() && (line.charAt(indent) == ' ' || line.charAt(indent) == '\t')) {
+                indent++;
+            }
+            int end = line.length();
+            if (end > indent && line.charAt(end - 1) == '\r') {
+                end--;
+            }
+            if (end > indent) {
+                while (!indents.isEmpty() && indents.get(indents.size() - 1) >= indent) {
+                    indents.remove(indents.size() - 1);
+                    path.remove(path.size() - 1);
+                }
+                String label = line.substring(indent, end);
+                Position<String> node;
+                if (path.isEmpty()) {
+                    if (!tree.isEmpty()) {
+                        throw new RuntimeException("The outline has more than one root");
+                    }
+                    node = tree.addRoot(label);
+                } else {
+                    node = tree.add(label, path.get(path.size() - 1));
+                }
+                indents.add(indent);
+                path.add(node);
+            }
+            line.setLength(0);
+        } while (c != -1);
+        return tree;
+    }
+
+    private static void checkEmpty(NAryTree<String> tree) {
+        if (!tree.isEmpty()) {
+            throw new RuntimeException("The tree is not empty");
+        }
+    }
+}
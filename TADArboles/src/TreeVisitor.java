@@ -0,0 +1,18 @@
+import material.Position;
+
+
+/**
+ * Callback of a level-aware traversal of a tree.
+ *
+ * @param <E> the type of elements stored in the tree
+ */
+public interface TreeVisitor<E> {
+
+    /**
+     * Called for every visited node.
+     *
+     * @param p     the visited node
+     * @param depth the depth of the node, 0 for the node where the traversal starts
+     */
+    public void visit(Position<E> p, int depth);
+}
@@ -0,0 +1,89 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the CompactTree class.
+ */
+public class CompactTreeTest {
+
+    private LCRSTree<Integer> tree = new LCRSTree<>();
+
+    public void setTree() {
+        Position<Integer> p = tree.addRoot(1);
+        tree.add(2, p);
+        Position<Integer> p1 = tree.add(3, p);
+        tree.add(4, p);
+        tree.add(5, p1);
+        Position<Integer> p2 = tree.add(6, p1);
+        tree.add(7, p2);
+        Position<Integer> p3 = tree.add(8, p2);
+        tree.add(9, p3);
+        tree.add(10, p3);
+        tree.add(11, p3);
+        tree.add(12, p3);
+    }
+
+    @Test
+    public void testSize() {
+        this.setTree();
+        CompactTree<Integer> compact = tree.compact();
+        assertEquals(12, compact.size());
+        assertEquals(12, compact.subtreeSize(compact.root()));
+        assertTrue(new CompactTree<>(new LinkedTree<Integer>()).isEmpty());
+    }
+
+    @Test
+    public void testIterator() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        for (Position<Integer> pos : tree.compact()) {
+            s.append(pos.getElement());
+        }
+        assertEquals("123456789101112", s.toString());
+    }
+
+    @Test
+    public void testIteratorPreOrder() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        Iterator<Position<Integer>> it = tree.compact().iteratorPreOrder();
+        while (it.hasNext()) {
+            s.append(it.next().getElement());
+        }
+        assertEquals("123567891011124", s.toString());
+    }
+
+    @Test
+    public void testNavigation() {
+        this.setTree();
+        CompactTree<Integer> compact = tree.compact();
+        Position<Integer> root = compact.root();
+        assertTrue(compact.isRoot(root));
+        StringBuilder s = new StringBuilder();
+        Position<Integer> last = null;
+        for (Position<Integer> child : compact.children(root)) {
+            s.append(child.getElement());
+            assertEquals(root, compact.parent(child));
+            last = child;
+        }
+        assertEquals("234", s.toString());
+        assertTrue(compact.isLeaf(last));
+        assertNull(compact.parent(root));
+    }
+
+    @Test
+    public void testInvalidPosition() {
+        this.setTree();
+        try {
+            tree.compact().children(tree.root());
+            fail("A position of another tree was accepted");
+        } catch (RuntimeException e) {
+            assertTrue(true);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the ConcurrentVisitor class.
+ */
+public class ConcurrentVisitorTest {
+
+    private LinkedTree<String> tree = new LinkedTree<>();
+
+    public void setTree() {
+        Position<String> p = tree.addRoot("A");
+        tree.add("B", p);
+        Position<String> p1 = tree.add("C", p);
+        tree.add("D", p);
+        tree.add("E", p1);
+        Position<String> p2 = tree.add("F", p1);
+        tree.add("G", p2);
+        Position<String> p3 = tree.add("H", p2);
+        tree.add("I", p3);
+        tree.add("J", p3);
+        tree.add("K", p3);
+        tree.add("L", p3);
+    }
+
+    @Test
+    public void testResultsHaveTheSameShape() {
+        this.setTree();
+        LinkedTree<String> results = ConcurrentVisitor.visitConcurrently(tree, p -> p.getElement().toLowerCase());
+        assertEquals(tree.size(), results.size());
+        StringBuilder s = new StringBuilder();
+        for (Position<String> pos : results) {
+            s.append(pos.getElement());
+        }
+        assertEquals("abcdefghijkl", s.toString());
+    }
+
+    @Test
+    public void testConcurrencyLimit() {
+        this.setTree();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ConcurrentVisitor.visitConcurrently(tree, p -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(5);
+            running.decrementAndGet();
+            return null;
+        }, 2, false);
+        assertTrue(maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testParentFirst() {
+        this.setTree();
+        AtomicInteger clock = new AtomicInteger();
+        Map<String, Integer> finished = new ConcurrentHashMap<>();
+        Map<String, Integer> started = new ConcurrentHashMap<>();
+        ConcurrentVisitor.visitConcurrently(tree, p -> {
+            started.put(p.getElement(), clock.incrementAndGet());
+            sleep(2);
+            finished.put(p.getElement(), clock.incrementAndGet());
+            return null;
+        }, 8, true);
+        for (Position<String> p : tree) {
+            if (!tree.isRoot(p)) {
+                assertTrue(finished.get(tree.parent(p).getElement()) < started.get(p.getElement()));
+            }
+        }
+    }
+
+    @Test
+    public void testFailure() {
+        this.setTree();
+        try {
+            ConcurrentVisitor.visitConcurrently(tree, p -> {
+                if (p.getElement().equals("H")) {
+                    throw new IllegalStateException("H");
+                }
+                return p.getElement();
+            });
+            fail("The failure of a task was ignored");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
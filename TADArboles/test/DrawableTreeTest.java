@@ -0,0 +1,221 @@
+import material.Position;
+import org.junit.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the DOT export of the DrawableTree class.
+ */
+public class DrawableTreeTest {
+
+    /**
+     * Renders the DOT representation without any cache.
+     */
+    private static <E> String render(NAryTree<E> tree) {
+        StringBuilder sb = new StringBuilder("digraph Tree {\n");
+        if (!tree.isEmpty()) {
+            render(tree, tree.root(), sb);
+        }
+        return sb.append("}").toString();
+    }
+
+    private static <E> void render(NAryTree<E> tree, Position<E> node, StringBuilder sb) {
+        for (Position<E> child : tree.children(node)) {
+            sb.append("\"").append(node.getElement()).append("\" -> \"").append(child.getElement()).append("\";\n");
+            render(tree, child, sb);
+        }
+    }
+
+    @Test
+    public void testToDot() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        Position<String> p = tree.addRoot("A");
+        tree.add("B", p);
+        Position<String> c = tree.add("C", p);
+        tree.add("D", c);
+        assertEquals("digraph Tree {\n\"A\" -> \"B\";\n\"A\" -> \"C\";\n\"C\" -> \"D\";\n}", tree.toDot());
+    }
+
+    @Test
+    public void testIncrementalToDot() {
+        checkIncrementalToDot(new LinkedTree<>());
+        checkIncrementalToDot(new LCRSTree<>());
+    }
+
+    private void checkIncrementalToDot(DrawableTree<Integer> tree) {
+        Random random = new Random(42);
+        List<Position<Integer>> positions = new ArrayList<>();
+        positions.add(tree.addRoot(0));
+        for (int i = 1; i < 2000; i++) {
+            Position<Integer> p = positions.get(random.nextInt(positions.size()));
+            switch (random.nextInt(4)) {
+                case 0:
+                    tree.replace(p, -i);
+                    break;
+                case 1:
+                    tree.swapElements(p, positions.get(random.nextInt(positions.size())));
+                    break;
+                default:
+                    positions.add(tree.add(i, p));
+            }
+            if (i % 50 == 0) {
+                assertEquals(render(tree), tree.toDot());
+            }
+        }
+        Position<Integer> removed = tree.children(tree.root()).iterator().next();
+        tree.remove(removed);
+        assertEquals(render(tree), tree.toDot());
+    }
+
+    /**
+     * A - B - (D, E, F)
+     *   - C - G - H
+     */
+    private static LinkedTree<String> lodTree() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        tree.add("C", a);
+        tree.add("D", b);
+        tree.add("E", b);
+        tree.add("F", b);
+        tree.add("H", tree.add("G", tree.select(5)));
+        return tree;
+    }
+
+    @Test
+    public void testToDotOfSubTrees() {
+        checkToDotOfSubTrees(new LinkedTree<>());
+        checkToDotOfSubTrees(new LCRSTree<>());
+    }
+
+    private void checkToDotOfSubTrees(DrawableTree<String> tree) {
+        Position<String> a = tree.addRoot("A");
+        Position<String> x = tree.add("X", a);
+        tree.add("Y", x);
+        DrawableTree<String> view = (DrawableTree<String>) tree.subTree(x);
+        assertEquals(render(view), view.toDot());
+        assertEquals(render(tree), tree.toDot());
+
+        tree.add("N", x);
+        tree.replace(x, "X2");
+        assertEquals(render(view), view.toDot());
+        assertTrue(view.toDot().contains("\"X2\" -> \"N\""));
+
+        view.add("M", x);
+        view.replace(view.root(), "X3");
+        assertEquals(render(tree), tree.toDot());
+        assertTrue(tree.toDot().contains("\"X3\" -> \"M\""));
+        assertEquals(render(view), view.toDot());
+    }
+
+    @Test
+    public void testToDotDepthLimit() {
+        LinkedTree<String> tree = lodTree();
+        assertEquals("digraph Tree {\n"
+                + "n0 [label=\"A\", style=bold];\n"
+                + "n1 [label=\"B\"];\n"
+                + "n0 -> n1;\n"
+                + "n2 [label=\"C\"];\n"
+                + "n0 -> n2;\n"
+                + "n3 [label=\"+3 nodes\", shape=box, style=dashed];\n"
+                + "n1 -> n3;\n"
+                + "n4 [label=\"+2 nodes\", shape=box, style=dashed];\n"
+                + "n2 -> n4;\n"
+                + "}", tree.toDot(1, 100));
+    }
+
+    @Test
+    public void testToDotNodeBudget() {
+        LinkedTree<String> tree = lodTree();
+        String dot = tree.toDot(10, 4);
+        assertEquals(4, dot.split("label=\"[A-H]\"").length - 1);
+        assertTrue(dot.contains("n3 [label=\"D\"];\nn1 -> n3;\nn4 [label=\"+2 nodes\""));
+        assertTrue(dot.contains("n2 -> n5;\n") && dot.contains("n5 [label=\"+2 nodes\""));
+    }
+
+    @Test
+    public void testToDotFocus() {
+        LinkedTree<String> tree = lodTree();
+        Position<String> g = tree.select(6);
+        assertEquals("G", g.getElement());
+        assertEquals("digraph Tree {\n"
+                + "n0 [label=\"G\", style=bold];\n"
+                + "n1 [label=\"C\"];\n"
+                + "n1 -> n0;\n"
+                + "n2 [label=\"+5 nodes\", shape=box, style=dashed];\n"
+                + "n2 -> n1;\n"
+                + "n3 [label=\"H\"];\n"
+                + "n0 -> n3;\n"
+                + "}", tree.toDot(g, 1, 10));
+    }
+
+    @Test
+    public void testToDotLargeTree() {
+        LinkedTree<Integer> tree = new LinkedTree<>();
+        Position<Integer> root = tree.addRoot(0);
+        for (int i = 1; i < 100000; i++) {
+            tree.add(i, root);
+        }
+        String dot = tree.toDot(3, 50);
+        assertTrue(dot.length() < 2000);
+        assertTrue(dot.contains("[label=\"+99,950 nodes\""));
+        assertTrue(tree.toDot(tree.select(5), 2, 10).contains("[label=\"+99,998 nodes\""));
+    }
+
+    @Test
+    public void testToDotEscapesLabels() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        tree.addRoot("say \"hi\"");
+        assertEquals("digraph Tree {\nn0 [label=\"say \\\"hi\\\"\", style=bold];\n}", tree.toDot(2, 2));
+    }
+
+    @Test
+    public void testWriteDotFiles() throws IOException {
+        LCRSTree<Integer> tree = new LCRSTree<>();
+        Position<Integer> root = tree.addRoot(0);
+        List<Position<Integer>> tops = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            Position<Integer> top = tree.add(i, root);
+            tree.add(1000 + i, tree.add(-i, top));
+            tops.add(top);
+        }
+        tops.add(tree.select(3));
+        Path directory = Files.createTempDirectory("dot");
+        String workingDirectory = System.getProperty("user.dir");
+        System.setProperty("user.dir", directory.toString());
+        try {
+            List<String> paths = tree.writeDotFiles(tops, "sub");
+            List<String> again = tree.writeDotFiles(tops.subList(0, 1), "sub");
+            assertEquals(tops.size(), paths.size());
+            Set<String> names = new HashSet<>(paths);
+            names.addAll(again);
+            assertEquals(tops.size() + 1, names.size());
+            for (int i = 0; i < tops.size(); i++) {
+                assertEquals(((DrawableTree<Integer>) tree.subTree(tops.get(i))).toDot(), new String(Files.readAllBytes(Paths.get(paths.get(i)))));
+            }
+            assertEquals(new String(Files.readAllBytes(Paths.get(paths.get(0)))),
+                    new String(Files.readAllBytes(Paths.get(again.get(0)))));
+        } finally {
+            System.setProperty("user.dir", workingDirectory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
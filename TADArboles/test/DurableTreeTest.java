@@ -0,0 +1,222 @@
+import material.Position;
+import org.junit.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the DurableTree class.
+ */
+public class DurableTreeTest {
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("durable");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        clear();
+        Files.delete(directory);
+    }
+
+    private void clear() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static String preOrder(NAryTree<String> tree) {
+        StringBuilder s = new StringBuilder();
+        tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> s.append(depth).append(p.getElement()).append(' '));
+        return s.toString();
+    }
+
+    private void fill(DurableTree<String> tree) {
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        Position<String> c = tree.add("C", a);
+        tree.add("D", c);
+        tree.add("E", a, 1);
+        tree.add(null, b);
+        tree.add("line\nbreak \\ x", b);
+        tree.replace(c, "C2");
+        tree.swapElements(b, a);
+        tree.remove(tree.add("gone", c));
+    }
+
+    @Test
+    public void testRecoverFromLog() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+        fill(tree);
+        String expected = preOrder(tree);
+        tree.close();
+
+        DurableTree<String> recovered = DurableTree.open(directory, new LinkedTree<>());
+        assertEquals(expected, preOrder(recovered));
+        assertEquals(7, recovered.size());
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoverAfterCommitWithoutClose() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LCRSTree<>());
+        fill(tree);
+        tree.commit();
+
+        DurableTree<String> recovered = DurableTree.open(directory, new LCRSTree<>());
+        assertEquals(preOrder(tree), preOrder(recovered));
+        recovered.close();
+        tree.close();
+    }
+
+    @Test
+    public void testAttach() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LCRSTree<>());
+        Position<String> a = tree.addRoot("A");
+        tree.add("B", a);
+        LCRSTree<String> other = new LCRSTree<>();
+        Position<String> x = other.addRoot("X");
+        other.add("Y", other.add("Z", x));
+        tree.attach(a, other);
+        String expected = preOrder(tree);
+        assertEquals("0A 1B 1X 2Z 3Y ", expected);
+        tree.close();
+
+        DurableTree<String> recovered = DurableTree.open(directory, new LCRSTree<>());
+        assertEquals(expected, preOrder(recovered));
+        recovered.close();
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+        fill(tree);
+        tree.snapshot();
+        tree.add("after", tree.root());
+        String expected = preOrder(tree);
+        tree.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        DurableTree<String> recovered = DurableTree.open(directory, new LinkedTree<>());
+        assertEquals(expected, preOrder(recovered));
+        recovered.close();
+    }
+
+    @Test
+    public void testAutomaticSnapshots() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+        tree.setSnapshotInterval(100);
+        Position<String> root = tree.addRoot("root");
+        for (int i = 0; i < 1000; i++) {
+            tree.add("n" + i, i % 2 == 0 ? root : tree.select(i));
+        }
+        String expected = preOrder(tree);
+        tree.close();
+
+        assertTrue(Files.exists(directory.resolve("snapshot")));
+        DurableTree<String> recovered = DurableTree.open(directory, new LinkedTree<>());
+        assertEquals(expected, preOrder(recovered));
+        recovered.close();
+    }
+
+    @Test
+    public void testSnapshotsWhileWriting() throws IOException {
+        for (int run = 0; run < 20; run++) {
+            DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+            tree.setCommitDelay(0);
+            tree.setSnapshotInterval(3);
+            Position<String> root = tree.addRoot("root");
+            for (int i = 0; i < 300; i++) {
+                tree.add("n" + i, root);
+            }
+            String expected = preOrder(tree);
+            tree.close();
+
+            DurableTree<String> recovered = DurableTree.open(directory, new LinkedTree<>());
+            assertEquals(301, recovered.size());
+            assertEquals(expected, preOrder(recovered));
+            recovered.close();
+            clear();
+        }
+    }
+
+    @Test
+    public void testToDotSeesChanges() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        assertEquals("digraph Tree {\n\"A\" -> \"B\";\n}", tree.toDot());
+        tree.replace(b, "C");
+        tree.add("D", a);
+        assertEquals("digraph Tree {\n\"A\" -> \"C\";\n\"A\" -> \"D\";\n}", tree.toDot());
+        tree.close();
+    }
+
+    @Test
+    public void testIncompleteRecordIsIgnored() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+        Position<String> a = tree.addRoot("A");
+        tree.add("B", a);
+        tree.close();
+        Path log;
+        try (Stream<Path> files = Files.list(directory)) {
+            log = files.filter(f -> f.getFileName().toString().startsWith("wal-")).findFirst().get();
+        }
+        Files.write(log, "A 0 =C".getBytes(), StandardOpenOption.APPEND);
+
+        DurableTree<String> recovered = DurableTree.open(directory, new LinkedTree<>());
+        assertEquals("0A 1B ", preOrder(recovered));
+        recovered.add("D", recovered.root());
+        recovered.close();
+
+        DurableTree<String> again = DurableTree.open(directory, new LinkedTree<>());
+        assertEquals("0A 1B 1D ", preOrder(again));
+        again.close();
+    }
+
+    @Test
+    public void testCustomCodec() throws IOException {
+        DurableTree<Integer> tree = DurableTree.open(directory, new LinkedTree<>(), String::valueOf, Integer::valueOf);
+        Position<Integer> root = tree.addRoot(1);
+        tree.add(2, root);
+        tree.close();
+
+        DurableTree<Integer> recovered = DurableTree.open(directory, new LinkedTree<>(), String::valueOf, Integer::valueOf);
+        assertEquals(Integer.valueOf(2), recovered.children(recovered.root()).iterator().next().getElement());
+        recovered.close();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testClosed() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+        tree.close();
+        tree.addRoot("A");
+    }
+
+    @Test
+    public void testSubTreeIsReadOnly() throws IOException {
+        DurableTree<String> tree = DurableTree.open(directory, new LinkedTree<>());
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        try {
+            tree.subTree(b).add("C", b);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        tree.close();
+    }
+}
@@ -0,0 +1,254 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the Forest class.
+ */
+public class ForestTest {
+
+    private Forest<String> forest;
+
+    @Before
+    public void setUp() {
+        forest = new Forest<>(4);
+        forest.setDebugChecks(true);
+    }
+
+    private static String preOrder(Tree<String> tree) {
+        StringBuilder s = new StringBuilder();
+        tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> s.append(depth).append(p.getElement()).append(' '));
+        return s.toString();
+    }
+
+    private static void assertRejected(Runnable action) {
+        try {
+            action.run();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("The position is invalid", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAddAndNavigate() {
+        Forest<String>.ForestTree tree = forest.newTree();
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        Position<String> d = tree.add("D", a);
+        tree.add("C", a, 1);
+        tree.add("E", b);
+        assertEquals("0A 1B 2E 1C 1D ", preOrder(tree));
+        assertEquals(5, tree.size());
+        assertEquals(2, tree.subtreeSize(b));
+        assertEquals(a, tree.parent(d));
+        assertTrue(tree.isRoot(a));
+        assertTrue(tree.isLeaf(d));
+        assertEquals("B", tree.select(1).getElement());
+        assertTrue(forest.capacity() >= 5);
+
+        List<String> bfs = new ArrayList<>();
+        for (Position<String> p : tree) {
+            bfs.add(p.getElement());
+        }
+        assertEquals("[A, B, C, D, E]", bfs.toString());
+
+        tree.swapElements(b, d);
+        assertEquals("D", tree.replace(b, "X"));
+        assertEquals("0A 1X 2E 1C 1B ", preOrder(tree));
+    }
+
+    @Test
+    public void testRemoveReusesSlots() {
+        Forest<String>.ForestTree tree = forest.newTree();
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        tree.add("C", b);
+        tree.add("D", a);
+        int capacity = forest.capacity();
+        tree.remove(b);
+        assertEquals(2, forest.size());
+        assertEquals("0A 1D ", preOrder(tree));
+        assertRejected(() -> tree.add("X", b));
+        assertRejected(b::getElement);
+
+        tree.add("E", a);
+        tree.add("F", a);
+        assertEquals(4, forest.size());
+        assertEquals(capacity, forest.capacity());
+        assertRejected(() -> tree.isLeaf(b));
+    }
+
+    @Test
+    public void testMovesBetweenTrees() {
+        Forest<String>.ForestTree first = forest.newTree();
+        Position<String> a = first.addRoot("A");
+        Position<String> b = first.add("B", a);
+        first.add("C", b);
+        Forest<String>.ForestTree second = forest.newTree();
+        Position<String> x = second.addRoot("X");
+        second.add("Y", x);
+
+        first.attach(b, second);
+        assertTrue(second.isEmpty());
+        assertEquals("0A 1B 2C 2X 3Y ", preOrder(first));
+        assertEquals(5, first.size());
+        assertEquals(x, first.select(3));
+
+        Forest<String>.ForestTree moved = forest.detach(b);
+        assertEquals("0A ", preOrder(first));
+        assertEquals("0B 1C 1X 2Y ", preOrder(moved));
+        assertEquals(4, moved.size());
+        assertTrue(moved.isRoot(b));
+        assertEquals(5, forest.size());
+        assertEquals(3, forest.trees().size());
+
+        try {
+            moved.attach(x, moved.subTree(b));
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("The tree is invalid", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSubTreeAndCopies() {
+        Forest<String>.ForestTree tree = forest.newTree();
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        tree.add("C", b);
+        tree.add("D", a);
+
+        Forest<String>.ForestTree sub = tree.subTree(b);
+        assertEquals("0B 1C ", preOrder(sub));
+        sub.add("E", b);
+        assertEquals(5, tree.size());
+        assertRejected(() -> sub.parent(a));
+
+        Forest<String>.ForestTree copy = tree.copySubtree(b);
+        copy.replace(copy.root(), "B2");
+        assertEquals("0B2 1C 1E ", preOrder(copy));
+        assertEquals("B", b.getElement());
+        assertEquals(8, forest.size());
+
+        LinkedTree<String> foreign = new LinkedTree<>();
+        foreign.add("Z", foreign.addRoot("Y"));
+        tree.attach(a, foreign);
+        assertEquals("0A 1B 2C 2E 1D 1Y 2Z ", preOrder(tree));
+        assertEquals(2, foreign.size());
+        assertEquals(preOrder(tree), preOrder(tree.deepCopy()));
+    }
+
+    @Test
+    public void testReleaseAndForestIteration() {
+        Forest<String>.ForestTree first = forest.newTree();
+        first.add("B", first.addRoot("A"));
+        Forest<String>.ForestTree second = forest.newTree();
+        Position<String> x = second.addRoot("X");
+        second.add("Y", x);
+        second.add("Z", x);
+        assertEquals(5, forest.size());
+
+        List<String> all = new ArrayList<>();
+        for (Position<String> p : forest) {
+            all.add(p.getElement());
+        }
+        assertEquals("[A, B, X, Y, Z]", all.toString());
+
+        forest.release(second);
+        assertEquals(2, forest.size());
+        assertEquals(1, forest.trees().size());
+        assertRejected(x::getElement);
+        Iterator<Position<String>> it = forest.iterator();
+        assertEquals("A", it.next().getElement());
+        assertEquals("B", it.next().getElement());
+        assertFalse(it.hasNext());
+
+        Forest<String>.ForestTree third = forest.newTree();
+        third.addRoot("N");
+        assertEquals(3, forest.size());
+        assertFalse(x.equals(third.root()));
+    }
+
+    @Test
+    public void testForeignPositions() {
+        Forest<String>.ForestTree first = forest.newTree();
+        Position<String> a = first.addRoot("A");
+        Forest<String>.ForestTree second = forest.newTree();
+        Position<String> x = second.addRoot("X");
+        assertRejected(() -> first.add("B", x));
+        Forest<String> other = new Forest<>();
+        assertRejected(() -> other.newTree().subTree(a));
+        LinkedTree<String> linked = new LinkedTree<>();
+        Position<String> l = linked.addRoot("L");
+        assertRejected(() -> first.add("B", l));
+    }
+
+    @Test
+    public void testCursorAndAggregate() {
+        Forest<String>.ForestTree tree = forest.newTree();
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        Position<String> c = tree.add("C", b);
+        tree.add("D", a);
+        SubtreeAggregate<String, Integer> count = SubtreeAggregate.count(tree);
+
+        TreeCursor<String> cursor = tree.cursor(c);
+        assertEquals(2, cursor.depth());
+        assertTrue(cursor.toParent());
+        assertTrue(cursor.toNextSibling());
+        assertEquals("D", cursor.element());
+        assertTrue(cursor.toParent());
+        assertFalse(cursor.toParent());
+
+        tree.add("E", c);
+        assertEquals(Integer.valueOf(5), count.get(a));
+        tree.remove(b);
+        assertEquals(Integer.valueOf(2), count.get(a));
+        count.close();
+    }
+
+    @Test
+    public void testToDotOfTreesAndViews() {
+        Forest<String>.ForestTree tree = forest.newTree();
+        Position<String> a = tree.addRoot("A");
+        Position<String> x = tree.add("X", a);
+        tree.add("Y", x);
+        Forest<String>.ForestTree view = tree.subTree(x);
+        assertEquals("digraph Tree {\n\"A\" -> \"X\";\n\"X\" -> \"Y\";\n}", tree.toDot());
+        assertEquals("digraph Tree {\n\"X\" -> \"Y\";\n}", view.toDot());
+
+        tree.replace(x, "X2");
+        tree.add("N", x);
+        assertEquals("digraph Tree {\n\"X2\" -> \"Y\";\n\"X2\" -> \"N\";\n}", view.toDot());
+
+        view.add("M", x);
+        view.replace(view.select(1), "Y2");
+        assertEquals("digraph Tree {\n\"A\" -> \"X2\";\n\"X2\" -> \"Y2\";\n\"X2\" -> \"N\";\n"
+                + "\"X2\" -> \"M\";\n}", tree.toDot());
+
+        Forest<String>.ForestTree moved = forest.detach(x);
+        assertEquals("digraph Tree {\n}", tree.toDot());
+        assertEquals("digraph Tree {\n\"X2\" -> \"Y2\";\n\"X2\" -> \"N\";\n\"X2\" -> \"M\";\n}", moved.toDot());
+        view.remove(view.select(1));
+        assertEquals("digraph Tree {\n\"X2\" -> \"N\";\n\"X2\" -> \"M\";\n}", moved.toDot());
+    }
+
+    @Test
+    public void testToDotAfterCollection() {
+        Forest<String>.ForestTree tree = forest.newTree();
+        Position<String> a = tree.addRoot("A");
+        Position<String> b = tree.add("B", a);
+        Position<String> c = tree.add("C", b);
+        assertEquals("digraph Tree {\n\"A\" -> \"B\";\n\"B\" -> \"C\";\n}", tree.toDot());
+        System.gc();
+        tree.replace(c, "CHANGED");
+        assertEquals("digraph Tree {\n\"A\" -> \"B\";\n\"B\" -> \"CHANGED\";\n}", tree.toDot());
+    }
+}
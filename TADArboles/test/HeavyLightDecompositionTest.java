@@ -0,0 +1,123 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the HeavyLightDecomposition class.
+ */
+public class HeavyLightDecompositionTest {
+
+    private LinkedTree<Integer> tree = new LinkedTree<>();
+    private List<Position<Integer>> positions = new ArrayList<>();
+
+    public void setTree(int nodes) {
+        Random random = new Random(7);
+        positions.add(tree.addRoot(random.nextInt(100)));
+        for (int i = 1; i < nodes; i++) {
+            Position<Integer> parent = positions.get(random.nextInt(positions.size()));
+            positions.add(tree.add(random.nextInt(100), parent));
+        }
+    }
+
+    private List<Position<Integer>> pathToRoot(Position<Integer> p) {
+        List<Position<Integer>> path = new ArrayList<>();
+        for (; p != null; p = tree.parent(p)) {
+            path.add(p);
+        }
+        return path;
+    }
+
+    /**
+     * Aggregates a path walking up from both ends to their common ancestor.
+     */
+    private double naiveSum(Position<Integer> u, Position<Integer> v) {
+        List<Position<Integer>> pu = pathToRoot(u);
+        List<Position<Integer>> pv = pathToRoot(v);
+        double sum = 0;
+        for (Position<Integer> p : pu) {
+            if (!pv.contains(p)) {
+                sum += p.getElement();
+            }
+        }
+        for (Position<Integer> p : pv) {
+            sum += p.getElement();
+            if (pu.contains(p)) {
+                return sum;
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void testSumQueries() {
+        this.setTree(300);
+        HeavyLightDecomposition<Integer> hld = HeavyLightDecomposition.sum(tree, Integer::doubleValue);
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            Position<Integer> u = positions.get(random.nextInt(positions.size()));
+            Position<Integer> v = positions.get(random.nextInt(positions.size()));
+            assertEquals(naiveSum(u, v), hld.query(u, v), 0);
+        }
+    }
+
+    @Test
+    public void testReplace() {
+        this.setTree(300);
+        HeavyLightDecomposition<Integer> hld = HeavyLightDecomposition.sum(tree, Integer::doubleValue);
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            hld.replace(positions.get(random.nextInt(positions.size())), random.nextInt(100));
+            Position<Integer> u = positions.get(random.nextInt(positions.size()));
+            assertEquals(naiveSum(u, tree.root()), hld.queryToRoot(u), 0);
+        }
+    }
+
+    @Test
+    public void testMaxAndMin() {
+        Position<Integer> p = tree.addRoot(5);
+        Position<Integer> a = tree.add(9, p);
+        Position<Integer> b = tree.add(1, a);
+        Position<Integer> c = tree.add(3, p);
+        assertEquals(9, HeavyLightDecomposition.max(tree, Integer::doubleValue).query(b, c), 0);
+        assertEquals(1, HeavyLightDecomposition.min(tree, Integer::doubleValue).query(b, c), 0);
+        assertEquals(3, HeavyLightDecomposition.min(tree, Integer::doubleValue).query(p, c), 0);
+    }
+
+    @Test
+    public void testLowestCommonAncestor() {
+        this.setTree(300);
+        HeavyLightDecomposition<Integer> hld = HeavyLightDecomposition.sum(tree, Integer::doubleValue);
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            Position<Integer> u = positions.get(random.nextInt(positions.size()));
+            Position<Integer> v = positions.get(random.nextInt(positions.size()));
+            List<Position<Integer>> pv = pathToRoot(v);
+            Position<Integer> expected = u;
+            while (!pv.contains(expected)) {
+                expected = tree.parent(expected);
+            }
+            assertEquals(expected, hld.lowestCommonAncestor(u, v));
+        }
+    }
+
+    @Test
+    public void testForestPositions() {
+        // A forest returns a new position object for the same node on every call.
+        Forest<Integer>.ForestTree t = new Forest<Integer>().newTree();
+        Position<Integer> root = t.addRoot(1);
+        Position<Integer> a = t.add(2, root);
+        Position<Integer> b = t.add(4, a);
+        t.add(8, b);
+        Position<Integer> c = t.add(16, root);
+        HeavyLightDecomposition<Integer> hld = HeavyLightDecomposition.sum(t, Integer::doubleValue);
+        assertEquals(1 + 2 + 4 + 8 + 16, hld.query(t.select(3), c), 0);
+        assertEquals(1 + 2 + 4, hld.queryToRoot(b), 0);
+        assertEquals(root, hld.lowestCommonAncestor(b, c));
+    }
+}
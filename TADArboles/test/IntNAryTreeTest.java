@@ -0,0 +1,199 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the IntNAryTree class.
+ */
+public class IntNAryTreeTest {
+
+    private IntNAryTree tree = new IntNAryTree();
+
+    public void setTree() {
+        Position<Integer> p = tree.addRoot(1);
+        tree.add(2, p);
+        Position<Integer> p1 = tree.add(3, p);
+        tree.add(4, p);
+        tree.add(5, p1);
+        Position<Integer> p2 = tree.add(6, p1);
+        tree.add(7, p2);
+        Position<Integer> p3 = tree.add(8, p2);
+        tree.add(9, p3);
+        tree.add(10, p3);
+        tree.add(11, p3);
+        tree.add(12, p3);
+    }
+
+    private static String preOrder(Tree<Integer> tree) {
+        StringBuilder s = new StringBuilder();
+        tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> s.append(p.getElement()).append(' '));
+        return s.toString();
+    }
+
+    @Test
+    public void testPrimitiveAccess() {
+        this.setTree();
+        assertEquals(12, tree.size());
+        Position<Integer> p3 = tree.boxed().select(6);
+        assertEquals(8, tree.getInt(p3));
+        assertEquals(8, tree.replace(p3, 80));
+        assertEquals(80, tree.getInt(p3));
+        assertEquals(5, tree.subtreeSize(p3));
+        tree.swapElements(p3, tree.root());
+        assertEquals(80, tree.getInt(tree.root()));
+
+        IntNAryTree.Cursor cursor = tree.cursor(tree.root());
+        long sum = 0;
+        do {
+            sum += cursor.intElement();
+        } while (cursor.toFirstChild());
+        assertEquals(80 + 2, sum);
+        assertEquals(1, cursor.depth());
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        this.setTree();
+        Position<Integer> root = tree.root();
+        tree.add(13, root, 0);
+        tree.add(14, root, 4);
+        assertEquals("1 13 2 3 5 6 7 8 9 10 11 12 4 14 ", preOrder(tree.boxed()));
+        tree.remove(tree.boxed().select(5));
+        assertEquals("1 13 2 3 5 4 14 ", preOrder(tree.boxed()));
+        assertEquals(7, tree.size());
+        assertEquals(2, tree.subtreeSize(tree.boxed().select(3)));
+        Position<Integer> last = tree.add(15, root);
+        assertEquals(root, tree.parent(last));
+        try {
+            tree.add(16, root, 7);
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBoxedView() {
+        this.setTree();
+        NAryTree<Integer> view = tree.boxed();
+        assertSame(view, tree.boxed());
+        List<Integer> elements = new ArrayList<>();
+        for (Position<Integer> p : view) {
+            elements.add(p.getElement());
+        }
+        assertEquals("[1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12]", elements.toString());
+        Position<Integer> added = view.add(20, view.root());
+        assertEquals(20, tree.getInt(added));
+        assertEquals(13, tree.size());
+        assertEquals(Integer.valueOf(20), view.replace(added, 21));
+        try {
+            view.add(null, view.root());
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCopiesAndAttach() {
+        this.setTree();
+        IntNAryTree copy = tree.deepCopy();
+        copy.replace(copy.root(), 100);
+        assertEquals(1, tree.getInt(tree.root()));
+        assertEquals(12, copy.size());
+        assertEquals(preOrder(tree.boxed()).substring(1), preOrder(copy.boxed()).substring(3));
+
+        LCRSTree<Integer> other = new LCRSTree<>();
+        other.add(31, other.addRoot(30));
+        tree.boxed().attach(tree.root(), other);
+        assertEquals(14, tree.size());
+        assertEquals(14, tree.subtreeSize(tree.root()));
+        assertTrue(preOrder(tree.boxed()).endsWith("4 30 31 "));
+
+        IntNAryTree sub = tree.subTree(tree.boxed().select(2));
+        assertEquals(9, sub.size());
+        tree.boxed().attach(tree.boxed().select(1), tree.copySubtree(tree.boxed().select(2)).boxed());
+        assertEquals(23, tree.size());
+    }
+
+    @Test
+    public void testEventsAndDot() {
+        this.setTree();
+        SubtreeAggregate<Integer, Double> sums = SubtreeAggregate.sum(tree.boxed(), e -> e);
+        assertEquals(78.0, sums.get(tree.root()), 0.0);
+        tree.replace(tree.boxed().select(6), 18);
+        assertEquals(88.0, sums.get(tree.root()), 0.0);
+        String dot = tree.boxed().toDot();
+        tree.replace(tree.boxed().select(1), 22);
+        assertNotEquals(dot, tree.boxed().toDot());
+        assertTrue(tree.boxed().toDot().contains("\"1\" -> \"22\""));
+        sums.close();
+    }
+
+    @Test
+    public void testToDotOfSubTrees() {
+        IntNAryTree tree = new IntNAryTree();
+        Position<Integer> root = tree.addRoot(1);
+        Position<Integer> x = tree.add(2, root);
+        tree.add(3, x);
+        IntNAryTree sub = tree.subTree(x);
+        assertEquals("digraph Tree {\n\"1\" -> \"2\";\n\"2\" -> \"3\";\n}", tree.boxed().toDot());
+        assertEquals("digraph Tree {\n\"2\" -> \"3\";\n}", sub.boxed().toDot());
+        tree.add(4, x);
+        assertEquals("digraph Tree {\n\"2\" -> \"3\";\n\"2\" -> \"4\";\n}", sub.boxed().toDot());
+        sub.replace(x, 5);
+        assertEquals("digraph Tree {\n\"1\" -> \"5\";\n\"5\" -> \"3\";\n\"5\" -> \"4\";\n}", tree.boxed().toDot());
+    }
+
+    @Test
+    public void testPositionChecks() {
+        this.setTree();
+        IntNAryTree other = new IntNAryTree();
+        Position<Integer> foreign = other.addRoot(1);
+        assertRejected(() -> tree.add(2, foreign));
+        assertRejected(() -> tree.getInt(foreign));
+        Position<Integer> below = tree.boxed().select(9);
+        Position<Integer> removed = tree.parent(tree.parent(below));
+        tree.remove(removed);
+        assertRejected(() -> tree.add(13, removed));
+        assertRejected(() -> tree.replace(below, 13));
+        assertEquals(5, tree.size());
+    }
+
+    @Test
+    public void testAttachRejectsSharedNodes() {
+        this.setTree();
+        IntNAryTree sub = tree.subTree(tree.boxed().select(2));
+        assertRejected(() -> tree.attach(tree.root(), tree));
+        assertRejected(() -> tree.attach(tree.boxed().select(1), sub));
+        assertRejected(() -> sub.attach(sub.root(), tree));
+        assertEquals(12, tree.size());
+        assertEquals("1 2 3 5 6 7 8 9 10 11 12 4 ", preOrder(tree.boxed()));
+
+        IntNAryTree other = new IntNAryTree();
+        Position<Integer> moved = other.add(31, other.addRoot(30));
+        IntNAryTree otherSub = other.subTree(moved);
+        tree.attach(tree.root(), otherSub);
+        assertEquals(2, other.size());
+        tree.attach(tree.root(), other);
+        assertTrue(other.isEmpty());
+        assertEquals(31, tree.getInt(moved));
+        assertRejected(() -> other.getInt(moved));
+        assertEquals("1 2 3 5 6 7 8 9 10 11 12 4 31 30 31 ", preOrder(tree.boxed()));
+        assertEquals(15, tree.size());
+    }
+
+    private static void assertRejected(Runnable action) {
+        try {
+            action.run();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().endsWith("is invalid"));
+        }
+    }
+}
@@ -309,4 +309,305 @@ public class LCRSTreeTest {
         }
         assertEquals(salida.toString(), "-12-245-37-49101112");
     }
+
+    @Test
+    public void testTraverse() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        this.tree.traverse(2, p -> p.getElement() != 4, (p, depth) -> s.append(p.getElement()).append(':').append(depth).append(' '));
+        assertEquals("1:0 2:1 3:1 5:2 6:2 4:1 ", s.toString());
+    }
+
+    @Test
+    public void testTraversePruned() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        this.tree.traverse(Integer.MAX_VALUE, p -> p.getElement() != 6, (p, depth) -> s.append(p.getElement()));
+        assertEquals("123564", s.toString());
+    }
+
+    @Test
+    public void testSelectAndRank() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        for (int k = 0; k < this.tree.size(); k++) {
+            Position<Integer> p = this.tree.select(k);
+            assertEquals(k, this.tree.rank(p));
+            s.append(p.getElement());
+        }
+        assertEquals("123567891011124", s.toString());
+    }
+
+    @Test
+    public void testSelectAfterRemove() {
+        this.setTree();
+        this.tree.remove(this.tree.select(2));
+        assertEquals(4, this.tree.select(2).getElement().intValue());
+        assertEquals(1, this.tree.subtreeSize(this.tree.select(2)));
+        assertEquals(3, this.tree.subtreeSize(this.tree.root()));
+        try {
+            this.tree.select(3);
+            fail("An index out of range was accepted");
+        } catch (RuntimeException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testCopyOf() {
+        LinkedTree<Integer> linked = new LinkedTree<>();
+        Position<Integer> p = linked.addRoot(1);
+        linked.add(2, p);
+        Position<Integer> p1 = linked.add(3, p);
+        linked.add(4, p1);
+
+        LCRSTree<Integer> copy = LCRSTree.copyOf(linked);
+        assertEquals(4, copy.size());
+        assertEquals(linked.structuralHash(linked.root()), copy.structuralHash(copy.root()));
+        copy.add(5, copy.root());
+        assertEquals(4, linked.size());
+        assertEquals(2, copy.subtreeSize(copy.select(2)));
+    }
+
+    @Test
+    public void testDeepCopy() {
+        this.setTree();
+        LCRSTree<Integer> copy = this.tree.deepCopy();
+        assertEquals(12, copy.size());
+        assertEquals(this.tree.structuralHash(this.tree.root()), copy.structuralHash(copy.root()));
+        copy.replace(copy.select(3), 50);
+        copy.remove(copy.select(1));
+        assertEquals(12, this.tree.size());
+        assertEquals(5, this.tree.select(3).getElement().intValue());
+    }
+
+    @Test
+    public void testRemoveIf() {
+        this.setTree();
+        assertEquals(6, this.tree.removeIf(p -> p.getElement() == 2 || p.getElement() == 8));
+        assertEquals(6, this.tree.size());
+        StringBuilder s = new StringBuilder();
+        this.tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> s.append(p.getElement()).append(' '));
+        assertEquals("1 3 5 6 7 4 ", s.toString());
+        assertEquals(4, this.tree.subtreeSize(this.tree.select(1)));
+        Position<Integer> p6 = this.tree.select(3);
+        this.tree.add(13, p6);
+        assertEquals(13, this.tree.select(5).getElement().intValue());
+        assertEquals(0, this.tree.removeIf(p -> false));
+        assertEquals(7, this.tree.removeIf(this.tree::isRoot));
+        assertTrue(this.tree.isEmpty());
+    }
+
+    @Test
+    public void testRemoveIfParallel() {
+        java.util.Random random = new java.util.Random(7);
+        java.util.List<Position<Integer>> nodes = new java.util.ArrayList<>();
+        nodes.add(this.tree.addRoot(0));
+        for (int i = 1; i < 20000; i++) {
+            nodes.add(this.tree.add(i, nodes.get(random.nextInt(nodes.size()))));
+        }
+        LCRSTree<Integer> parallel = this.tree.deepCopy();
+        java.util.function.Predicate<Position<Integer>> filter = p -> p.getElement() % 10 == 7;
+        int removed = this.tree.removeIf(filter, false);
+        assertEquals(removed, parallel.removeIf(filter, true));
+        assertEquals(20000 - removed, this.tree.size());
+        assertEquals(this.tree.size(), parallel.subtreeSize(parallel.root()));
+        for (int k = 0; k < this.tree.size(); k++) {
+            assertEquals(this.tree.select(k).getElement(), parallel.select(k).getElement());
+        }
+    }
+
+    @Test
+    public void testFailFastIterators() {
+        this.setTree();
+        java.util.Iterator<Position<Integer>> it = this.tree.iterator();
+        this.tree.replace(it.next(), 100);
+        it.next();
+        this.tree.remove(this.tree.select(1));
+        try {
+            it.next();
+            fail();
+        } catch (java.util.ConcurrentModificationException e) {
+            // expected
+        }
+
+        try {
+            for (Position<Integer> child : this.tree.children(this.tree.root())) {
+                this.tree.add(13, child);
+            }
+            fail();
+        } catch (java.util.ConcurrentModificationException e) {
+            // expected
+        }
+    }
+
+    private static void assertRejected(Runnable operation) {
+        try {
+            operation.run();
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testForeignAndRemovedPositions() {
+        this.setTree();
+        this.tree.setDebugChecks(false);
+        LCRSTree<Integer> other = this.tree.deepCopy();
+        Position<Integer> foreign = other.select(1);
+        assertRejected(() -> this.tree.remove(foreign));
+
+        Position<Integer> p1 = this.tree.select(2);
+        Position<Integer> p3 = this.tree.select(5);
+        this.tree.remove(p1);
+        assertEquals(3, this.tree.size());
+        assertRejected(() -> this.tree.remove(p1));
+        this.tree.setDebugChecks(true);
+        assertRejected(() -> this.tree.remove(p3));
+        assertEquals(3, this.tree.size());
+
+        LCRSTree<Integer> attached = new LCRSTree<>();
+        Position<Integer> x = attached.addRoot(20);
+        this.tree.attach(this.tree.root(), attached);
+        this.tree.add(21, x);
+        assertEquals(5, this.tree.size());
+    }
+
+    @Test
+    public void testRemovedSubtreeFastChecks() {
+        LCRSTree<Integer> t = new LCRSTree<>();
+        t.setDebugChecks(false);
+        Position<Integer> root = t.addRoot(0);
+        Position<Integer> a = t.add(1, root);
+        Position<Integer> b = t.add(2, a);
+        Position<Integer> c = t.add(3, b);
+        t.remove(a);
+        assertRejected(() -> t.remove(b));
+        assertRejected(() -> t.add(4, c));
+        assertEquals(1, t.size());
+        assertEquals(1, t.subtreeSize(root));
+    }
+
+    @Test
+    public void testRemoveSubTreeViewRoot() {
+        for (boolean debug : new boolean[]{false, true}) {
+            LCRSTree<Integer> t = new LCRSTree<>();
+            t.setDebugChecks(debug);
+            Position<Integer> b = t.add(1, t.addRoot(0));
+            Position<Integer> c = t.add(2, b);
+            NAryTree<Integer> sub = t.subTree(b);
+            sub.remove(sub.root());
+            assertTrue(sub.isEmpty());
+            t.add(3, b);
+            t.replace(c, 20);
+            assertEquals(4, t.size());
+            assertEquals(3, t.subtreeSize(b));
+        }
+    }
+
+    @Test
+    public void testAttachSubTreeView() {
+        LCRSTree<Integer> a = new LCRSTree<>();
+        a.setDebugChecks(false);
+        Position<Integer> x = a.add(1, a.addRoot(0));
+        Position<Integer> w = a.add(2, x);
+        a.add(3, a.root());
+        LCRSTree<Integer> c = new LCRSTree<>();
+        c.setDebugChecks(false);
+        Position<Integer> top = c.addRoot(10);
+        c.attach(top, a.subTree(x));
+        assertEquals(3, c.size());
+        assertEquals(2, c.select(2).getElement().intValue());
+        assertRejected(() -> c.replace(w, 20));
+        assertEquals(1, a.replace(x, 11).intValue());
+        assertEquals(2, a.replace(w, 12).intValue());
+        assertEquals(4, a.size());
+        assertEquals(2, a.subtreeSize(a.root()) - a.subtreeSize(x));
+    }
+
+    @Test
+    public void testAttachMovesTheTree() {
+        LCRSTree<Integer> a = new LCRSTree<>();
+        Position<Integer> x = a.add(1, a.addRoot(0));
+        LCRSTree<Integer> c = new LCRSTree<>();
+        Position<Integer> top = c.addRoot(10);
+        c.attach(top, a);
+        assertTrue(a.isEmpty());
+        assertEquals(0, a.size());
+        assertRejected(() -> a.add(2, x));
+        c.add(2, x);
+        assertEquals(4, c.size());
+        a.addRoot(5);
+        assertEquals(4, c.size());
+        assertRejected(() -> c.attach(top, c));
+        assertRejected(() -> c.attach(top, new LinkedTree<>()));
+        assertEquals(4, c.size());
+    }
+
+    @Test
+    public void testCopySubtree() {
+        this.setTree();
+        Position<Integer> p2 = this.tree.select(4);
+        LCRSTree<Integer> copy = this.tree.copySubtree(p2);
+        assertEquals(7, copy.size());
+        assertNull(copy.parent(copy.root()));
+        copy.add(13, copy.root());
+        assertEquals(12, this.tree.size());
+        assertEquals(7, this.tree.subtreeSize(p2));
+    }
+
+    @Test
+    public void testDeepTree() {
+        LCRSTree<Integer> deep = new LCRSTree<>();
+        deep.setDebugChecks(false);
+        Position<Integer> p = deep.addRoot(0);
+        for (int i = 1; i < 20_000; i++) {
+            if (i % 1000 == 0) {
+                deep.add(-i, p);
+            }
+            p = deep.add(i, p);
+        }
+        int[] visited = new int[2];
+        deep.traverse(Integer.MAX_VALUE, v -> true, (v, depth) -> {
+            visited[0]++;
+            visited[1] = Math.max(visited[1], depth);
+        });
+        assertEquals(deep.size(), visited[0]);
+        assertEquals(19_999, visited[1]);
+        int[] bounded = new int[1];
+        deep.traverse(10, v -> true, (v, depth) -> bounded[0]++);
+        assertEquals(11, bounded[0]);
+
+        int hash = deep.structuralHash(deep.root());
+        LCRSTree<Integer> copy = deep.deepCopy();
+        assertEquals(deep.size(), copy.size());
+        assertEquals(hash, copy.structuralHash(copy.root()));
+        LCRSTree<Integer> copied = LCRSTree.copyOf(deep);
+        assertEquals(hash, copied.structuralHash(copied.root()));
+        deep.replace(p, -1);
+        assertNotEquals(hash, deep.structuralHash(deep.root()));
+    }
+
+    @Test
+    public void testParallelCopyOfLargeTree() {
+        LCRSTree<Integer> large = new LCRSTree<>();
+        java.util.List<Position<Integer>> positions = new java.util.ArrayList<>();
+        positions.add(large.addRoot(0));
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 1; i < 40_000; i++) {
+            positions.add(large.add(i, positions.get(random.nextInt(positions.size()))));
+        }
+        LCRSTree<Integer> copy = large.deepCopy();
+        assertEquals(large.size(), copy.size());
+        assertTrue(TreeDiff.diff(large, copy).isEmpty());
+        assertEquals(preOrder(large), preOrder(copy));
+        assertEquals(preOrder(large), preOrder(LCRSTree.copyOf(large)));
+    }
+
+    private static String preOrder(Tree<Integer> tree) {
+        StringBuilder s = new StringBuilder();
+        tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> s.append(depth).append(':').append(p.getElement()).append(' '));
+        return s.toString();
+    }
 }
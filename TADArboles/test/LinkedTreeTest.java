@@ -266,4 +266,441 @@ public class LinkedTreeTest extends TestCase {
         }
         assertEquals(salida.toString(), "XBYDEZGWIJKL");
     }
-}
\ No newline at end of file
+
+    public void testTraverse() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        this.tree.traverse(1, p -> true, (p, depth) -> s.append(p.getElement()).append(depth));
+        assertEquals("A0B1C1D1", s.toString());
+    }
+
+    public void testTraversePruned() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        this.tree.traverse(this.tree.root(), 3, p -> !p.getElement().equals("B"), (p, depth) -> s.append(p.getElement()));
+        assertEquals("ABCEFGHD", s.toString());
+    }
+
+    public void testSelectAndRank() {
+        this.setTree();
+        StringBuilder s = new StringBuilder();
+        for (int k = 0; k < this.tree.size(); k++) {
+            Position<String> p = this.tree.select(k);
+            assertEquals(k, this.tree.rank(p));
+            s.append(p.getElement());
+        }
+        assertEquals("ABCEFGHIJKLD", s.toString());
+    }
+
+    public void testSubtreeSize() {
+        this.setTree();
+        Position<String> c = this.tree.select(2);
+        assertEquals(9, this.tree.subtreeSize(c));
+        this.tree.add("M", this.tree.select(6));
+        assertEquals(10, this.tree.subtreeSize(c));
+        assertEquals(13, this.tree.subtreeSize(this.tree.root()));
+    }
+
+    public void testCopyOf() {
+        this.setTree();
+        LinkedTree<String> copy = LinkedTree.copyOf(this.tree.compact());
+        assertEquals(12, copy.size());
+        StringBuilder s = new StringBuilder();
+        for (Position<String> pos : copy) {
+            s.append(pos.getElement());
+        }
+        assertEquals("ABCDEFGHIJKL", s.toString());
+        assertEquals(this.tree.structuralHash(this.tree.root()), copy.structuralHash(copy.root()));
+    }
+
+    public void testHashOfIntegerMinValue() {
+        // Integer.MIN_VALUE is its own hash, which a stale cached hash may be marked with.
+        LinkedTree<Integer> t = new LinkedTree<>();
+        Position<Integer> a = t.add(Integer.MIN_VALUE, t.addRoot(1));
+        assertEquals(Integer.MIN_VALUE, t.structuralHash(a));
+        int before = t.structuralHash(t.root());
+        t.add(5, a);
+        assertFalse(before == t.structuralHash(t.root()));
+        LCRSTree<Integer> expected = new LCRSTree<>();
+        expected.add(5, expected.add(Integer.MIN_VALUE, expected.addRoot(1)));
+        assertEquals(expected.structuralHash(expected.root()), t.structuralHash(t.root()));
+        assertEquals(expected.structuralHash(expected.root()), t.structuralHash(t.root()));
+    }
+
+    public void testDeepCopy() {
+        this.setTree();
+        LinkedTree<String> copy = this.tree.deepCopy();
+        assertEquals(12, copy.size());
+        assertEquals(this.tree.structuralHash(this.tree.root()), copy.structuralHash(copy.root()));
+        copy.replace(copy.root(), "Z");
+        copy.remove(copy.select(2));
+        assertEquals(3, copy.size());
+        assertEquals("A", this.tree.root().getElement());
+        assertEquals(12, this.tree.size());
+    }
+
+    public void testRemoveIf() {
+        this.setTree();
+        LinkedTree<String>.ReadView view = this.tree.readView();
+        assertEquals(6, this.tree.removeIf(p -> p.getElement().equals("B") || p.getElement().equals("H")));
+        assertEquals(6, this.tree.size());
+        assertEquals("ACDEFG", elements(this.tree));
+        assertEquals(4, this.tree.subtreeSize(this.tree.select(1)));
+        assertEquals("ABCDEFGHIJKL", elements(view));
+        view.close();
+        assertEquals(0, this.tree.removeIf(p -> false));
+        assertEquals(6, this.tree.removeIf(this.tree::isRoot));
+        assertTrue(this.tree.isEmpty());
+    }
+
+    public void testRemoveIfParallel() {
+        LinkedTree<String> sequential = new LinkedTree<>();
+        java.util.Random random = new java.util.Random(7);
+        java.util.List<Position<String>> nodes = new java.util.ArrayList<>();
+        nodes.add(sequential.addRoot("0"));
+        for (int i = 1; i < 20000; i++) {
+            nodes.add(sequential.add(String.valueOf(i), nodes.get(random.nextInt(nodes.size()))));
+        }
+        LinkedTree<String> parallel = sequential.deepCopy();
+        java.util.function.Predicate<Position<String>> filter = p -> p.getElement().endsWith("7");
+        int removed = sequential.removeIf(filter, false);
+        assertEquals(removed, parallel.removeIf(filter, true));
+        assertEquals(20000 - removed, sequential.size());
+        assertEquals(sequential.size(), parallel.size());
+        assertEquals(sequential.size(), parallel.subtreeSize(parallel.root()));
+        assertEquals(elements(sequential), elements(parallel));
+    }
+
+    private static void assertRejected(Runnable operation) {
+        try {
+            operation.run();
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    public void testForeignAndRemovedPositions() {
+        this.setTree();
+        this.tree.setDebugChecks(false);
+        LinkedTree<String> other = this.tree.deepCopy();
+        assertRejected(() -> this.tree.remove(other.select(1)));
+        assertRejected(() -> other.add("X", this.tree.root()));
+
+        Position<String> c = this.tree.select(2);
+        Position<String> f = this.tree.select(4);
+        this.tree.remove(c);
+        assertEquals(3, this.tree.size());
+        assertRejected(() -> this.tree.remove(c));
+        assertRejected(() -> this.tree.add("X", c));
+        assertEquals(3, this.tree.size());
+
+        this.tree.setDebugChecks(true);
+        assertRejected(() -> this.tree.remove(f));
+        assertEquals(3, this.tree.size());
+    }
+
+    public void testPositionsAfterAttachAndSubTree() {
+        this.setTree();
+        LinkedTree<String> other = new LinkedTree<>();
+        Position<String> x = other.add("X", other.addRoot("R"));
+        this.tree.attach(this.tree.root(), other);
+        this.tree.add("Y", x);
+        assertEquals(14, this.tree.size());
+        assertRejected(() -> other.add("Z", x));
+        other.add("Z", other.root());
+
+        this.tree.setDebugChecks(true);
+        NAryTree<String> sub = this.tree.subTree(this.tree.select(2));
+        sub.add("M", this.tree.select(3));
+        assertRejected(() -> sub.add("N", this.tree.root()));
+    }
+
+    public void testRemovedSubtreeFastChecks() {
+        LinkedTree<String> t = new LinkedTree<>();
+        t.setDebugChecks(false);
+        Position<String> root = t.addRoot("R");
+        Position<String> a = t.add("A", root);
+        Position<String> b = t.add("B", a);
+        Position<String> c = t.add("C", b);
+        t.remove(a);
+        assertRejected(() -> t.remove(b));
+        assertRejected(() -> t.add("X", c));
+        assertEquals(1, t.size());
+        assertEquals(1, t.subtreeSize(root));
+    }
+
+    public void testRemoveSubTreeViewRoot() {
+        for (boolean debug : new boolean[]{false, true}) {
+            LinkedTree<String> t = new LinkedTree<>();
+            t.setDebugChecks(debug);
+            Position<String> b = t.add("B", t.addRoot("A"));
+            Position<String> c = t.add("C", b);
+            NAryTree<String> sub = t.subTree(b);
+            sub.remove(sub.root());
+            assertTrue(sub.isEmpty());
+            t.add("D", b);
+            t.replace(c, "C2");
+            assertEquals(4, t.size());
+            assertEquals(3, t.subtreeSize(b));
+        }
+    }
+
+    public void testAttachSubTreeView() {
+        LinkedTree<String> a = new LinkedTree<>();
+        a.setDebugChecks(false);
+        Position<String> x = a.add("X", a.addRoot("A"));
+        Position<String> w = a.add("W", x);
+        LinkedTree<String> c = new LinkedTree<>();
+        c.setDebugChecks(false);
+        Position<String> top = c.addRoot("C");
+        c.attach(top, a.subTree(x));
+        assertEquals(2, c.size());
+        assertEquals("W", c.children(top).iterator().next().getElement());
+        assertRejected(() -> c.replace(w, "Z"));
+        assertEquals("X", a.replace(x, "X2"));
+        assertEquals("W", a.replace(w, "W2"));
+        assertEquals(3, a.size());
+    }
+
+    public void testLazyOrders() {
+        this.setTree();
+        StringBuilder pre = new StringBuilder();
+        for (java.util.Iterator<Position<String>> it = this.tree.iteratorPreOrder(); it.hasNext(); ) {
+            pre.append(it.next().getElement());
+        }
+        assertEquals("ABCEFGHIJKLD", pre.toString());
+        StringBuilder post = new StringBuilder();
+        for (java.util.Iterator<Position<String>> it = this.tree.iteratorPostOrder(); it.hasNext(); ) {
+            post.append(it.next().getElement());
+        }
+        assertEquals("BEGIJKLHFCDA", post.toString());
+        assertFalse(new LinkedTree<String>().iteratorPostOrder().hasNext());
+    }
+
+    public void testPostOrderOfDeepTree() {
+        LinkedTree<String> deep = new LinkedTree<>();
+        Position<String> p = deep.addRoot("0");
+        for (int i = 1; i < 100; i++) {
+            deep.add("x", p);
+            p = deep.add(Integer.toString(i), p);
+        }
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i < 100; i++) {
+            expected.append("x ");
+        }
+        for (int i = 99; i >= 0; i--) {
+            expected.append(i).append(' ');
+        }
+        StringBuilder post = new StringBuilder();
+        for (java.util.Iterator<Position<String>> it = deep.iteratorPostOrder(); it.hasNext(); ) {
+            post.append(it.next().getElement()).append(' ');
+        }
+        assertEquals(expected.toString(), post.toString());
+    }
+
+    public void testFailFastIterators() {
+        this.setTree();
+        java.util.Iterator<Position<String>> it = this.tree.iterator();
+        this.tree.replace(it.next(), "Z");
+        it.next();
+        this.tree.add("M", this.tree.root());
+        try {
+            it.next();
+            fail();
+        } catch (java.util.ConcurrentModificationException e) {
+            // expected
+        }
+
+        try {
+            for (Position<String> child : this.tree.children(this.tree.root())) {
+                this.tree.remove(child);
+            }
+            fail();
+        } catch (java.util.ConcurrentModificationException e) {
+            // expected
+        }
+        assertEquals(3, ((java.util.List<?>) this.tree.children(this.tree.root())).size());
+    }
+
+    private static String elements(Iterable<Position<String>> tree) {
+        StringBuilder s = new StringBuilder();
+        for (Position<String> pos : tree) {
+            s.append(pos.getElement());
+        }
+        return s.toString();
+    }
+
+    public void testReadView() {
+        this.setTree();
+        LinkedTree<String>.ReadView view = this.tree.readView();
+        Position<String> c = this.tree.select(2);
+        this.tree.replace(c, "X");
+        this.tree.add("M", c);
+        this.tree.remove(this.tree.select(1));
+        this.tree.swapElements(this.tree.root(), c);
+
+        assertEquals(12, view.size());
+        assertEquals("ABCDEFGHIJKL", elements(view));
+        Position<String> viewC = view.children(view.root()).get(1);
+        assertEquals("C", viewC.getElement());
+        assertEquals(view.root(), view.parent(viewC));
+        assertTrue(view.isRoot(view.parent(viewC)));
+
+        LinkedTree<String>.ReadView newer = this.tree.readView();
+        assertEquals(12, newer.size());
+        assertEquals("XADEFMGHIJKL", elements(newer));
+        assertEquals(elements(this.tree), elements(newer));
+        assertTrue(newer.version() > view.version());
+        view.close();
+        newer.close();
+
+        this.tree.remove(this.tree.root());
+        assertTrue(this.tree.readView().isEmpty());
+    }
+
+    public void testReadViewPosition() {
+        this.setTree();
+        LinkedTree<String>.ReadView view = this.tree.readView();
+        try {
+            view.children(this.tree.root());
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        view.close();
+    }
+
+    public void testReadViewParentAfterAttach() {
+        this.setTree();
+        LinkedTree<String> other = new LinkedTree<>();
+        Position<String> r = other.addRoot("R");
+        other.add("X", r);
+        LinkedTree<String>.ReadView view = other.readView();
+        Position<String> x = view.children(view.root()).get(0);
+        this.tree.attach(this.tree.root(), other);
+        assertEquals("A", this.tree.parent(this.tree.select(12)).getElement());
+        assertEquals("X", x.getElement());
+        assertEquals(view.root(), view.parent(x));
+        assertEquals("R", view.parent(x).getElement());
+        assertNull(view.parent(view.root()));
+        for (Position<String> child : view.children(view.root())) {
+            assertEquals(view.root(), view.parent(child));
+        }
+        view.close();
+    }
+
+    public void testReadViewConcurrentWriter() throws InterruptedException {
+        Position<String> root = this.tree.addRoot("0");
+        java.util.concurrent.atomic.AtomicReference<Throwable> error = new java.util.concurrent.atomic.AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            java.util.Random random = new java.util.Random(1);
+            for (int i = 1; i <= 20000; i++) {
+                Position<String> node = this.tree.select(random.nextInt(this.tree.size()));
+                if (i % 5 == 0 && node != root) {
+                    this.tree.remove(node);
+                } else if (i % 7 == 0) {
+                    this.tree.replace(node, node.getElement() + "'");
+                } else {
+                    this.tree.add(String.valueOf(i), node, 0);
+                }
+            }
+        });
+        Runnable reader = () -> {
+            try {
+                while (writer.isAlive()) {
+                    LinkedTree<String>.ReadView view = this.tree.readView();
+                    int count = 0;
+                    for (Position<String> p : view) {
+                        count++;
+                        for (Position<String> child : view.children(p)) {
+                            assertEquals(p, view.parent(child));
+                        }
+                    }
+                    assertEquals(view.size(), count);
+                    view.close();
+                }
+            } catch (Throwable t) {
+                error.set(t);
+            }
+        };
+        Thread[] readers = {new Thread(reader), new Thread(reader)};
+        writer.start();
+        for (Thread t : readers) {
+            t.start();
+        }
+        writer.join();
+        for (Thread t : readers) {
+            t.join();
+        }
+        assertNull(error.get());
+        LinkedTree<String>.ReadView view = this.tree.readView();
+        assertEquals(elements(this.tree), elements(view));
+        view.close();
+    }
+
+    public void testDeepTree() throws java.io.IOException {
+        LinkedTree<Integer> deep = new LinkedTree<>();
+        deep.setDebugChecks(false);
+        Position<Integer> p = deep.addRoot(0);
+        for (int i = 1; i < 20_000; i++) {
+            if (i % 1000 == 0) {
+                deep.add(-i, p);
+            }
+            p = deep.add(i, p);
+        }
+        int[] visited = new int[2];
+        deep.traverse(Integer.MAX_VALUE, v -> true, (v, depth) -> {
+            visited[0]++;
+            visited[1] = Math.max(visited[1], depth);
+        });
+        assertEquals(deep.size(), visited[0]);
+        assertEquals(19_999, visited[1]);
+
+        int hash = deep.structuralHash(deep.root());
+        LinkedTree<Integer> copy = deep.deepCopy();
+        assertEquals(deep.size(), copy.size());
+        assertEquals(hash, copy.structuralHash(copy.root()));
+        CompactTree<Integer> compact = new CompactTree<>(deep);
+        LinkedTree<Integer> copied = LinkedTree.copyOf(compact);
+        assertEquals(hash, copied.structuralHash(copied.root()));
+        IntNAryTree ints = IntNAryTree.copyOf(deep);
+        assertEquals(hash, ints.boxed().structuralHash(ints.root()));
+        int[] compactVisited = new int[1];
+        compact.traverse(Integer.MAX_VALUE, v -> true, (v, depth) -> compactVisited[0]++);
+        assertEquals(deep.size(), compactVisited[0]);
+
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        TreeTextExporter.writeNewick(deep, java.nio.channels.Channels.newChannel(out));
+        String newick = out.toString();
+        assertTrue(newick.startsWith("(((("));
+        assertTrue(newick.endsWith(")0;\n"));
+
+        String dot = deep.toDot();
+        assertTrue(dot.contains("\"19998\" -> \"19999\";"));
+        deep.replace(p, -1);
+        String changed = deep.toDot();
+        assertTrue(changed.contains("\"19998\" -> \"-1\";"));
+        assertEquals(dot.length() - 3, changed.length());
+    }
+
+    public void testParallelCopyOfLargeTree() {
+        LinkedTree<Integer> large = new LinkedTree<>();
+        java.util.List<Position<Integer>> positions = new java.util.ArrayList<>();
+        positions.add(large.addRoot(0));
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 1; i < 40_000; i++) {
+            positions.add(large.add(i, positions.get(random.nextInt(positions.size()))));
+        }
+        LinkedTree<Integer> copy = large.deepCopy();
+        assertEquals(large.size(), copy.size());
+        assertTrue(TreeDiff.diff(large, copy).isEmpty());
+        assertEquals(preOrder(large), preOrder(copy));
+    }
+
+    private static String preOrder(Tree<Integer> tree) {
+        StringBuilder s = new StringBuilder();
+        tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> s.append(depth).append(':').append(p.getElement()).append(' '));
+        return s.toString();
+    }
+}
@@ -0,0 +1,54 @@
+import material.Position;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the LongNAryTree class.
+ */
+public class LongNAryTreeTest {
+
+    @Test
+    public void testPrimitiveAccess() {
+        LongNAryTree tree = new LongNAryTree();
+        Position<Long> root = tree.addRoot(1L << 40);
+        Position<Long> child = tree.add(2, root);
+        tree.add(3, child);
+        assertEquals(1L << 40, tree.getLong(root));
+        assertEquals(2, tree.replace(child, Long.MAX_VALUE));
+        LongNAryTree.Cursor cursor = tree.cursor(root);
+        assertTrue(cursor.toFirstChild());
+        assertEquals(Long.MAX_VALUE, cursor.longElement());
+        assertEquals(3, tree.size());
+        assertEquals(2, tree.subtreeSize(child));
+    }
+
+    @Test
+    public void testBoxedView() {
+        LinkedTree<Long> source = new LinkedTree<>();
+        Position<Long> root = source.addRoot(10L);
+        source.add(11L, root);
+        source.add(12L, root);
+        LongNAryTree tree = LongNAryTree.copyOf(source);
+        assertEquals(source.structuralHash(root), tree.boxed().structuralHash(tree.root()));
+        tree.boxed().remove(tree.boxed().select(1));
+        assertEquals(2, tree.size());
+        assertEquals(12L, tree.getLong(tree.boxed().select(1)));
+    }
+
+    @Test
+    public void testToDotOfSubTrees() {
+        LongNAryTree tree = new LongNAryTree();
+        Position<Long> root = tree.addRoot(1);
+        Position<Long> x = tree.add(2, root);
+        tree.add(3, x);
+        LongNAryTree sub = tree.subTree(x);
+        assertEquals("digraph Tree {\n\"1\" -> \"2\";\n\"2\" -> \"3\";\n}", tree.boxed().toDot());
+        assertEquals("digraph Tree {\n\"2\" -> \"3\";\n}", sub.boxed().toDot());
+        tree.add(4, x);
+        assertEquals("digraph Tree {\n\"2\" -> \"3\";\n\"2\" -> \"4\";\n}", sub.boxed().toDot());
+        sub.replace(x, 5);
+        assertEquals("digraph Tree {\n\"1\" -> \"5\";\n\"5\" -> \"3\";\n\"5\" -> \"4\";\n}", tree.boxed().toDot());
+    }
+}
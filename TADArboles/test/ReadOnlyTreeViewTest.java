@@ -0,0 +1,87 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the ReadOnlyTreeView class.
+ */
+public class ReadOnlyTreeViewTest {
+
+    private LCRSTree<String> tree = new LCRSTree<>();
+    private ReadOnlyTreeView<String> view = new ReadOnlyTreeView<>(tree);
+
+    public void setTree() {
+        Position<String> p = tree.addRoot("A");
+        tree.add("B", p);
+        Position<String> p1 = tree.add("C", p);
+        tree.add("D", p);
+        tree.add("E", p1);
+    }
+
+    private static String concat(Iterator<Position<String>> it) {
+        StringBuilder s = new StringBuilder();
+        while (it.hasNext()) {
+            s.append(it.next().getElement());
+        }
+        return s.toString();
+    }
+
+    @Test
+    public void testIterators() {
+        this.setTree();
+        assertEquals(5, view.size());
+        assertEquals("ABCDE", concat(view.iterator()));
+        assertEquals("ABCED", concat(view.iteratorPreOrder()));
+        assertEquals("BECDA", concat(view.iteratorPostOrder()));
+    }
+
+    @Test
+    public void testViewSeesChanges() {
+        this.setTree();
+        tree.add("F", tree.root());
+        assertEquals(6, view.size());
+        assertEquals("ABCDFE", concat(view.iterator()));
+    }
+
+    @Test
+    public void testMutationsAreRejected() {
+        this.setTree();
+        try {
+            view.add("X", view.root());
+            fail("The view has been modified");
+        } catch (UnsupportedOperationException e) {
+            assertTrue(true);
+        }
+        try {
+            view.subTree(view.root()).remove(view.root());
+            fail("The view has been modified");
+        } catch (UnsupportedOperationException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testToDotSeesChanges() {
+        this.setTree();
+        assertEquals(tree.toDot(), view.toDot());
+        tree.replace(tree.children(tree.root()).iterator().next(), "Z");
+        tree.add("F", tree.root());
+        assertEquals(tree.toDot(), view.toDot());
+        assertFalse(view.toDot().contains("\"A\" -> \"B\""));
+        assertTrue(view.toDot().contains("\"A\" -> \"F\""));
+    }
+
+    @Test
+    public void testListenerExecutorIsRejected() {
+        try {
+            view.setListenerExecutor(Runnable::run);
+            fail("The view has been modified");
+        } catch (UnsupportedOperationException e) {
+            assertTrue(true);
+        }
+    }
+}
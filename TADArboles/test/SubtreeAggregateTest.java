@@ -0,0 +1,123 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the SubtreeAggregate class.
+ */
+public class SubtreeAggregateTest {
+
+    private static int sum(NAryTree<Integer> tree, Position<Integer> p) {
+        int sum = p.getElement();
+        for (Position<Integer> child : tree.children(p)) {
+            sum += sum(tree, child);
+        }
+        return sum;
+    }
+
+    private static int max(NAryTree<Integer> tree, Position<Integer> p) {
+        int max = p.getElement();
+        for (Position<Integer> child : tree.children(p)) {
+            max = Math.max(max, max(tree, child));
+        }
+        return max;
+    }
+
+    @Test
+    public void testInitialValues() {
+        LinkedTree<Integer> tree = new LinkedTree<>();
+        Position<Integer> a = tree.addRoot(1);
+        Position<Integer> b = tree.add(2, a);
+        tree.add(3, b);
+        tree.add(4, a);
+        SubtreeAggregate<Integer, Double> sum = SubtreeAggregate.sum(tree, e -> e);
+        SubtreeAggregate<Integer, Integer> count = SubtreeAggregate.count(tree);
+        assertEquals(10.0, sum.get(a), 0);
+        assertEquals(5.0, sum.get(b), 0);
+        assertEquals(Integer.valueOf(4), count.get(a));
+    }
+
+    @Test
+    public void testOrderedOperation() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        Position<String> a = tree.addRoot("A");
+        SubtreeAggregate<String, String> preOrder = new SubtreeAggregate<>(tree, e -> e, String::concat);
+        Position<String> c = tree.add("C", a);
+        tree.add("B", a, 0);
+        tree.add("D", c);
+        assertEquals("ABCD", preOrder.get(a));
+        tree.replace(c, "X");
+        assertEquals("ABXD", preOrder.get(a));
+        tree.remove(c);
+        assertEquals("AB", preOrder.get(a));
+    }
+
+    @Test
+    public void testRandomMutations() {
+        checkRandomMutations(new LinkedTree<>());
+        checkRandomMutations(new LCRSTree<>());
+    }
+
+    private void checkRandomMutations(NAryTree<Integer> tree) {
+        Random random = new Random(7);
+        tree.addRoot(0);
+        SubtreeAggregate<Integer, Double> sum = SubtreeAggregate.sum(tree, e -> e);
+        SubtreeAggregate<Integer, Double> max = SubtreeAggregate.max(tree, e -> e);
+        for (int i = 0; i < 2000; i++) {
+            int size = tree.subtreeSize(tree.root());
+            Position<Integer> p = tree.select(random.nextInt(size));
+            int action = random.nextInt(10);
+            if (action < 5) {
+                tree.add(random.nextInt(1000), p);
+            } else if (action < 7) {
+                tree.replace(p, random.nextInt(1000));
+            } else if (action < 8) {
+                tree.swapElements(p, tree.select(random.nextInt(size)));
+            } else if (action < 9 && !tree.isRoot(p)) {
+                tree.remove(p);
+            } else {
+                NAryTree<Integer> other = tree instanceof LinkedTree ? new LinkedTree<>() : new LCRSTree<>();
+                Position<Integer> r = other.addRoot(random.nextInt(1000));
+                other.add(random.nextInt(1000), other.add(random.nextInt(1000), r));
+                tree.attach(p, other);
+            }
+        }
+        List<Position<Integer>> all = new ArrayList<>();
+        tree.traverse(Integer.MAX_VALUE, q -> true, (q, depth) -> all.add(q));
+        for (Position<Integer> q : all) {
+            assertEquals(sum(tree, q), sum.get(q), 0);
+            assertEquals(max(tree, q), max.get(q), 0);
+        }
+    }
+
+    @Test
+    public void testRemoveRootAndClose() {
+        LinkedTree<Integer> tree = new LinkedTree<>();
+        Position<Integer> a = tree.addRoot(1);
+        tree.add(2, a);
+        SubtreeAggregate<Integer, Integer> count = SubtreeAggregate.count(tree);
+        tree.remove(a);
+        try {
+            count.get(a);
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        Position<Integer> b = tree.addRoot(5);
+        assertEquals(Integer.valueOf(1), count.get(b));
+        count.close();
+        tree.add(6, b);
+        try {
+            count.get(b);
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+}
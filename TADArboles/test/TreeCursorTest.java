@@ -0,0 +1,119 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the TreeCursor implementations.
+ */
+public class TreeCursorTest {
+
+    private static <T extends NAryTree<Integer>> T fill(T tree) {
+        Position<Integer> p = tree.addRoot(1);
+        tree.add(2, p);
+        Position<Integer> p1 = tree.add(3, p);
+        tree.add(4, p);
+        tree.add(5, p1);
+        Position<Integer> p2 = tree.add(6, p1);
+        tree.add(7, p2);
+        Position<Integer> p3 = tree.add(8, p2);
+        tree.add(9, p3);
+        tree.add(10, p3);
+        return tree;
+    }
+
+    /**
+     * Walks the subtree where the cursor starts in pre-order, writing depth:element.
+     */
+    private static String walk(TreeCursor<Integer> cursor) {
+        StringBuilder s = new StringBuilder();
+        int top = cursor.depth();
+        while (true) {
+            s.append(cursor.depth()).append(':').append(cursor.element()).append(' ');
+            if (cursor.toFirstChild()) {
+                continue;
+            }
+            while (true) {
+                if (cursor.depth() == top) {
+                    return s.toString();
+                }
+                if (cursor.toNextSibling()) {
+                    break;
+                }
+                cursor.toParent();
+            }
+        }
+    }
+
+    /**
+     * Checks the cursors of a tree filled by fill, given the position of element 5.
+     */
+    private static void check(Tree<Integer> tree, Position<Integer> five) {
+        assertEquals("0:1 1:2 1:3 2:5 2:6 3:7 3:8 4:9 4:10 1:4 ", walk(tree.cursor(tree.root())));
+        assertEquals("1:3 2:5 2:6 3:7 3:8 4:9 4:10 ", walk(tree.cursor(tree.parent(five))));
+
+        TreeCursor<Integer> cursor = tree.cursor(five);
+        assertEquals(2, cursor.depth());
+        assertTrue(cursor.toNextSibling());
+        assertEquals(6, cursor.element().intValue());
+        assertFalse(cursor.toNextSibling());
+        assertTrue(cursor.toParent());
+        assertTrue(cursor.toNextSibling());
+        assertEquals(4, cursor.element().intValue());
+        assertFalse(cursor.toFirstChild());
+        assertEquals(1, cursor.depth());
+        assertTrue(cursor.toParent());
+        assertFalse(cursor.toParent());
+        assertFalse(cursor.toNextSibling());
+        assertTrue(tree.isRoot(cursor.position()));
+        assertEquals(1, cursor.element().intValue());
+    }
+
+    @Test
+    public void testLinkedTree() {
+        LinkedTree<Integer> tree = fill(new LinkedTree<>());
+        check(tree, tree.select(3));
+    }
+
+    @Test
+    public void testLCRSTree() {
+        LCRSTree<Integer> tree = fill(new LCRSTree<>());
+        check(tree, tree.select(3));
+    }
+
+    @Test
+    public void testCompactTree() {
+        CompactTree<Integer> compact = fill(new LCRSTree<Integer>()).compact();
+        Iterator<Position<Integer>> preOrder = compact.iteratorPreOrder();
+        for (int i = 0; i < 3; i++) {
+            preOrder.next();
+        }
+        check(compact, preOrder.next());
+    }
+
+    @Test
+    public void testPositionCursor() {
+        LinkedTree<Integer> tree = fill(new LinkedTree<>());
+        LinkedTree<Integer>.ReadView view = tree.readView();
+        Position<Integer> p = view.root();
+        p = view.children(p).get(1);
+        p = view.children(p).get(0);
+        assertEquals(5, p.getElement().intValue());
+        check(view, p);
+        view.close();
+    }
+
+    @Test
+    public void testPositionOfCursor() {
+        LCRSTree<Integer> tree = fill(new LCRSTree<>());
+        TreeCursor<Integer> cursor = tree.cursor(tree.root());
+        cursor.toFirstChild();
+        cursor.toNextSibling();
+        assertEquals(tree.select(2), cursor.position());
+        tree.add(11, cursor.position());
+        assertEquals(11, tree.subtreeSize(tree.root()));
+    }
+}
@@ -0,0 +1,113 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the TreeDiff class.
+ */
+public class TreeDiffTest {
+
+    private LinkedTree<String> oldTree = new LinkedTree<>();
+    private LCRSTree<String> newTree = new LCRSTree<>();
+
+    private Position<String> newC;
+    private Position<String> newF;
+
+    public void setTrees() {
+        Position<String> p = oldTree.addRoot("A");
+        oldTree.add("B", p);
+        Position<String> p1 = oldTree.add("C", p);
+        oldTree.add("D", p);
+        oldTree.add("E", p1);
+        oldTree.add("F", p1);
+
+        Position<String> q = newTree.addRoot("A");
+        newTree.add("B", q);
+        newC = newTree.add("C", q);
+        newTree.add("D", q);
+        newTree.add("E", newC);
+        newF = newTree.add("F", newC);
+    }
+
+    @Test
+    public void testEqualTrees() {
+        this.setTrees();
+        assertEquals(oldTree.structuralHash(oldTree.root()), newTree.structuralHash(newTree.root()));
+        assertTrue(TreeDiff.diff(oldTree, newTree).isEmpty());
+    }
+
+    @Test
+    public void testReplace() {
+        this.setTrees();
+        newTree.replace(newF, "X");
+        List<TreeDiff.Change<String>> changes = TreeDiff.diff(oldTree, newTree);
+        assertEquals(1, changes.size());
+        assertEquals(TreeDiff.Kind.CHANGED, changes.get(0).getKind());
+        assertEquals("F", changes.get(0).getOldPosition().getElement());
+        assertEquals(newF, changes.get(0).getNewPosition());
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        this.setTrees();
+        Position<String> g = newTree.add("G", newC);
+        newTree.remove(newF);
+        newTree.add("H", newTree.root());
+        List<TreeDiff.Change<String>> changes = TreeDiff.diff(oldTree, newTree);
+        assertEquals(2, changes.size());
+        assertEquals(TreeDiff.Kind.CHANGED, changes.get(0).getKind());
+        assertEquals(g, changes.get(0).getNewPosition());
+        assertEquals(TreeDiff.Kind.ADDED, changes.get(1).getKind());
+        assertEquals("H", changes.get(1).getNewPosition().getElement());
+    }
+
+    @Test
+    public void testHashIsUpdatedOnMutation() {
+        this.setTrees();
+        int before = newTree.structuralHash(newTree.root());
+        newTree.swapElements(newTree.root(), newF);
+        assertNotEquals(before, newTree.structuralHash(newTree.root()));
+        newTree.swapElements(newTree.root(), newF);
+        assertEquals(before, newTree.structuralHash(newTree.root()));
+    }
+
+    @Test
+    public void testHashCollisionOfElements() {
+        LinkedTree<String> a = new LinkedTree<>();
+        a.addRoot("Aa");
+        LCRSTree<String> b = new LCRSTree<>();
+        b.addRoot("BB");
+        assertEquals(a.structuralHash(a.root()), b.structuralHash(b.root()));
+        List<TreeDiff.Change<String>> changes = TreeDiff.diff(a, b);
+        assertEquals(1, changes.size());
+        assertEquals("CHANGED(Aa -> BB)", changes.get(0).toString());
+    }
+
+    @Test
+    public void testHashCollisionOfShapes() {
+        LinkedTree<Integer> a = new LinkedTree<>();
+        a.add(0, a.add(1, a.addRoot(0)));
+        LinkedTree<Integer> b = new LinkedTree<>();
+        b.add(31, b.addRoot(0));
+        assertEquals(a.structuralHash(a.root()), b.structuralHash(b.root()));
+        assertEquals("[CHANGED(1 -> 31), REMOVED(0 -> null)]", TreeDiff.diff(a, b).toString());
+    }
+
+    @Test
+    public void testHashCollisionOfChildren() {
+        LinkedTree<Integer> a = new LinkedTree<>();
+        Position<Integer> r = a.addRoot(0);
+        a.add(1, r);
+        a.add(31, r);
+        LinkedTree<Integer> b = new LinkedTree<>();
+        Position<Integer> s = b.addRoot(0);
+        b.add(2, s);
+        b.add(0, s);
+        assertEquals(a.structuralHash(a.root()), b.structuralHash(b.root()));
+        assertEquals("[CHANGED(1 -> 2), CHANGED(31 -> 0)]", TreeDiff.diff(a, b).toString());
+    }
+}
@@ -0,0 +1,196 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the change events of LinkedTree and LCRSTree.
+ */
+public class TreeEventSupportTest {
+
+    private final List<List<TreeEvent<String>>> batches = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    @Test
+    public void testSynchronousEvents() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        tree.setListenerExecutor(Runnable::run);
+        tree.addListener(batches::add);
+
+        Position<String> p = tree.addRoot("A");
+        Position<String> b = tree.add("B", p);
+        tree.replace(b, "C");
+        tree.swapElements(p, b);
+        tree.remove(b);
+
+        assertEquals(5, batches.size());
+        assertEquals(TreeEvent.Kind.ADDED, batches.get(0).get(0).getKind());
+        TreeEvent<String> replaced = batches.get(2).get(0);
+        assertEquals(TreeEvent.Kind.REPLACED, replaced.getKind());
+        assertEquals("B", replaced.getOldElement());
+        assertEquals("C", replaced.getNewElement());
+        assertEquals(b, batches.get(3).get(0).getSecondPosition());
+        assertEquals(TreeEvent.Kind.REMOVED, batches.get(4).get(0).getKind());
+    }
+
+    @Test
+    public void testEventsAreBatched() {
+        LCRSTree<String> tree = new LCRSTree<>();
+        tree.setListenerExecutor(scheduled::add);
+        tree.addListener(batches::add);
+
+        Position<String> p = tree.addRoot("A");
+        tree.add("B", p);
+        LCRSTree<String> other = new LCRSTree<>();
+        other.addRoot("X");
+        tree.attach(p, other);
+
+        assertEquals(1, scheduled.size());
+        scheduled.get(0).run();
+        assertEquals(1, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals(TreeEvent.Kind.ATTACHED, batches.get(0).get(2).getKind());
+
+        tree.replace(p, "Z");
+        assertEquals(2, scheduled.size());
+    }
+
+    @Test
+    public void testRemovedListener() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        tree.setListenerExecutor(Runnable::run);
+        TreeListener<String> listener = batches::add;
+        tree.addListener(listener);
+        tree.removeListener(listener);
+        tree.addRoot("A");
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testSynchronousListenerFailureIsRethrown() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        tree.addListener((SynchronousTreeListener<String>) events -> {
+            throw new IllegalStateException("first");
+        });
+        tree.addListener((SynchronousTreeListener<String>) batches::add);
+        tree.addListener((SynchronousTreeListener<String>) events -> {
+            throw new IllegalStateException("second");
+        });
+        try {
+            tree.addRoot("A");
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("first", e.getMessage());
+            assertEquals("second", e.getSuppressed()[0].getMessage());
+        }
+        assertEquals(1, batches.size());
+        assertEquals("A", tree.root().getElement());
+    }
+
+    @Test
+    public void testRejectedDeliveryIsRetried() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        boolean[] reject = {true};
+        tree.setListenerExecutor(task -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException();
+            }
+            scheduled.add(task);
+        });
+        tree.addListener(batches::add);
+        try {
+            tree.addRoot("A");
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertEquals("A", tree.root().getElement());
+        }
+
+        reject[0] = false;
+        tree.add("B", tree.root());
+        assertEquals(1, scheduled.size());
+        scheduled.get(0).run();
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+    }
+
+    @Test
+    public void testListenerFailureIsReported() {
+        LinkedTree<String> tree = new LinkedTree<>();
+        tree.setListenerExecutor(Runnable::run);
+        tree.addListener(events -> {
+            throw new IllegalStateException("failed");
+        });
+        tree.addListener(batches::add);
+        List<Throwable> reported = new ArrayList<>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+        try {
+            tree.addRoot("A");
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+        assertEquals(1, reported.size());
+        assertEquals("failed", reported.get(0).getMessage());
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testRemovedNodesAreDisownedWhenNotificationFails() {
+        for (boolean linked : new boolean[]{true, false}) {
+            NAryTree<String> tree = linked ? new LinkedTree<>() : new LCRSTree<>();
+            if (tree instanceof LinkedTree) {
+                ((LinkedTree<String>) tree).setDebugChecks(false);
+            } else {
+                ((LCRSTree<String>) tree).setDebugChecks(false);
+            }
+            Position<String> a = tree.addRoot("A");
+            Position<String> b = tree.add("B", a);
+            Position<String> c = tree.add("C", b);
+            Position<String> d = tree.add("D", a);
+            Position<String> e = tree.add("E", d);
+            List<TreeEvent<String>> removed = new ArrayList<>();
+            SynchronousTreeListener<String> listener = events -> {
+                if (events.get(0).getKind() == TreeEvent.Kind.REMOVED) {
+                    removed.addAll(events);
+                    throw new IllegalStateException("failed");
+                }
+            };
+            tree.addListener(listener);
+            try {
+                tree.removeIf(p -> p.getElement().equals("B") || p.getElement().equals("D"));
+                fail();
+            } catch (IllegalStateException ex) {
+                assertEquals(1, ex.getSuppressed().length);
+            }
+            assertEquals(2, removed.size());
+            assertEquals(1, tree.subtreeSize(a));
+            assertRejected(() -> tree.add("X", c));
+            assertRejected(() -> tree.add("X", e));
+
+            Position<String> f = tree.add("F", a);
+            Position<String> g = tree.add("G", f);
+            try {
+                tree.remove(f);
+                fail();
+            } catch (IllegalStateException ex) {
+                assertEquals("failed", ex.getMessage());
+            }
+            assertRejected(() -> tree.add("X", g));
+        }
+    }
+
+    private static void assertRejected(Runnable action) {
+        try {
+            action.run();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("The position"));
+        }
+    }
+}
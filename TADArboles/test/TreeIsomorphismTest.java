@@ -0,0 +1,69 @@
+import material.Position;
+import org.junit.*;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the TreeIsomorphism class.
+ */
+public class TreeIsomorphismTest {
+
+    private LinkedTree<String> tree = new LinkedTree<>();
+
+    private Position<String> c1;
+    private Position<String> c2;
+
+    /**
+     * Builds a tree with two isomorphic "cfg" blocks whose children are in different order.
+     */
+    public void setTree() {
+        Position<String> p = tree.addRoot("root");
+        c1 = tree.add("cfg", p);
+        tree.add("host", c1);
+        tree.add("port", c1);
+        Position<String> q = tree.add("group", p);
+        c2 = tree.add("cfg", q);
+        tree.add("port", c2);
+        tree.add("host", c2);
+        tree.add("host", q);
+    }
+
+    @Test
+    public void testFindOccurrences() {
+        this.setTree();
+        LCRSTree<String> pattern = new LCRSTree<>();
+        Position<String> p = pattern.addRoot("cfg");
+        pattern.add("host", p);
+        pattern.add("port", p);
+
+        List<Position<String>> occurrences = tree.findOccurrences(pattern);
+        assertEquals(2, occurrences.size());
+        assertTrue(occurrences.contains(c1));
+        assertTrue(occurrences.contains(c2));
+    }
+
+    @Test
+    public void testFindNoOccurrences() {
+        this.setTree();
+        LinkedTree<String> pattern = new LinkedTree<>();
+        Position<String> p = pattern.addRoot("cfg");
+        pattern.add("host", p);
+        assertTrue(tree.findOccurrences(pattern).isEmpty());
+    }
+
+    @Test
+    public void testGroupIsomorphicSubtrees() {
+        this.setTree();
+        List<List<Position<String>>> groups = tree.groupIsomorphicSubtrees();
+        assertEquals(3, groups.size());
+        assertEquals(3, groups.get(0).size());
+        assertEquals("host", groups.get(0).get(0).getElement());
+        assertEquals(2, groups.get(1).size());
+        assertEquals("port", groups.get(1).get(0).getElement());
+        assertEquals(2, groups.get(2).size());
+        assertEquals("cfg", groups.get(2).get(0).getElement());
+    }
+}
@@ -0,0 +1,102 @@
+import material.Position;
+import org.junit.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * This class is a test class for the TreeTextImporter and TreeTextExporter classes.
+ */
+public class TreeTextImporterTest {
+
+    private static Path write(String content) throws IOException {
+        Path path = Files.createTempFile("tree", ".txt");
+        path.toFile().deleteOnExit();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static String preOrder(NAryTree<String> tree) {
+        StringBuilder s = new StringBuilder();
+        tree.traverse(Integer.MAX_VALUE, p -> true, (p, depth) -> s.append(depth).append(p.getElement()).append(' '));
+        return s.toString();
+    }
+
+    @Test
+    public void testReadNewick() throws IOException {
+        Path path = write("(B:0.1,(D,'E F''s')C:2.5[comment])A;\n");
+        LinkedTree<String> tree = TreeTextImporter.readNewick(path, new LinkedTree<>());
+        assertEquals(5, tree.size());
+        assertEquals("0A 1B 1C 2D 2E F's ", preOrder(tree));
+    }
+
+    @Test
+    public void testReadSingleNode() throws IOException {
+        LCRSTree<String> tree = TreeTextImporter.readNewick(write("A;"), new LCRSTree<>());
+        assertEquals(1, tree.size());
+        assertEquals("A", tree.root().getElement());
+    }
+
+    @Test
+    public void testReadInvalidNewick() throws IOException {
+        try {
+            TreeTextImporter.readNewick(write("(A,(B,C)"), new LinkedTree<>());
+            fail("An incomplete tree was accepted");
+        } catch (RuntimeException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testReadOutline() throws IOException {
+        Path path = write("root\n  a\n    a1\n\n    a2\r\n  b\n\tc\n");
+        LCRSTree<String> tree = TreeTextImporter.readOutline(path, new LCRSTree<>());
+        assertEquals("0root 1a 2a1 2a2 1b 1c ", preOrder(tree));
+    }
+
+    @Test
+    public void testOutlineWithTwoRoots() throws IOException {
+        try {
+            TreeTextImporter.readOutline(write("a\n  b\nc\n"), new LinkedTree<>());
+            fail("Two roots were accepted");
+        } catch (RuntimeException e) {
+            assertTrue(true);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        LinkedTree<String> tree = new LinkedTree<>();
+        Position<String> p = tree.addRoot("\u00e1");
+        tree.add("b c", p);
+        Position<String> d = tree.add("d", p);
+        tree.add("(e)", d);
+
+        Path newick = Files.createTempFile("tree", ".nwk");
+        Path outline = Files.createTempFile("tree", ".txt");
+        Path dot = Files.createTempFile("tree", ".dot");
+        newick.toFile().deleteOnExit();
+        outline.toFile().deleteOnExit();
+        dot.toFile().deleteOnExit();
+        try (FileChannel channel = FileChannel.open(newick, StandardOpenOption.WRITE)) {
+            TreeTextExporter.writeNewick(tree, channel);
+        }
+        try (FileChannel channel = FileChannel.open(outline, StandardOpenOption.WRITE)) {
+            TreeTextExporter.writeOutline(tree, channel);
+        }
+        try (FileChannel channel = FileChannel.open(dot, StandardOpenOption.WRITE)) {
+            TreeTextExporter.writeDot(tree, channel);
+        }
+
+        assertEquals(preOrder(tree), preOrder(TreeTextImporter.readNewick(newick, new LCRSTree<>())));
+        assertEquals(preOrder(tree), preOrder(TreeTextImporter.readOutline(outline, new LinkedTree<>())));
+        assertEquals(tree.toDot(), new String(Files.readAllBytes(dot), StandardCharsets.UTF_8));
+    }
+}